@@ -34,6 +34,13 @@ android {
     buildFeatures {
         viewBinding = true
     }
+
+    // Local unit tests run the utils against android.jar stubs (Log, Handler, SystemClock)
+    testOptions {
+        unitTests.isReturnDefaultValues = true
+        // Lets the Robolectric adapter tests inflate the real row layouts
+        unitTests.isIncludeAndroidResources = true
+    }
 }
 
 dependencies {
@@ -55,6 +62,10 @@ dependencies {
     implementation("com.google.firebase:firebase-storage")
 
     testImplementation(libs.junit)
+    // android.jar's org.json is only a stub in local unit tests
+    testImplementation("org.json:json:20231013")
+    // Real framework classes (android.util.JsonReader) for the tests that parse API responses
+    testImplementation("org.robolectric:robolectric:4.13")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 
@@ -12,23 +12,53 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.rest_app.R;
 import com.example.rest_app.model.Booking;
+import com.example.rest_app.utils.BookingPager;
+import com.example.rest_app.utils.BookingTimes;
+import com.example.rest_app.utils.IdGenerator;
 
 import java.util.List;
 
 public class BookingAdapter extends RecyclerView.Adapter<BookingAdapter.ViewHolder> {
 
+    // Payload for rebinding just the status badge
+    public static final String PAYLOAD_STATUS = BookingPager.PAYLOAD_STATUS;
+
     private Context context;
-    private List<Booking> bookingList;
+    // Holds only the pages near the screen; rows of other pages read as null
+    private final BookingPager pager;
+    private final StableIds stableIds = new StableIds();
     private BookingActionListener actionListener;
 
     public interface BookingActionListener {
         void onDeleteBooking(Booking booking);
     }
 
-    public BookingAdapter(Context context, List<Booking> bookingList, BookingActionListener actionListener) {
+    public BookingAdapter(Context context, BookingPager pager, BookingActionListener actionListener) {
         this.context = context;
-        this.bookingList = bookingList;
+        this.pager = pager;
         this.actionListener = actionListener;
+        setHasStableIds(true);
+        pager.setListener(new BookingPager.Listener() {
+            @Override
+            public void onInserted(int position, int count) {
+                notifyItemRangeInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                notifyItemRangeRemoved(position, count);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                notifyItemRangeChanged(position, count, payload);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                notifyItemMoved(fromPosition, toPosition);
+            }
+        });
     }
 
     @NonNull
@@ -39,24 +69,33 @@ public class BookingAdapter extends RecyclerView.Adapter<BookingAdapter.ViewHold
         return new ViewHolder(view);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        Booking booking = pager.get(position);
+        if (booking != null && payloads.contains(PAYLOAD_STATUS)) {
+            bindStatus(holder, booking);
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Booking booking = bookingList.get(position);
+        Booking booking = pager.get(position);
+        if (booking == null) {
+            bindPlaceholder(holder);
+            return;
+        }
 
+        holder.buttonDelete.setVisibility(View.VISIBLE);
+        holder.textViewStatus.setVisibility(View.VISIBLE);
         holder.textViewName.setText(booking.getName());
-        holder.textViewDateTime.setText(booking.getDate() + " at " + booking.getTime());
-        holder.textViewGuests.setText(booking.getGuests() + " guests");
+        long reservationAt = booking.getReservationAt();
+        holder.textViewDateTime.setText(reservationAt > 0
+                ? BookingTimes.formatDate(reservationAt) + " at " + BookingTimes.formatTime(reservationAt) : "");
+        holder.textViewGuests.setText(booking.getPartySize() + (booking.getPartySize() == 1 ? " guest" : " guests"));
         holder.textViewPhone.setText("Phone: " + booking.getPhone());
-        holder.textViewStatus.setText(booking.getStatus());
-
-        // Set status color
-        if ("Confirmed".equals(booking.getStatus())) {
-            holder.textViewStatus.setTextColor(context.getResources().getColor(R.color.primary));
-            holder.textViewStatus.setBackgroundResource(R.drawable.status_background);
-        } else {
-            holder.textViewStatus.setTextColor(context.getResources().getColor(R.color.text_secondary));
-            holder.textViewStatus.setBackgroundResource(R.drawable.status_background);
-        }
+        bindStatus(holder, booking);
 
         // Set up delete button
         holder.buttonDelete.setOnClickListener(v -> {
@@ -71,14 +110,45 @@ public class BookingAdapter extends RecyclerView.Adapter<BookingAdapter.ViewHold
         });
     }
 
+    // Row whose page is being fetched again; filled in when it arrives
+    private void bindPlaceholder(ViewHolder holder) {
+        holder.textViewName.setText("Loading…");
+        holder.textViewDateTime.setText("");
+        holder.textViewGuests.setText("");
+        holder.textViewPhone.setText("");
+        holder.textViewStatus.setVisibility(View.INVISIBLE);
+        holder.buttonDelete.setVisibility(View.INVISIBLE);
+        holder.buttonDelete.setOnClickListener(null);
+        holder.cardView.setOnClickListener(null);
+    }
+
+    private void bindStatus(ViewHolder holder, Booking booking) {
+        holder.textViewStatus.setText(booking.getStatus());
+
+        // Set status color
+        if ("Confirmed".equals(booking.getStatus())) {
+            holder.textViewStatus.setTextColor(context.getResources().getColor(R.color.primary));
+            holder.textViewStatus.setBackgroundResource(R.drawable.status_background);
+        } else {
+            holder.textViewStatus.setTextColor(context.getResources().getColor(R.color.text_secondary));
+            holder.textViewStatus.setBackgroundResource(R.drawable.status_background);
+        }
+    }
+
     @Override
     public int getItemCount() {
-        return bookingList.size();
+        return pager.size();
     }
 
-    public void updateList(List<Booking> newList) {
-        this.bookingList = newList;
-        notifyDataSetChanged();
+    @Override
+    public long getItemId(int position) {
+        Booking booking = pager.get(position);
+        if (booking == null) {
+            return -1 - position; // Placeholders; real ids are never negative
+        }
+        // Booking ids start with a time-ordered 64 bit value, so no lookup table has to grow with the history
+        long raw = IdGenerator.decode(booking.getBookingId(), IdGenerator.BOOKING_PREFIX);
+        return raw >= 0 ? raw : stableIds.idFor(booking.getBookingId());
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
@@ -8,30 +8,70 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Button;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.example.rest_app.R;
 import com.example.rest_app.model.FoodItem;
 import com.example.rest_app.utils.CartManager;
 import com.example.rest_app.utils.CurrencyManager; // NEW IMPORT
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 public class CartAdapter extends RecyclerView.Adapter<CartAdapter.ViewHolder> {
 
+    // Payloads for rebinding a single text view instead of the whole row
+    public static final String PAYLOAD_QUANTITY = "quantity";
+    public static final String PAYLOAD_PRICE = "price";
+
     private final Context context;
-    private final List<FoodItem> cartItems;
-    private final UpdateTotalListener updateTotalListener;
+    private final AsyncListDiffer<FoodItem> differ;
+    private final StableIds stableIds = new StableIds();
     private final CurrencyManager currencyManager; // NEW FIELD
 
-    public interface UpdateTotalListener {
-        void onUpdateTotal();
-    }
+    // Rebind counters, full binds vs payload-only binds
+    private long fullBindCount;
+    private long partialBindCount;
+
+    // Cart lines are submitted as copies, so a quantity change shows up as a content change
+    private static final DiffUtil.ItemCallback<FoodItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<FoodItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull FoodItem oldItem, @NonNull FoodItem newItem) {
+            return oldItem.getId().equals(newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull FoodItem oldItem, @NonNull FoodItem newItem) {
+            return oldItem.getQuantity() == newItem.getQuantity()
+                    && oldItem.getPriceMinor() == newItem.getPriceMinor()
+                    && sameDetails(oldItem, newItem);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull FoodItem oldItem, @NonNull FoodItem newItem) {
+            if (!sameDetails(oldItem, newItem)) {
+                return null;
+            }
+            if (oldItem.getPriceMinor() != newItem.getPriceMinor()) {
+                return oldItem.getQuantity() == newItem.getQuantity() ? PAYLOAD_PRICE : null;
+            }
+            return PAYLOAD_QUANTITY;
+        }
 
-    public CartAdapter(Context context, List<FoodItem> cartItems, UpdateTotalListener updateTotalListener) {
+        private boolean sameDetails(FoodItem oldItem, FoodItem newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getImageUrl(), newItem.getImageUrl());
+        }
+    };
+
+    public CartAdapter(Context context, List<FoodItem> cartItems) {
         this.context = context;
-        this.cartItems = cartItems;
-        this.updateTotalListener = updateTotalListener;
+        this.differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
         this.currencyManager = CurrencyManager.getInstance(); // INITIALIZE
+        setHasStableIds(true);
+        submitList(cartItems);
     }
 
     @NonNull
@@ -42,9 +82,27 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.ViewHolder> {
         return new ViewHolder(view);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            super.onBindViewHolder(holder, position, payloads);
+            return;
+        }
+
+        partialBindCount++;
+        FoodItem foodItem = differ.getCurrentList().get(position);
+        if (payloads.contains(PAYLOAD_QUANTITY)) {
+            holder.textViewQuantity.setText(String.valueOf(foodItem.getQuantity()));
+        }
+        if (payloads.contains(PAYLOAD_PRICE)) {
+            holder.textViewPrice.setText(currencyManager.formatPrice(foodItem.getPrice()));
+        }
+    }
+
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        FoodItem foodItem = cartItems.get(position);
+        fullBindCount++;
+        FoodItem foodItem = differ.getCurrentList().get(position);
 
         holder.textViewName.setText(foodItem.getName());
         // NEW: Use CurrencyManager to display converted price
@@ -65,38 +123,50 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.ViewHolder> {
                     .into(holder.imageViewFood);
         }
 
+        // Listeners change the live cart line, not the row shown: until the new list has been
+        // diffed the row still holds the old quantity, and quick taps would each start from it.
+        // CartManager then posts an event and the fragment pushes a new list
         // Increase quantity
         holder.buttonIncrease.setOnClickListener(v -> {
-            CartManager.getInstance().updateQuantity(foodItem, foodItem.getQuantity() + 1);
-            holder.textViewQuantity.setText(String.valueOf(foodItem.getQuantity()));
-            updateTotalListener.onUpdateTotal();
+            FoodItem item = itemAt(holder);
+            if (item == null) return;
+            CartManager.getInstance().incrementQuantity(item.getId(), 1);
         });
 
         // Decrease quantity
         holder.buttonDecrease.setOnClickListener(v -> {
-            if (foodItem.getQuantity() > 1) {
-                CartManager.getInstance().updateQuantity(foodItem, foodItem.getQuantity() - 1);
-                holder.textViewQuantity.setText(String.valueOf(foodItem.getQuantity()));
-                updateTotalListener.onUpdateTotal();
+            FoodItem item = itemAt(holder);
+            if (item == null) return;
+            FoodItem line = CartManager.getInstance().getCartItem(item.getId());
+            if (line == null) return;
+            if (line.getQuantity() > 1) {
+                CartManager.getInstance().incrementQuantity(line.getId(), -1);
             } else {
                 // If quantity is 1 and user clicks decrease, remove item
-                removeItem(position);
+                removeItem(line);
             }
         });
 
         // DELETE BUTTON CLICK LISTENER
         holder.buttonDelete.setOnClickListener(v -> {
-            removeItem(position);
+            FoodItem item = itemAt(holder);
+            if (item != null) {
+                removeItem(item);
+            }
         });
     }
 
+    private FoodItem itemAt(ViewHolder holder) {
+        int position = holder.getBindingAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) {
+            return null;
+        }
+        return differ.getCurrentList().get(position);
+    }
+
     // Method to remove item from cart
-    private void removeItem(int position) {
-        FoodItem foodItem = cartItems.get(position);
+    private void removeItem(FoodItem foodItem) {
         CartManager.getInstance().removeFromCart(foodItem);
-        cartItems.remove(position);
-        notifyItemRemoved(position);
-        updateTotalListener.onUpdateTotal();
 
         // Show confirmation message
         if (context != null) {
@@ -106,7 +176,34 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.ViewHolder> {
 
     @Override
     public int getItemCount() {
-        return cartItems.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idFor(differ.getCurrentList().get(position).getId());
+    }
+
+    // Diffed against the current rows on a background thread
+    public void submitList(List<FoodItem> cartItems) {
+        List<FoodItem> snapshot = new ArrayList<>(cartItems.size());
+        for (FoodItem item : cartItems) {
+            snapshot.add(new FoodItem(item));
+        }
+        differ.submitList(snapshot);
+    }
+
+    // Rebinds only the price text of every row, e.g. after a currency change
+    public void refreshPrices() {
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_PRICE);
+    }
+
+    public long getFullBindCount() {
+        return fullBindCount;
+    }
+
+    public long getPartialBindCount() {
+        return partialBindCount;
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
@@ -10,33 +10,66 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.example.rest_app.R;
 import com.example.rest_app.model.FoodItem;
 import com.example.rest_app.utils.CartManager;
 import com.example.rest_app.utils.CurrencyManager; // NEW IMPORT
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
 
 public class MenuAdapter extends RecyclerView.Adapter<MenuAdapter.ViewHolder> {
 
+    // Payload for rebinding just the price text (currency switch or price change)
+    public static final String PAYLOAD_PRICE = "price";
+
     private final Context context;
-    private List<FoodItem> foodItemList;
+    private final AsyncListDiffer<FoodItem> differ;
+    private final StableIds stableIds = new StableIds();
     private final Random random;
-    private final UpdateCartListener updateCartListener;
     private final CurrencyManager currencyManager; // NEW FIELD
 
-    public interface UpdateCartListener {
-        void onUpdateCart();
-    }
+    // Rebind counters, full binds vs payload-only binds
+    private long fullBindCount;
+    private long partialBindCount;
+
+    private static final DiffUtil.ItemCallback<FoodItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<FoodItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull FoodItem oldItem, @NonNull FoodItem newItem) {
+            return oldItem.getId().equals(newItem.getId());
+        }
 
-    public MenuAdapter(Context context, List<FoodItem> foodItemList, UpdateCartListener updateCartListener) {
+        @Override
+        public boolean areContentsTheSame(@NonNull FoodItem oldItem, @NonNull FoodItem newItem) {
+            return oldItem.getPriceMinor() == newItem.getPriceMinor() && sameDetails(oldItem, newItem);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull FoodItem oldItem, @NonNull FoodItem newItem) {
+            return sameDetails(oldItem, newItem) ? PAYLOAD_PRICE : null;
+        }
+
+        private boolean sameDetails(FoodItem oldItem, FoodItem newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && Objects.equals(oldItem.getImageUrl(), newItem.getImageUrl())
+                    && Objects.equals(oldItem.getCategory(), newItem.getCategory())
+                    && oldItem.getCalories() == newItem.getCalories();
+        }
+    };
+
+    public MenuAdapter(Context context, List<FoodItem> foodItemList) {
         this.context = context;
-        this.foodItemList = foodItemList;
-        this.updateCartListener = updateCartListener;
+        this.differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
         this.random = new Random();
         this.currencyManager = CurrencyManager.getInstance(); // INITIALIZE
+        setHasStableIds(true);
+        differ.submitList(new ArrayList<>(foodItemList));
     }
 
     @NonNull
@@ -47,9 +80,22 @@ public class MenuAdapter extends RecyclerView.Adapter<MenuAdapter.ViewHolder> {
         return new ViewHolder(view);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_PRICE)) {
+            // Only the price changed; leave the image, rating and badges alone
+            partialBindCount++;
+            FoodItem foodItem = differ.getCurrentList().get(position);
+            holder.textViewPrice.setText(currencyManager.formatPrice(foodItem.getPrice()));
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        FoodItem foodItem = foodItemList.get(position);
+        fullBindCount++;
+        FoodItem foodItem = differ.getCurrentList().get(position);
 
         holder.textViewName.setText(foodItem.getName());
         holder.textViewDescription.setText(foodItem.getDescription());
@@ -82,10 +128,6 @@ public class MenuAdapter extends RecyclerView.Adapter<MenuAdapter.ViewHolder> {
             CartManager.getInstance().addToCart(foodItem);
             animateAddToCartButton(holder.buttonAddToCart);
             Toast.makeText(context, "✓ " + foodItem.getName() + " added to cart!", Toast.LENGTH_SHORT).show();
-
-            if (updateCartListener != null) {
-                updateCartListener.onUpdateCart();
-            }
         });
 
         // Card click animation
@@ -142,12 +184,35 @@ public class MenuAdapter extends RecyclerView.Adapter<MenuAdapter.ViewHolder> {
 
     @Override
     public int getItemCount() {
-        return foodItemList.size();
+        return differ.getCurrentList().size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idFor(differ.getCurrentList().get(position).getId());
+    }
+
+    // Diffed against the current list on a background thread; only changed rows are rebound
     public void updateList(List<FoodItem> newList) {
-        this.foodItemList = newList;
-        notifyDataSetChanged();
+        updateList(newList, null);
+    }
+
+    // commitCallback runs once the new list is showing
+    public void updateList(List<FoodItem> newList, Runnable commitCallback) {
+        differ.submitList(new ArrayList<>(newList), commitCallback);
+    }
+
+    // Rebinds only the price text of every row, e.g. after a currency change
+    public void refreshPrices() {
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_PRICE);
+    }
+
+    public long getFullBindCount() {
+        return fullBindCount;
+    }
+
+    public long getPartialBindCount() {
+        return partialBindCount;
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
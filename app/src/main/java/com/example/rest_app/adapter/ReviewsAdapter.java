@@ -10,17 +10,22 @@ import android.widget.RatingBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.rest_app.R;
 import com.example.rest_app.model.Review;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 public class ReviewsAdapter extends RecyclerView.Adapter<ReviewsAdapter.ViewHolder> {
 
     private Context context;
-    private List<Review> reviewList;
+    private final AsyncListDiffer<Review> differ;
+    private final StableIds stableIds = new StableIds();
     private ReviewActionListener actionListener;
 
     public interface ReviewActionListener {
@@ -29,10 +34,27 @@ public class ReviewsAdapter extends RecyclerView.Adapter<ReviewsAdapter.ViewHold
         boolean canUserDeleteReview(Review review);
     }
 
+    private static final DiffUtil.ItemCallback<Review> DIFF_CALLBACK = new DiffUtil.ItemCallback<Review>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Review oldItem, @NonNull Review newItem) {
+            return Objects.equals(oldItem.getReviewId(), newItem.getReviewId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Review oldItem, @NonNull Review newItem) {
+            return Objects.equals(oldItem.getReviewerName(), newItem.getReviewerName())
+                    && Objects.equals(oldItem.getReviewText(), newItem.getReviewText())
+                    && Objects.equals(oldItem.getDate(), newItem.getDate())
+                    && oldItem.getRating() == newItem.getRating();
+        }
+    };
+
     public ReviewsAdapter(Context context, List<Review> reviewList, ReviewActionListener actionListener) {
         this.context = context;
-        this.reviewList = reviewList;
+        this.differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
         this.actionListener = actionListener;
+        setHasStableIds(true);
+        differ.submitList(new ArrayList<>(reviewList));
     }
 
     @NonNull
@@ -45,7 +67,7 @@ public class ReviewsAdapter extends RecyclerView.Adapter<ReviewsAdapter.ViewHold
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Review review = reviewList.get(position);
+        Review review = differ.getCurrentList().get(position);
 
         // Set review data
         holder.textViewName.setText(review.getReviewerName());
@@ -70,12 +92,22 @@ public class ReviewsAdapter extends RecyclerView.Adapter<ReviewsAdapter.ViewHold
 
     @Override
     public int getItemCount() {
-        return reviewList.size();
+        return differ.getCurrentList().size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idFor(differ.getCurrentList().get(position).getReviewId());
+    }
+
+    // Diffed against the current list on a background thread; only changed rows are rebound
     public void updateList(List<Review> newList) {
-        this.reviewList = newList;
-        notifyDataSetChanged();
+        updateList(newList, null);
+    }
+
+    // commitCallback runs once the new list is showing (e.g. to scroll to a new item)
+    public void updateList(List<Review> newList, Runnable commitCallback) {
+        differ.submitList(new ArrayList<>(newList), commitCallback);
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,22 @@
+package com.example.rest_app.adapter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out a stable RecyclerView item id for each string key, so rows keep their
+ * identity across list updates without relying on hashCode (which can collide).
+ */
+class StableIds {
+    private final Map<String, Long> ids = new HashMap<>();
+    private long nextId;
+
+    long idFor(String key) {
+        Long id = ids.get(key);
+        if (id == null) {
+            id = nextId++;
+            ids.put(key, id);
+        }
+        return id;
+    }
+}
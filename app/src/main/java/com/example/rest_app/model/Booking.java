@@ -1,27 +1,30 @@
 package com.example.rest_app.model;
 
+import com.example.rest_app.utils.IdGenerator;
+
 import java.io.Serializable;
 
 public class Booking implements Serializable {
     private String name;
     private String phone;
-    private String date;
-    private String time;
-    private String guests;
+    // Start of the reservation, epoch millis
+    private long reservationAt;
+    private int partySize;
     private String bookingId;
     private String status;
+    // When the booking was made, epoch millis; also the sort key of the booking list
+    private long timestamp;
 
     public Booking() {
         // Default constructor
     }
 
-    public Booking(String name, String phone, String date, String time, String guests) {
+    public Booking(String name, String phone, long reservationAt, int partySize) {
         this.name = name;
         this.phone = phone;
-        this.date = date;
-        this.time = time;
-        this.guests = guests;
-        this.bookingId = String.valueOf(System.currentTimeMillis());
+        this.reservationAt = reservationAt;
+        this.partySize = partySize;
+        this.bookingId = IdGenerator.newBookingId();
         this.status = "Confirmed";
     }
 
@@ -32,18 +35,18 @@ public class Booking implements Serializable {
     public String getPhone() { return phone; }
     public void setPhone(String phone) { this.phone = phone; }
 
-    public String getDate() { return date; }
-    public void setDate(String date) { this.date = date; }
-
-    public String getTime() { return time; }
-    public void setTime(String time) { this.time = time; }
+    public long getReservationAt() { return reservationAt; }
+    public void setReservationAt(long reservationAt) { this.reservationAt = reservationAt; }
 
-    public String getGuests() { return guests; }
-    public void setGuests(String guests) { this.guests = guests; }
+    public int getPartySize() { return partySize; }
+    public void setPartySize(int partySize) { this.partySize = partySize; }
 
     public String getBookingId() { return bookingId; }
     public void setBookingId(String bookingId) { this.bookingId = bookingId; }
 
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
-}
\ No newline at end of file
+
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+}
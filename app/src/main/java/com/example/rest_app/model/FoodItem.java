@@ -1,9 +1,11 @@
 package com.example.rest_app.model;
 
 public class FoodItem {
+    private String id;
     private String name;
     private String description;
-    private double price;
+    // Price in minor units of the base currency, so totals add up exactly
+    private long priceMinor;
     private String imageUrl;
     private String category;
     private int quantity;
@@ -11,9 +13,10 @@ public class FoodItem {
 
     // Constructor with calories
     public FoodItem(String name, String description, double price, String imageUrl, String category, int calories) {
+        this.id = name;
         this.name = name;
         this.description = description;
-        this.price = price;
+        this.priceMinor = Money.toMinor(price);
         this.imageUrl = imageUrl;
         this.category = category;
         this.quantity = 0;
@@ -22,24 +25,46 @@ public class FoodItem {
 
     // Constructor without calories (for backward compatibility)
     public FoodItem(String name, String description, double price, String imageUrl, String category) {
+        this.id = name;
         this.name = name;
         this.description = description;
-        this.price = price;
+        this.priceMinor = Money.toMinor(price);
         this.imageUrl = imageUrl;
         this.category = category;
         this.quantity = 0;
         this.calories = 0;
     }
 
+    // Copy constructor, used where a snapshot of a cart line is needed
+    public FoodItem(FoodItem other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.description = other.description;
+        this.priceMinor = other.priceMinor;
+        this.imageUrl = other.imageUrl;
+        this.category = other.category;
+        this.quantity = other.quantity;
+        this.calories = other.calories;
+    }
+
     // Getters and Setters
+    // Stable key used by the cart index; defaults to the item name
+    public String getId() { return id != null ? id : name; }
+    public void setId(String id) { this.id = id; }
+
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
-    public double getPrice() { return price; }
-    public void setPrice(double price) { this.price = price; }
+    public double getPrice() { return Money.toMajor(priceMinor); }
+    public void setPrice(double price) { this.priceMinor = Money.toMinor(price); }
+
+    public long getPriceMinor() { return priceMinor; }
+    public void setPriceMinor(long priceMinor) { this.priceMinor = priceMinor; }
+
+    public Money getPriceMoney() { return Money.ofMinor(priceMinor); }
 
     public String getImageUrl() { return imageUrl; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
@@ -0,0 +1,133 @@
+package com.example.rest_app.model;
+
+import java.util.Currency;
+
+/**
+ * An exact amount of money, stored as a whole number of minor units (e.g. cents) plus an
+ * ISO currency code. Hot paths such as cart totals work on the raw minor units through the
+ * static helpers so that summing never allocates.
+ */
+public final class Money {
+    // Menu prices, carts and orders are all kept in the base currency
+    public static final String BASE_CURRENCY = "USD";
+    public static final Money ZERO = new Money(0, BASE_CURRENCY);
+    // Used when the code isn't an ISO currency, or has no minor unit defined (e.g. XAU)
+    private static final int DEFAULT_FRACTION_DIGITS = 2;
+    private static final int BASE_FRACTION_DIGITS = fractionDigits(BASE_CURRENCY);
+
+    private final long minorUnits;
+    private final String currencyCode;
+
+    private Money(long minorUnits, String currencyCode) {
+        this.minorUnits = minorUnits;
+        this.currencyCode = currencyCode;
+    }
+
+    public static Money ofMinor(long minorUnits, String currencyCode) {
+        return new Money(minorUnits, currencyCode);
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return new Money(minorUnits, BASE_CURRENCY);
+    }
+
+    public static Money ofMajor(double amount, String currencyCode) {
+        return new Money(toMinor(amount, fractionDigits(currencyCode)), currencyCode);
+    }
+
+    public long getMinorUnits() { return minorUnits; }
+
+    public String getCurrencyCode() { return currencyCode; }
+
+    public double toMajor() {
+        return toMajor(minorUnits, fractionDigits(currencyCode));
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(minorUnits + other.minorUnits, currencyCode);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(minorUnits - other.minorUnits, currencyCode);
+    }
+
+    public Money times(int quantity) {
+        return new Money(minorUnits * quantity, currencyCode);
+    }
+
+    // e.g. 800 basis points for 8% tax, rounded half up to the nearest minor unit
+    public Money percentage(int basisPoints) {
+        return new Money(percentage(minorUnits, basisPoints), currencyCode);
+    }
+
+    // Raw minor unit helpers
+
+    public static long toMinor(double amount) {
+        return toMinor(amount, BASE_FRACTION_DIGITS);
+    }
+
+    public static long toMinor(double amount, int fractionDigits) {
+        return Math.round(amount * pow10(fractionDigits));
+    }
+
+    public static double toMajor(long minorUnits) {
+        return toMajor(minorUnits, BASE_FRACTION_DIGITS);
+    }
+
+    public static double toMajor(long minorUnits, int fractionDigits) {
+        // Division (not multiplication by 0.01) gives the closest double to the decimal value
+        return minorUnits / (double) pow10(fractionDigits);
+    }
+
+    public static long percentage(long minorUnits, int basisPoints) {
+        long scaled = minorUnits * basisPoints;
+        return scaled >= 0 ? (scaled + 5000) / 10000 : -((-scaled + 5000) / 10000);
+    }
+
+    // ISO 4217 minor unit digits: 2 for USD, 0 for JPY, 3 for KWD
+    public static int fractionDigits(String currencyCode) {
+        if (currencyCode == null) {
+            return DEFAULT_FRACTION_DIGITS;
+        }
+        try {
+            int digits = Currency.getInstance(currencyCode).getDefaultFractionDigits();
+            return digits >= 0 ? digits : DEFAULT_FRACTION_DIGITS;
+        } catch (IllegalArgumentException e) {
+            return DEFAULT_FRACTION_DIGITS;
+        }
+    }
+
+    private static long pow10(int digits) {
+        long value = 1;
+        for (int i = 0; i < digits; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currencyCode.equals(other.currencyCode)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currencyCode + " vs " + other.currencyCode);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        Money other = (Money) o;
+        return minorUnits == other.minorUnits && currencyCode.equals(other.currencyCode);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + currencyCode.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return currencyCode + " " + toMajor();
+    }
+}
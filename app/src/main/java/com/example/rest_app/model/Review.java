@@ -1,6 +1,10 @@
 package com.example.rest_app.model;
 
+import com.example.rest_app.utils.IdGenerator;
+
 public class Review {
+    // Tells apart reviews that are otherwise the same, e.g. one posted twice
+    private String reviewId;
     private String reviewerName;
     private String reviewText;
     private float rating;
@@ -13,6 +17,7 @@ public class Review {
         this.rating = rating;
         this.date = date;
         this.userId = reviewerName.toLowerCase().replace(" ", "_");
+        this.reviewId = IdGenerator.newReviewId();
     }
 
     public Review(String reviewerName, String reviewText, float rating, String date, String userId) {
@@ -21,9 +26,13 @@ public class Review {
         this.rating = rating;
         this.date = date;
         this.userId = userId;
+        this.reviewId = IdGenerator.newReviewId();
     }
 
     // Getters and Setters
+    public String getReviewId() { return reviewId; }
+    public void setReviewId(String reviewId) { this.reviewId = reviewId; }
+
     public String getReviewerName() { return reviewerName; }
     public void setReviewerName(String reviewerName) { this.reviewerName = reviewerName; }
 
@@ -1,8 +1,14 @@
 package com.example.rest_app.ui.activities;
 
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentTransaction;
+import androidx.lifecycle.Lifecycle;
 import com.example.rest_app.R;
 import com.example.rest_app.databinding.ActivityMainBinding;
 import com.example.rest_app.ui.fragments.CartFragment;
@@ -10,11 +16,25 @@ import com.example.rest_app.ui.fragments.MenuFragment;
 import com.example.rest_app.ui.fragments.ReservationFragment;
 import com.example.rest_app.ui.fragments.ReviewsFragment;
 import com.example.rest_app.utils.CartManager;
+import com.example.rest_app.utils.CurrencyManager;
 import com.example.rest_app.utils.FirebaseAuthManager;
+import com.example.rest_app.utils.IdGenerator;
+import com.example.rest_app.utils.NetworkStats;
+import com.example.rest_app.utils.OrderOutbox;
 
 public class MainActivity extends AppCompatActivity {
+    private static final String TAG = "MainActivity";
+    private static final String STATE_SELECTED_TAB = "selected_tab";
 
     private ActivityMainBinding binding;
+    // Bottom navigation item of the tab on screen, 0 before the first one is shown
+    private int selectedTabId;
+
+    // Tab switch metrics
+    private int tabSwitches;
+    private long totalSwitchMs;
+    private long maxSwitchMs;
+    private long switchNetworkCalls;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -26,46 +46,136 @@ public class MainActivity extends AppCompatActivity {
         FirebaseAuthManager authManager = FirebaseAuthManager.getInstance(this);
         CartManager cartManager = CartManager.getInstance();
         cartManager.setAuthManager(authManager);
+        cartManager.attachContext(this);
+        // Restores the on-disk snapshot right away, then reconciles with Firestore
+        cartManager.loadCartFromFirestore();
+
+        IdGenerator.init(this);
+
+        // Serves the last known exchange rates until a fresh set arrives
+        CurrencyManager.getInstance().attachContext(this);
+
+        // Starts uploading any orders still waiting from a previous session
+        OrderOutbox.getInstance(this);
 
         setupBottomNavigation();
 
         // Load default fragment
         if (savedInstanceState == null) {
-            loadFragment(new MenuFragment());
+            selectTab(R.id.navigation_menu);
+        } else {
+            // The fragment manager brings the tabs back with their hidden state, only remember which one is shown
+            selectedTabId = savedInstanceState.getInt(STATE_SELECTED_TAB, R.id.navigation_menu);
         }
     }
 
     private void setupBottomNavigation() {
         binding.bottomNavigation.setOnItemSelectedListener(item -> {
-            Fragment selectedFragment = null;
-
-            int itemId = item.getItemId();
-            if (itemId == R.id.navigation_menu) {
-                selectedFragment = new MenuFragment();
-            } else if (itemId == R.id.navigation_reservation) {
-                selectedFragment = new ReservationFragment();
-            } else if (itemId == R.id.navigation_cart) {
-                selectedFragment = new CartFragment();
-            } else if (itemId == R.id.navigation_reviews) {
-                selectedFragment = new ReviewsFragment();
-            }
-
-            if (selectedFragment != null) {
-                loadFragment(selectedFragment);
-            }
+            selectTab(item.getItemId());
             return true;
         });
+        // Tapping the current tab again keeps it as it is
+        binding.bottomNavigation.setOnItemReselectedListener(item -> {
+        });
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putInt(STATE_SELECTED_TAB, selectedTabId);
     }
 
-    public void loadFragment(Fragment fragment) {
-        getSupportFragmentManager().beginTransaction()
+    @Override
+    protected void onResume() {
+        super.onResume();
+        OrderOutbox.getInstance(this).drain();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Don't leave coalesced cart changes sitting in memory while in the background
+        CartManager.getInstance().flushPendingWrites();
+    }
+
+    /**
+     * Shows the tab for a bottom navigation item. Each tab is created on its first visit and
+     * then kept: switching away hides it and caps it at STARTED, so its views, adapters and
+     * scroll position survive and coming back only runs onResume.
+     */
+    public void selectTab(int itemId) {
+        String tag = tagFor(itemId);
+        FragmentManager fragmentManager = getSupportFragmentManager();
+        if (tag == null || (itemId == selectedTabId && fragmentManager.findFragmentByTag(tag) != null)) {
+            return;
+        }
+
+        final long startedAt = SystemClock.uptimeMillis();
+        final long callsBefore = NetworkStats.getInstance().getTotal();
+
+        FragmentTransaction transaction = fragmentManager.beginTransaction()
+                .setReorderingAllowed(true)
                 .setCustomAnimations(
                         R.anim.fade_in,
                         R.anim.fade_out,
                         R.anim.fade_in,
                         R.anim.fade_out
-                )
-                .replace(R.id.fragment_container, fragment)
-                .commit();
+                );
+
+        Fragment current = selectedTabId != 0 ? fragmentManager.findFragmentByTag(tagFor(selectedTabId)) : null;
+        if (current != null) {
+            transaction.hide(current).setMaxLifecycle(current, Lifecycle.State.STARTED);
+        }
+
+        Fragment target = fragmentManager.findFragmentByTag(tag);
+        final boolean firstVisit = target == null;
+        if (firstVisit) {
+            target = createTab(itemId);
+            transaction.add(R.id.fragment_container, target, tag);
+        } else {
+            transaction.show(target);
+        }
+        transaction.setMaxLifecycle(target, Lifecycle.State.RESUMED);
+        // Not on the back stack, so it can run right away and the next frame shows the new tab
+        transaction.commitNow();
+        selectedTabId = itemId;
+
+        Choreographer.getInstance().postFrameCallback(frameTimeNanos ->
+                recordTabSwitch(tag, firstVisit, SystemClock.uptimeMillis() - startedAt,
+                        NetworkStats.getInstance().getTotal() - callsBefore));
+    }
+
+    private void recordTabSwitch(String tag, boolean firstVisit, long elapsedMs, long networkCalls) {
+        tabSwitches++;
+        totalSwitchMs += elapsedMs;
+        maxSwitchMs = Math.max(maxSwitchMs, elapsedMs);
+        switchNetworkCalls += networkCalls;
+        Log.d(TAG, "Switched to " + tag + (firstVisit ? " (created)" : "") + " in " + elapsedMs + "ms, "
+                + networkCalls + " network calls; average " + totalSwitchMs / tabSwitches + "ms, max "
+                + maxSwitchMs + "ms, " + switchNetworkCalls + " calls over " + tabSwitches + " switches");
+    }
+
+    private static String tagFor(int itemId) {
+        if (itemId == R.id.navigation_menu) {
+            return "tab_menu";
+        } else if (itemId == R.id.navigation_reservation) {
+            return "tab_reservation";
+        } else if (itemId == R.id.navigation_cart) {
+            return "tab_cart";
+        } else if (itemId == R.id.navigation_reviews) {
+            return "tab_reviews";
+        }
+        return null;
+    }
+
+    private static Fragment createTab(int itemId) {
+        if (itemId == R.id.navigation_reservation) {
+            return new ReservationFragment();
+        } else if (itemId == R.id.navigation_cart) {
+            return new CartFragment();
+        } else if (itemId == R.id.navigation_reviews) {
+            return new ReviewsFragment();
+        }
+        return new MenuFragment();
     }
 }
\ No newline at end of file
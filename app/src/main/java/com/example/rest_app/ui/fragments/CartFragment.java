@@ -16,11 +16,15 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.rest_app.R;
 import com.example.rest_app.model.FoodItem;
+import com.example.rest_app.model.Money;
 import com.example.rest_app.adapter.CartAdapter;
 import com.example.rest_app.utils.CartManager;
 import com.example.rest_app.utils.CurrencyManager; // NEW IMPORT
+import com.example.rest_app.utils.EventBus;
 import com.example.rest_app.utils.FirebaseAuthManager;
+import com.example.rest_app.utils.IdGenerator;
 import com.example.rest_app.utils.ImageLoader;
+import com.example.rest_app.utils.OrderOutbox;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
 import java.text.SimpleDateFormat;
@@ -31,8 +35,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
-// Implement CurrencyManager.CurrencyUpdateListener
-public class CartFragment extends Fragment implements CartManager.CartUpdateListener, CurrencyManager.CurrencyUpdateListener {
+// Subscribes to cart and currency events
+public class CartFragment extends Fragment implements EventBus.Subscriber {
+    // 8% sales tax
+    private static final int TAX_BASIS_POINTS = 800;
 
     private RecyclerView recyclerView;
     private CartAdapter adapter;
@@ -54,6 +60,7 @@ public class CartFragment extends Fragment implements CartManager.CartUpdateList
         setupFirebase();
         setupRecyclerView();
         setupCurrencyManager(); // NEW: Initialize Currency Manager
+        subscribeToEvents();
         loadCartItems();
         updateCartSummary();
         loadBackgroundImage();
@@ -82,23 +89,27 @@ public class CartFragment extends Fragment implements CartManager.CartUpdateList
         authManager = FirebaseAuthManager.getInstance(requireContext());
         cartManager = CartManager.getInstance();
         cartManager.setAuthManager(authManager);
-        cartManager.setCartUpdateListener(this);
     }
 
     private void setupCurrencyManager() { // NEW METHOD
         currencyManager = CurrencyManager.getInstance();
-        currencyManager.setCurrencyUpdateListener(this);
         // We only fetch here to ensure rates are loaded if user opens Cart first
         currencyManager.fetchExchangeRates();
     }
 
+    private void subscribeToEvents() {
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(this, EventBus.ItemAdded.class, EventBus.QuantityChanged.class,
+                EventBus.ItemRemoved.class, EventBus.CartReplaced.class, EventBus.RatesUpdated.class);
+    }
+
     private void setupRecyclerView() {
         LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
         recyclerView.setLayoutManager(layoutManager);
 
         cartItems = cartManager.getCartItems();
-        // Adapter calls updateCartSummary when quantity changes
-        adapter = new CartAdapter(getContext(), cartItems, this::updateCartSummary);
+        // Quantity changes reach updateCartSummary through EventBus
+        adapter = new CartAdapter(getContext(), cartItems);
         recyclerView.setAdapter(adapter);
     }
 
@@ -123,15 +134,14 @@ public class CartFragment extends Fragment implements CartManager.CartUpdateList
 
     public void updateCartSummary() {
         CurrencyManager cm = CurrencyManager.getInstance();
-        double subtotalInBase = cartManager.getTotalPrice();
-        double taxInBase = subtotalInBase * 0.08;
-        double totalInBase = subtotalInBase + taxInBase;
+        long subtotalMinor = cartManager.getTotalMinor();
+        long taxMinor = Money.percentage(subtotalMinor, TAX_BASIS_POINTS);
         int itemCount = cartManager.getCartItemCount();
 
         // NEW: Use CurrencyManager for formatting and conversion
-        textViewSubtotal.setText(cm.formatPrice(subtotalInBase));
-        textViewTax.setText(cm.formatPrice(taxInBase));
-        textViewTotal.setText(cm.formatPrice(totalInBase));
+        textViewSubtotal.setText(cm.formatMinor(subtotalMinor));
+        textViewTax.setText(cm.formatMinor(taxMinor));
+        textViewTotal.setText(cm.formatMinor(subtotalMinor + taxMinor));
         textViewItemCount.setText(String.format("%d %s", itemCount, itemCount == 1 ? "item" : "items"));
 
         updateCartVisibility();
@@ -154,7 +164,7 @@ public class CartFragment extends Fragment implements CartManager.CartUpdateList
         String userName = authManager.getCurrentUserName();
 
         // Create order data with user information
-        String orderId = "ORD_" + System.currentTimeMillis();
+        String orderId = IdGenerator.newOrderId();
         Map<String, Object> orderData = new HashMap<>();
         orderData.put("orderId", orderId);
         orderData.put("userId", userId);
@@ -162,26 +172,31 @@ public class CartFragment extends Fragment implements CartManager.CartUpdateList
         orderData.put("userName", userName != null ? userName : "");
         orderData.put("items", convertCartItemsToMap());
         // All values saved to Firestore MUST be in BASE CURRENCY (USD) for consistency
-        orderData.put("subtotal", cartManager.getTotalPrice());
-        orderData.put("tax", cartManager.getTotalPrice() * 0.08);
-        orderData.put("total", cartManager.getTotalPrice() * 1.08);
+        // Amounts are computed in exact minor units; the *Minor fields are authoritative for reconciliation
+        long subtotalMinor = cartManager.getTotalMinor();
+        long taxMinor = Money.percentage(subtotalMinor, TAX_BASIS_POINTS);
+        long totalMinor = subtotalMinor + taxMinor;
+        orderData.put("subtotal", Money.toMajor(subtotalMinor));
+        orderData.put("tax", Money.toMajor(taxMinor));
+        orderData.put("total", Money.toMajor(totalMinor));
+        orderData.put("subtotalMinor", subtotalMinor);
+        orderData.put("taxMinor", taxMinor);
+        orderData.put("totalMinor", totalMinor);
+        orderData.put("currency", Money.BASE_CURRENCY);
         orderData.put("currencyUsed", CurrencyManager.getInstance().getCurrentCurrencyCode()); // Record the display currency
         orderData.put("status", "confirmed");
         orderData.put("timestamp", System.currentTimeMillis());
         orderData.put("orderDate", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date()));
 
-        // Use set() instead of add() to ensure order is saved
-        authManager.getFirestore().collection("orders")
-                .document(orderId)
-                .set(orderData)
-                .addOnSuccessListener(aVoid -> {
-                    Toast.makeText(getContext(), "Order placed successfully! 🎉\nOrder ID: " + orderId, Toast.LENGTH_LONG).show();
-                    cartManager.clearCart();
-                    updateCartSummary();
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(getContext(), "Failed to place order: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                });
+        // Commit the order locally; OrderOutbox uploads it in the background and retries until it lands
+        if (!OrderOutbox.getInstance(requireContext()).enqueue(orderId, orderData)) {
+            Toast.makeText(getContext(), "Failed to place order, please try again", Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        Toast.makeText(getContext(), "Order placed successfully! 🎉\nOrder ID: " + orderId, Toast.LENGTH_LONG).show();
+        cartManager.clearCart();
+        updateCartSummary();
     }
 
     private List<Map<String, Object>> convertCartItemsToMap() {
@@ -190,6 +205,7 @@ public class CartFragment extends Fragment implements CartManager.CartUpdateList
             Map<String, Object> itemMap = new HashMap<>();
             itemMap.put("name", item.getName());
             itemMap.put("price", item.getPrice());
+            itemMap.put("priceMinor", item.getPriceMinor());
             itemMap.put("quantity", item.getQuantity());
             itemMap.put("imageUrl", item.getImageUrl());
             itemMap.put("description", item.getDescription());
@@ -218,21 +234,35 @@ public class CartFragment extends Fragment implements CartManager.CartUpdateList
     }
 
     @Override
-    public void onCartUpdated() {
-        // Called by CartManager when an item is added/removed/updated
-        updateCartSummary();
-        if (adapter != null) {
-            adapter.notifyDataSetChanged();
+    public void onEvents(List<EventBus.Event> events) {
+        // One call per frame, however many cart changes or rate updates happened in it
+        boolean cartChanged = false;
+        boolean ratesChanged = false;
+        for (EventBus.Event event : events) {
+            if (event instanceof EventBus.RatesUpdated) {
+                ratesChanged = true;
+            } else {
+                cartChanged = true;
+            }
+        }
+
+        if (cartChanged) {
+            cartItems.clear();
+            cartItems.addAll(cartManager.getCartItems());
+            // Diffed off the main thread; a quantity change rebinds just that row's quantity
+            adapter.submitList(cartItems);
+        }
+        if (ratesChanged) {
+            adapter.refreshPrices();
         }
+        updateCartSummary();
     }
 
     @Override
-    public void onRatesLoaded() { // NEW METHOD
-        // Called by CurrencyManager when currency changes or rates load
-        updateCartSummary();
-        if (adapter != null) {
-            adapter.notifyDataSetChanged();
-        }
+    public void onDestroyView() {
+        super.onDestroyView();
+        // Events must not reach a destroyed view
+        EventBus.getInstance().unsubscribe(this);
     }
 
     @Override
@@ -1,8 +1,9 @@
 package com.example.rest_app.ui.fragments;
 
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -26,21 +27,19 @@ import com.example.rest_app.adapter.MenuAdapter;
 import com.example.rest_app.ui.activities.SignInActivity;
 import com.example.rest_app.utils.CartManager;
 import com.example.rest_app.utils.CurrencyManager;
+import com.example.rest_app.utils.EventBus;
 import com.example.rest_app.utils.FirebaseAuthManager;
+import com.example.rest_app.utils.MenuRepository;
+import com.example.rest_app.utils.MenuSearchIndex;
+import com.example.rest_app.utils.QuoteProvider;
+import com.example.rest_app.utils.SearchPipeline;
+import com.example.rest_app.utils.TaskScheduler;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Arrays;
 
-// Implement CurrencyManager.CurrencyUpdateListener
-public class MenuFragment extends Fragment implements CurrencyManager.CurrencyUpdateListener {
+// Subscribes to cart and currency events
+public class MenuFragment extends Fragment implements EventBus.Subscriber {
 
     private RecyclerView recyclerView;
     private MenuAdapter adapter;
@@ -54,7 +53,9 @@ public class MenuFragment extends Fragment implements CurrencyManager.CurrencyUp
     private TextView textViewQuote, textViewAuthor;
     private Spinner spinnerCurrency;
     private CurrencyManager currencyManager;
-    private String[] currencies = {"USD", "EUR", "GBP", "INR", "JPY", "CAD"}; // Supported currencies
+    private MenuRepository menuRepository;
+    private final MenuSearchIndex searchIndex = new MenuSearchIndex();
+    private SearchPipeline<FoodItem> searchPipeline;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -64,18 +65,24 @@ public class MenuFragment extends Fragment implements CurrencyManager.CurrencyUp
         initializeViews(view);
         setupCurrencyManager(); // NEW: Initialize Currency Manager
         setupRecyclerView();
-        loadFoodItems();
         setupSearchView();
+        setupSearchPipeline();
+        setupPaging();
+        loadFoodItems();
         setupLogoutButton();
         setupCurrencySpinner(); // NEW: Setup the currency selector
         updateCartSummary();
 
-        // NEW: Fetch the quote when the fragment is created
-        fetchZenQuote();
-
         return view;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        // NEW: Fetch the quote when the fragment is created (tied to the view's lifecycle)
+        fetchZenQuote();
+    }
+
     private void initializeViews(View view) {
         recyclerView = view.findViewById(R.id.recyclerViewMenu);
         searchView = view.findViewById(R.id.searchView);
@@ -91,11 +98,16 @@ public class MenuFragment extends Fragment implements CurrencyManager.CurrencyUp
 
     private void setupCurrencyManager() {
         currencyManager = CurrencyManager.getInstance();
-        currencyManager.setCurrencyUpdateListener(this);
         currencyManager.fetchExchangeRates();
+        // The cart summary follows cart changes made anywhere, not just from this screen
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(this, EventBus.ItemAdded.class, EventBus.QuantityChanged.class,
+                EventBus.ItemRemoved.class, EventBus.CartReplaced.class, EventBus.RatesUpdated.class);
     }
 
     private void setupCurrencySpinner() {
+        // Supported currencies come from the same registry that formats prices
+        final List<String> currencies = currencyManager.getRegistry().codes();
         ArrayAdapter<String> adapter = new ArrayAdapter<>(
                 getContext(),
                 android.R.layout.simple_spinner_item,
@@ -105,15 +117,15 @@ public class MenuFragment extends Fragment implements CurrencyManager.CurrencyUp
         spinnerCurrency.setAdapter(adapter);
 
         // Set default selection based on manager's state
-        int defaultIndex = Arrays.asList(currencies).indexOf(currencyManager.getCurrentCurrencyCode());
+        int defaultIndex = currencies.indexOf(currencyManager.getCurrentCurrencyCode());
         spinnerCurrency.setSelection(defaultIndex != -1 ? defaultIndex : 0, false);
 
         spinnerCurrency.setOnItemSelectedListener(new android.widget.AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(android.widget.AdapterView<?> parent, View view, int position, long id) {
-                String newCurrency = currencies[position];
+                String newCurrency = currencies.get(position);
                 if (!newCurrency.equals(currencyManager.getCurrentCurrencyCode())) {
-                    // Update manager, which triggers onRatesLoaded() to refresh UI
+                    // Update manager, which posts RatesUpdated to refresh UI
                     currencyManager.setCurrentCurrencyCode(newCurrency);
                 }
             }
@@ -130,8 +142,8 @@ public class MenuFragment extends Fragment implements CurrencyManager.CurrencyUp
 
         foodItemList = new ArrayList<>();
         allFoodItems = new ArrayList<>();
-        // The adapter now uses the lambda expression to call updateCartSummary when an item is added
-        adapter = new MenuAdapter(getContext(), foodItemList, this::updateCartSummary);
+        // The cart summary is refreshed through EventBus when an item is added
+        adapter = new MenuAdapter(getContext(), foodItemList);
         recyclerView.setAdapter(adapter);
     }
 
@@ -143,6 +155,8 @@ public class MenuFragment extends Fragment implements CurrencyManager.CurrencyUp
             builder.setPositiveButton("Yes", (dialog, which) -> {
                 // Use Firebase Auth Manager for logout
                 FirebaseAuthManager authManager = FirebaseAuthManager.getInstance(getContext());
+                // Write any pending cart changes while the user is still signed in
+                CartManager.getInstance().flushPendingWrites();
                 authManager.signOut();
 
                 Toast.makeText(getContext(), "Logged out successfully", Toast.LENGTH_SHORT).show();
@@ -167,47 +181,53 @@ public class MenuFragment extends Fragment implements CurrencyManager.CurrencyUp
         searchView.setOnQueryTextListener(new androidx.appcompat.widget.SearchView.OnQueryTextListener() {
             @Override
             public boolean onQueryTextSubmit(String query) {
-                filterFoodItems(query);
+                filterFoodItems(query, true);
                 return true;
             }
 
             @Override
             public boolean onQueryTextChange(String newText) {
-                filterFoodItems(newText);
+                filterFoodItems(newText, false);
                 return true;
             }
         });
     }
 
-    private void filterFoodItems(String query) {
-        if (TextUtils.isEmpty(query)) {
+    private void filterFoodItems(String query, boolean immediate) {
+        if (TextUtils.isEmpty(query) || TextUtils.isEmpty(query.trim())) {
+            searchPipeline.cancel();
             adapter.updateList(allFoodItems);
             return;
         }
 
-        List<FoodItem> filteredList = new ArrayList<>();
-        String lowerCaseQuery = query.toLowerCase().trim();
-
-        for (FoodItem item : allFoodItems) {
-            if (item.getName().toLowerCase().contains(lowerCaseQuery) ||
-                    item.getDescription().toLowerCase().contains(lowerCaseQuery) ||
-                    item.getCategory().toLowerCase().contains(lowerCaseQuery)) {
-                filteredList.add(item);
-            }
+        // Matches name, category and description through the prebuilt index, off the main thread
+        if (immediate) {
+            searchPipeline.submitNow(query);
+        } else {
+            searchPipeline.onQueryChanged(query);
         }
+    }
 
-        adapter.updateList(filteredList);
+    private void setupSearchPipeline() {
+        searchPipeline = new SearchPipeline<>(
+                new Handler(Looper.getMainLooper()),
+                TaskScheduler.getInstance(),
+                TaskScheduler.Pool.CPU,
+                SearchPipeline.DEFAULT_DEBOUNCE_MS,
+                searchIndex::search,
+                (query, results) -> adapter.updateList(results)
+        );
     }
 
     public void updateCartSummary() {
         CurrencyManager cm = CurrencyManager.getInstance();
         int itemCount = CartManager.getInstance().getCartItemCount();
-        double totalInBase = CartManager.getInstance().getTotalPrice();
+        long totalMinor = CartManager.getInstance().getTotalMinor();
 
         if (itemCount > 0) {
             textViewCartCount.setText(itemCount + " items");
             // Use CurrencyManager for formatting
-            textViewCartTotal.setText(cm.formatPrice(totalInBase));
+            textViewCartTotal.setText(cm.formatMinor(totalMinor));
         } else {
             textViewCartCount.setText("0 items");
             // Use CurrencyManager for formatting of $0.00
@@ -216,168 +236,81 @@ public class MenuFragment extends Fragment implements CurrencyManager.CurrencyUp
     }
 
     @Override
-    public void onRatesLoaded() {
-        // Refresh the menu list and cart summary when rates are loaded or currency changes
-        adapter.notifyDataSetChanged();
+    public void onEvents(List<EventBus.Event> events) {
+        // One call per frame; a burst of cart changes updates the summary once
+        for (EventBus.Event event : events) {
+            if (event instanceof EventBus.RatesUpdated) {
+                // Refresh the prices when rates are loaded or currency changes
+                adapter.refreshPrices();
+                break;
+            }
+        }
         updateCartSummary();
     }
 
     // NEW: Methods for Zen Quote Implementation
 
     private void fetchZenQuote() {
-        // Execute the background task to fetch the quote
-        new FetchQuoteTask().execute("https://zenquotes.io/api/quotes/random");
+        // Comes from the local pool; only a refill touches the network, and that runs in the background
+        QuoteProvider.getInstance(requireContext()).nextQuote(getViewLifecycleOwner(), this::showQuote);
     }
 
-    private class FetchQuoteTask extends AsyncTask<String, Void, String[]> {
-
-        @Override
-        protected String[] doInBackground(String... urls) {
-            try {
-                URL url = new URL(urls[0]);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-
-                // Read the response
-                BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                reader.close();
-
-                // Parse the JSON (Zen Quotes API returns an array with one object)
-                JSONArray jsonArray = new JSONArray(response.toString());
-                if (jsonArray.length() > 0) {
-                    JSONObject quoteObject = jsonArray.getJSONObject(0);
-                    String quote = quoteObject.getString("q");
-                    String author = quoteObject.getString("a");
-                    return new String[]{quote, author};
-                }
+    private void showQuote(String[] result) {
+        if (result != null && result.length == 2) {
+            // Update UI with the fetched quote and author
+            textViewQuote.setText(String.format("“%s”", result[0]));
+            textViewAuthor.setText(String.format("— %s", result[1]));
+        } else {
+            // Fallback quote if the API call fails
+            textViewQuote.setText("“Food is the most primitive form of comfort.”");
+            textViewAuthor.setText("— Sheila Graham");
+        }
+    }
 
-            } catch (Exception e) {
-                // Handle exceptions (e.g., network error, JSON parsing error)
-                e.printStackTrace();
-            }
-            return null;
+    private void loadFoodItems() {
+        menuRepository = MenuRepository.getInstance(requireContext());
+        menuRepository.loadFirstPage(this::onMenuPage);
+    }
+
+    private void onMenuPage(List<FoodItem> items, int pageIndex, boolean hasMore) {
+        if (!isAdded() || adapter == null) {
+            return;
+        }
+        if (pageIndex == 0) {
+            allFoodItems.clear();
+            searchIndex.clear();
         }
+        allFoodItems.addAll(items);
+        searchIndex.addAll(items);
 
-        @Override
-        protected void onPostExecute(String[] result) {
-            if (result != null && result.length == 2) {
-                // Update UI with the fetched quote and author
-                textViewQuote.setText(String.format("“%s”", result[0]));
-                textViewAuthor.setText(String.format("— %s", result[1]));
-            } else {
-                // Fallback quote if the API call fails
-                textViewQuote.setText("“Food is the most primitive form of comfort.”");
-                textViewAuthor.setText("— Sheila Graham");
+        // Re-apply the current search so newly loaded pages respect it
+        String query = searchView != null ? searchView.getQuery().toString() : "";
+        filterFoodItems(query, true);
+    }
+
+    private void setupPaging() {
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                GridLayoutManager layoutManager = (GridLayoutManager) recyclerView.getLayoutManager();
+                if (dy <= 0 || layoutManager == null || menuRepository == null) {
+                    return;
+                }
+                // Fetch the next page when the user is within a few rows of the end
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= adapter.getItemCount() - 8 && menuRepository.hasMore()) {
+                    menuRepository.loadNextPage(MenuFragment.this::onMenuPage);
+                }
             }
-        }
+        });
     }
 
-    // Existing loadFoodItems method remains the same
-    private void loadFoodItems() {
-        allFoodItems.clear();
-        foodItemList.clear();
-
-        // 10 Delicious Food Items with Your Image URLs
-        allFoodItems.add(new FoodItem("Spicy Chicken Burger",
-                "Crispy fried chicken with spicy mayo, fresh lettuce, tomato, and pickles. Served with golden fries.",
-                12.99,
-                "https://images.unsplash.com/photo-1690650262031-b01b6e172374?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8OHx8U3BpY3klMjBDaGlja2VuJTIwQnVyZ2VyfGVufDB8fDB8fHww",
-                "Burgers",
-                560));
-
-        allFoodItems.add(new FoodItem("Classic Beef Burger",
-                "Juicy beef patty with melted cheese, crisp lettuce, ripe tomato, and our special sauce on a toasted bun.",
-                11.99,
-                "https://images.unsplash.com/photo-1645024679624-e8351ac98f01?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8MTF8fFNwaWN5JTIwQ2hpY2tlbiUyMEJ1cmdlcnxlbnwwfHwwfHx8MA%3D%3D",
-                "Burgers",
-                620));
-
-        allFoodItems.add(new FoodItem("Margherita Pizza",
-                "Classic Italian pizza with fresh tomato sauce, mozzarella, basil, and extra virgin olive oil.",
-                14.99,
-                "https://images.unsplash.com/photo-1564936281291-294551497d81?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8NHx8TWFyZ2hlcml0YSUyMFBpenphfGVufDB8fDB8fHww",
-                "Pizza",
-                850));
-
-        allFoodItems.add(new FoodItem("Pepperoni Supreme",
-                "Loaded with spicy pepperoni, mozzarella cheese, and our signature tomato sauce on thin crust.",
-                16.99,
-                "https://images.unsplash.com/photo-1595854341625-f33ee10dbf94?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8OHx8TWFyZ2hlcml0YSUyMFBpenphfGVufDB8fDB8fHww",
-                "Pizza",
-                920));
-
-        allFoodItems.add(new FoodItem("Creamy Alfredo Pasta",
-                "Fettuccine pasta tossed in rich, creamy Alfredo sauce with parmesan and fresh herbs.",
-                11.99,
-                "https://media.istockphoto.com/id/1501557025/photo/pasta.webp?a=1&s=612x612&w=0&k=20&c=lINOnT_giw8rfPqhQQ9KZkyL-23pUJmLOCZ5pcY0f-E=",
-                "Pasta",
-                720));
-
-        allFoodItems.add(new FoodItem("Spaghetti Bolognese",
-                "Traditional spaghetti with slow-cooked meat sauce, parmesan, and fresh basil.",
-                12.99,
-                "https://media.istockphoto.com/id/1357859588/photo/pasta-bolognese.webp?a=1&s=612x612&w=0&k=20&c=dZ2jzLixDHjl4S4lN1nR8NvoQUKDOqW1tAeubjQRtH0=",
-                "Pasta",
-                680));
-
-        allFoodItems.add(new FoodItem("California Sushi Roll",
-                "Fresh avocado, crab meat, cucumber wrapped in sushi rice and nori. Served with soy sauce.",
-                8.99,
-                "https://media.istockphoto.com/id/1139967411/photo/sushi-rolls-different-taste-rainbow-color-serving-food-background-top-view.webp?a=1&s=612x612&w=0&k=20&c=JTiYeUfIJo8IkECQimtGO1iCYzgmeWSshvuoM_34-9o=",
-                "Asian",
-                320));
-
-        allFoodItems.add(new FoodItem("Grilled Salmon Steak",
-                "Atlantic salmon grilled to perfection with lemon butter sauce and seasonal vegetables.",
-                22.99,
-                "https://media.istockphoto.com/id/2154123683/photo/fresh-cooked-delicious-salmon-steak-with-spices-and-herbs.webp?a=1&s=612x612&w=0&k=20&c=-Rc0TQl1gDrBp-0XO1Q3swT8KnhXitTSaJ5LgjHCXRA=",
-                "Seafood",
-                480));
-
-        allFoodItems.add(new FoodItem("Chocolate Lava Cake",
-                "Warm chocolate cake with molten center, served with vanilla ice cream and berry compote.",
-                7.99,
-                "https://images.unsplash.com/photo-1673551490812-eaee2e9bf0ef?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8Mnx8Q2hvY29sYXRlJTIwTGF2YSUyMENha2V8ZW58MHx8MHx8fDA%3D",
-                "Desserts",
-                420));
-
-        allFoodItems.add(new FoodItem("Fresh Berry Smoothie",
-                "Mixed berries blended with yogurt and honey. Refreshing and packed with antioxidants.",
-                5.99,
-                "https://media.istockphoto.com/id/970519622/photo/yogurt-and-strawberry-smoothie-in-jar-on-wooden-table.webp?a=1&s=612x612&w=0&k=20&c=EiRyDpiD4x_vaP044o-DtmXfhAMo3ni-gKBhkgE1t1U=",
-                "Drinks",
-                180));
-
-        // Bonus Items (You can add more if needed)
-        allFoodItems.add(new FoodItem("BBQ Chicken Wings",
-                "Crispy chicken wings glazed with homemade BBQ sauce. Served with ranch dip and celery sticks.",
-                9.99,
-                "https://media.istockphoto.com/id/1312295903/photo/glazed-bbq-chicken-wings-cooked-on-the-grill-closeup.webp?a=1&s=612x612&w=0&k=20&c=po1ulv8AcSLH-9KLyaA6p6JfjqPaYlw8WzLlt_stXOU=",
-                "Appetizers",
-                380));
-
-        allFoodItems.add(new FoodItem("Beef Tacos",
-                "Three soft tortillas filled with seasoned beef, lettuce, cheese, and fresh salsa.",
-                10.99,
-                "https://images.unsplash.com/photo-1687881063470-a78e6ea2590e?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8NHx8QmVlZiUyMFRhY29zfGVufDB8fDB8fHww",
-                "Mexican",
-                450));
-
-        allFoodItems.add(new FoodItem("Gourmet Salad Bowl",
-                "Mixed greens with cherry tomatoes, cucumber, olives, feta cheese, and balsamic dressing.",
-                8.99,
-                "https://images.unsplash.com/photo-1676300186659-030de568e39a?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8M3x8R291cm1ldCUyMFNhbGFkJTIwQm93bHxlbnwwfHwwfHx8MA%3D%3D",
-                "Salads",
-                280));
-
-        // Add all items to display list
-        foodItemList.addAll(allFoodItems);
-        adapter.notifyDataSetChanged();
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // Results must not be delivered to a destroyed view
+        searchPipeline.cancel();
+        EventBus.getInstance().unsubscribe(this);
     }
 
     @Override
@@ -3,6 +3,7 @@ package com.example.rest_app.ui.fragments;
 import android.app.DatePickerDialog;
 import android.app.TimePickerDialog;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -14,6 +15,8 @@ import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -21,18 +24,22 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.rest_app.R;
 import com.example.rest_app.adapter.BookingAdapter;
 import com.example.rest_app.model.Booking;
+import com.example.rest_app.utils.BookingFeed;
+import com.example.rest_app.utils.BookingPager;
+import com.example.rest_app.utils.BookingTimes;
 import com.example.rest_app.utils.FirebaseAuthManager;
+import com.example.rest_app.utils.IdGenerator;
 import com.example.rest_app.utils.ImageLoader;
+import com.example.rest_app.utils.ReservationService;
 import com.google.android.material.textfield.TextInputLayout;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class ReservationFragment extends Fragment {
+    private static final String TAG = "ReservationFragment";
 
     private EditText editTextName, editTextPhone, editTextDate, editTextTime;
     private Spinner spinnerGuests;
@@ -41,10 +48,14 @@ public class ReservationFragment extends Fragment {
 
     private RecyclerView recyclerViewBookings;
     private BookingAdapter bookingAdapter;
-    private List<Booking> bookingList;
     private TextView textViewNoBookings;
     private ImageView backgroundImage;
     private FirebaseAuthManager authManager;
+    private BookingFeed bookingFeed;
+    private BookingPager bookingPager;
+    private ReservationService reservationService;
+    // Feed reads already reported, so each resume logs only what it added
+    private long readsAtLastResume;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -57,11 +68,17 @@ public class ReservationFragment extends Fragment {
         setupRecyclerView();
         setupClickListeners();
         loadBackgroundImage();
-        loadBookingsFromFirestore();
 
         return view;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        // Listens for as long as the view exists; hiding the tab or resuming doesn't re-query
+        listenForBookings();
+    }
+
     private void initializeViews(View view) {
         editTextName = view.findViewById(R.id.editTextName);
         editTextPhone = view.findViewById(R.id.editTextPhone);
@@ -75,12 +92,11 @@ public class ReservationFragment extends Fragment {
 
         recyclerViewBookings = view.findViewById(R.id.recyclerViewBookings);
         textViewNoBookings = view.findViewById(R.id.textViewNoBookings);
-
-        bookingList = new ArrayList<>();
     }
 
     private void setupFirebase() {
         authManager = FirebaseAuthManager.getInstance(requireContext());
+        reservationService = new ReservationService(authManager.getFirestore());
 
         // Pre-fill name if user is logged in
         if (authManager.isUserLoggedIn() && authManager.getCurrentUserName() != null) {
@@ -92,13 +108,24 @@ public class ReservationFragment extends Fragment {
         LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
         recyclerViewBookings.setLayoutManager(layoutManager);
 
-        bookingAdapter = new BookingAdapter(getContext(), bookingList, new BookingAdapter.BookingActionListener() {
+        // Newest page live from the feed, older ones paged in behind it as the list scrolls
+        bookingPager = new BookingPager(BookingPager.firestoreSource(authManager.getFirestore()),
+                authManager.getCurrentUserId());
+        bookingAdapter = new BookingAdapter(getContext(), bookingPager, new BookingAdapter.BookingActionListener() {
             @Override
             public void onDeleteBooking(Booking booking) {
                 showDeleteConfirmationDialog(booking);
             }
         });
         recyclerViewBookings.setAdapter(bookingAdapter);
+        recyclerViewBookings.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // Prefetches near the end and drops pages that scrolled far out of view
+                bookingPager.onVisibleRange(layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition());
+            }
+        });
         updateNoBookingsVisibility();
     }
 
@@ -161,91 +188,81 @@ public class ReservationFragment extends Fragment {
         String phone = editTextPhone.getText().toString().trim();
         String date = editTextDate.getText().toString().trim();
         String time = editTextTime.getText().toString().trim();
-        String guests = spinnerGuests.getSelectedItem().toString();
+        int guests = BookingTimes.parseGuests(spinnerGuests.getSelectedItem().toString());
 
         if (validateInputs(name, phone, date, time)) {
-            saveBookingToFirestore(name, phone, date, time, guests);
+            // The fields hold what the pickers wrote, so this only fails if they were never set
+            saveBookingToFirestore(name, phone, BookingTimes.parse(date, time), guests);
         }
     }
 
-    private void saveBookingToFirestore(String name, String phone, String date, String time, String guests) {
+    private void saveBookingToFirestore(String name, String phone, long reservationAt, int guests) {
         String userId = authManager.getCurrentUserId();
         if (userId == null) {
             Toast.makeText(getContext(), "Please log in to book a table", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        String bookingId = "BK_" + System.currentTimeMillis();
+        String bookingId = IdGenerator.newBookingId();
 
         Map<String, Object> bookingData = new HashMap<>();
         bookingData.put("bookingId", bookingId);
         bookingData.put("userId", userId);
         bookingData.put("name", name);
         bookingData.put("phone", phone);
-        bookingData.put("date", date);
-        bookingData.put("time", time);
-        bookingData.put("guests", guests);
+        // Typed so bookings can be range-queried and sorted by when they are for
+        bookingData.put("reservationAt", reservationAt);
+        bookingData.put("partySize", guests);
         bookingData.put("status", "Confirmed");
         bookingData.put("timestamp", System.currentTimeMillis());
         bookingData.put("userEmail", authManager.getCurrentUserEmail());
 
-        // Use set() instead of add() to ensure booking is saved
-        authManager.getFirestore().collection("bookings")
-                .document(bookingId)
-                .set(bookingData)
-                .addOnSuccessListener(aVoid -> {
-                    Booking newBooking = new Booking(name, phone, date, time, guests);
-                    newBooking.setBookingId(bookingId);
-                    newBooking.setStatus("Confirmed");
-
-                    bookingList.add(0, newBooking);
-                    bookingAdapter.notifyItemInserted(0);
-                    recyclerViewBookings.smoothScrollToPosition(0);
-
-                    updateNoBookingsVisibility();
-                    Toast.makeText(getContext(), "Table booked successfully! ✅", Toast.LENGTH_LONG).show();
-                    clearForm();
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(getContext(), "Failed to book table: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                });
+        // Takes a table and saves the booking in one transaction, so concurrent bookings can't oversell a slot
+        buttonBookTable.setEnabled(false);
+        reservationService.book(bookingId, bookingData, reservationAt, guests, new ReservationService.BookingCallback() {
+            @Override
+            public void onBooked(int table) {
+                buttonBookTable.setEnabled(true);
+                // The listener adds the booking to the list once the transaction has committed
+                recyclerViewBookings.smoothScrollToPosition(0);
+                Toast.makeText(getContext(), "Table booked successfully! ✅", Toast.LENGTH_LONG).show();
+                clearForm();
+            }
+
+            @Override
+            public void onUnavailable(String reason) {
+                buttonBookTable.setEnabled(true);
+                Toast.makeText(getContext(), reason, Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                buttonBookTable.setEnabled(true);
+                Toast.makeText(getContext(), "Failed to book table: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
-    private void loadBookingsFromFirestore() {
+    private void listenForBookings() {
         String userId = authManager.getCurrentUserId();
         if (userId == null) {
             textViewNoBookings.setText("Please log in to see your bookings");
             return;
         }
 
-        authManager.getFirestore().collection("bookings")
-                .whereEqualTo("userId", userId)
-                .orderBy("timestamp", com.google.firebase.firestore.Query.Direction.DESCENDING)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    bookingList.clear();
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        try {
-                            Booking booking = new Booking(
-                                    document.getString("name"),
-                                    document.getString("phone"),
-                                    document.getString("date"),
-                                    document.getString("time"),
-                                    document.getString("guests")
-                            );
-                            booking.setBookingId(document.getString("bookingId"));
-                            booking.setStatus(document.getString("status"));
-                            bookingList.add(booking);
-                        } catch (Exception e) {
-                            Toast.makeText(getContext(), "Error loading booking: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                        }
-                    }
-                    bookingAdapter.notifyDataSetChanged();
-                    updateNoBookingsVisibility();
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(getContext(), "Failed to load bookings: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
+        bookingFeed = new BookingFeed(authManager.getFirestore());
+        bookingFeed.start(getViewLifecycleOwner(), userId, BookingPager.PAGE_SIZE, new BookingFeed.Listener() {
+            @Override
+            public void onChanges(List<BookingFeed.Change> changes, boolean fromCache) {
+                bookingPager.applyLiveChanges(changes);
+                updateNoBookingsVisibility();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(getContext(), "Failed to load bookings: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private boolean validateInputs(String name, String phone, String date, String time) {
@@ -290,7 +307,7 @@ public class ReservationFragment extends Fragment {
     }
 
     private void updateNoBookingsVisibility() {
-        if (bookingList.isEmpty()) {
+        if (bookingAdapter.getItemCount() == 0) {
             textViewNoBookings.setVisibility(View.VISIBLE);
             recyclerViewBookings.setVisibility(View.GONE);
         } else {
@@ -311,26 +328,42 @@ public class ReservationFragment extends Fragment {
     }
 
     private void deleteBookingFromFirestore(Booking booking) {
-        authManager.getFirestore().collection("bookings")
-                .document(booking.getBookingId())
-                .delete()
-                .addOnSuccessListener(aVoid -> {
-                    int position = bookingList.indexOf(booking);
-                    if (position != -1) {
-                        bookingList.remove(position);
-                        bookingAdapter.notifyItemRemoved(position);
-                        updateNoBookingsVisibility();
-                        Toast.makeText(getContext(), "Booking cancelled successfully", Toast.LENGTH_SHORT).show();
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(getContext(), "Failed to cancel booking: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
+        // Frees the table in the same transaction that deletes the booking
+        reservationService.cancel(booking.getBookingId(), new ReservationService.CancelCallback() {
+            @Override
+            public void onCancelled() {
+                // Rows in the live page are removed by the listener; older ones are dropped here
+                bookingPager.removeFromHistory(booking.getBookingId());
+                updateNoBookingsVisibility();
+                Toast.makeText(getContext(), "Booking cancelled successfully", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(getContext(), "Failed to cancel booking: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     @Override
     public void onResume() {
         super.onResume();
-        loadBookingsFromFirestore();
+        if (bookingFeed != null) {
+            long reads = bookingFeed.getEstimatedReads();
+            Log.d(TAG, "Resumed with bookings listed in " + bookingFeed.getTimeToFirstSnapshotMs() + "ms"
+                    + (bookingFeed.isFirstSnapshotFromCache() ? " (cache)" : "") + ", ~"
+                    + (reads - readsAtLastResume) + " reads since last resume, "
+                    + bookingPager.getLoadedItemCount() + " of " + bookingPager.size() + " bookings in memory");
+            readsAtLastResume = reads;
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // The feed stops itself with the view lifecycle
+        bookingFeed = null;
+        bookingPager.release();
+        readsAtLastResume = 0;
     }
 }
\ No newline at end of file
@@ -185,7 +185,7 @@ public class ReviewsFragment extends Fragment {
         reviewList.add(new Review("Sarah Smith", "Loved the atmosphere. The pasta was delicious and perfectly cooked. Will definitely come back!", 4.5f, "2024-01-14", "sarah_smith"));
         reviewList.add(new Review("Mike Johnson", "Good food but service was a bit slow during peak hours. The pizza was worth the wait though.", 3.5f, "2024-01-13", "mike_johnson"));
 
-        adapter.notifyDataSetChanged();
+        adapter.updateList(reviewList);
         updateEmptyState();
         updateReviewsCount(reviewList.size(), "All Reviews");
     }
@@ -279,11 +279,8 @@ public class ReviewsFragment extends Fragment {
         // Add to the beginning of the list so it shows at top
         reviewList.add(0, newReview);
 
-        // Update the adapter
-        adapter.notifyItemInserted(0);
-
-        // Scroll to top to show the new review
-        recyclerView.smoothScrollToPosition(0);
+        // Update the adapter, then scroll to top to show the new review
+        adapter.updateList(reviewList, () -> recyclerView.smoothScrollToPosition(0));
 
         // Update UI states
         updateEmptyState();
@@ -309,7 +306,7 @@ public class ReviewsFragment extends Fragment {
         int position = reviewList.indexOf(review);
         if (position != -1) {
             reviewList.remove(position);
-            adapter.notifyItemRemoved(position);
+            adapter.updateList(reviewList);
             updateEmptyState();
             updateReviewsCount(reviewList.size(), "All Reviews");
 
@@ -0,0 +1,130 @@
+package com.example.rest_app.utils;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A small text file that is always replaced as a whole. Content goes to a temp file that is
+ * synced to disk and then renamed over the original, so after a crash or power loss the file
+ * holds either the old or the new content, never part of one.
+ * Background writes of every AtomicTextFile share one disk thread, so they happen in order.
+ */
+public final class AtomicTextFile {
+    private static final String TAG = "AtomicTextFile";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ExecutorService DISK_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "app-disk");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File file;
+    // Latest content passed to writeAsync that isn't on disk yet, guarded by this
+    private String pendingContent;
+    private boolean pendingDelete;
+    private boolean writeScheduled;
+
+    public AtomicTextFile(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // Runs work on the disk thread, after any background write queued before it
+    public static void runOnDiskThread(Runnable work) {
+        DISK_EXECUTOR.execute(work);
+    }
+
+    // The whole file, or null if there is none
+    public String read() throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[(int) file.length()];
+            int offset = 0;
+            int read;
+            while (offset < buffer.length && (read = in.read(buffer, offset, buffer.length - offset)) != -1) {
+                offset += read;
+            }
+            return new String(buffer, 0, offset, UTF_8);
+        }
+    }
+
+    // Replaces the file on the calling thread
+    public void write(String content) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(content.getBytes(UTF_8));
+            // Without this the rename can reach the disk before the data does
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not replace " + file.getName());
+        }
+    }
+
+    /**
+     * Replaces the file on the disk thread. If several writes queue up before it gets to
+     * them, only the latest content is written.
+     */
+    public void writeAsync(String content) {
+        synchronized (this) {
+            pendingContent = content;
+            pendingDelete = false;
+        }
+        scheduleWrite();
+    }
+
+    public void deleteAsync() {
+        synchronized (this) {
+            pendingContent = null;
+            pendingDelete = true;
+        }
+        scheduleWrite();
+    }
+
+    private void scheduleWrite() {
+        synchronized (this) {
+            if (writeScheduled) {
+                return;
+            }
+            writeScheduled = true;
+        }
+        DISK_EXECUTOR.execute(this::writePending);
+    }
+
+    private void writePending() {
+        String content;
+        boolean delete;
+        synchronized (this) {
+            content = pendingContent;
+            delete = pendingDelete;
+            pendingContent = null;
+            pendingDelete = false;
+            writeScheduled = false;
+        }
+        if (delete) {
+            if (file.exists() && !file.delete()) {
+                Log.e(TAG, "Could not delete " + file.getName());
+            }
+        } else if (content != null) {
+            try {
+                write(content);
+            } catch (IOException e) {
+                Log.e(TAG, "Error writing " + file.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+}
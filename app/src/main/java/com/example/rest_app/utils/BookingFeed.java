@@ -0,0 +1,222 @@
+package com.example.rest_app.utils;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.rest_app.model.Booking;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Live list of the signed-in user's bookings, newest first. Instead of re-running the query,
+ * it listens to it and hands out Firestore's document changes, which can be applied one by one
+ * to a list (and a RecyclerView) in order. The listener lives as long as the given lifecycle.
+ */
+public class BookingFeed {
+    private static final String TAG = "BookingFeed";
+
+    // One document change, with Firestore's positions: oldIndex is -1 for ADDED, newIndex is -1 for REMOVED
+    public static class Change {
+        public final DocumentChange.Type type;
+        public final int oldIndex;
+        public final int newIndex;
+        public final Booking booking;
+
+        Change(DocumentChange.Type type, int oldIndex, int newIndex, Booking booking) {
+            this.type = type;
+            this.oldIndex = oldIndex;
+            this.newIndex = newIndex;
+            this.booking = booking;
+        }
+    }
+
+    public interface Listener {
+        // Main thread; apply the changes in order. fromCache is true until the server has answered
+        void onChanges(List<Change> changes, boolean fromCache);
+
+        void onError(Exception e);
+    }
+
+    private final FirebaseFirestore firestore;
+    private ListenerRegistration registration;
+
+    // Metrics
+    private long startedAt;
+    private long timeToFirstSnapshotMs = -1;
+    private long timeToServerSnapshotMs = -1;
+    private boolean firstSnapshotFromCache;
+    private boolean serverAnswered;
+    private int snapshots;
+    private long estimatedReads;
+
+    public BookingFeed(FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    /**
+     * Starts listening to the user's newest bookings, at most limit of them, until the owner is destroyed. Fragments should
+     * pass getViewLifecycleOwner(). Cached results, if any, arrive first. Must be called on the main thread.
+     */
+    public void start(LifecycleOwner owner, String userId, int limit, Listener listener) {
+        stop();
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+
+        startedAt = SystemClock.uptimeMillis();
+        timeToFirstSnapshotMs = -1;
+        timeToServerSnapshotMs = -1;
+        serverAnswered = false;
+        NetworkStats.getInstance().record("bookings");
+
+        Query query = bookingsQuery(firestore, userId).limit(limit);
+        // Metadata changes are included so the switch from cached to server data is seen even when nothing changed
+        registration = query.addSnapshotListener(MetadataChanges.INCLUDE, (snapshot, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Bookings listener failed: " + error.getMessage());
+                listener.onError(error);
+                return;
+            }
+            if (snapshot == null) {
+                return;
+            }
+            List<Change> changes = toChanges(snapshot);
+            boolean fromCache = snapshot.getMetadata().isFromCache();
+            recordSnapshot(snapshot, changes.size(), fromCache);
+            if (!changes.isEmpty() || snapshots == 1) {
+                listener.onChanges(changes, fromCache);
+            }
+        });
+
+        lifecycle.addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    stop();
+                    source.getLifecycle().removeObserver(this);
+                }
+            }
+        });
+    }
+
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        snapshots = 0;
+    }
+
+    // Time from start() until the list could first be shown, or -1
+    public long getTimeToFirstSnapshotMs() {
+        return timeToFirstSnapshotMs;
+    }
+
+    // Time from start() until the server confirmed the list, or -1
+    public long getTimeToServerSnapshotMs() {
+        return timeToServerSnapshotMs;
+    }
+
+    public boolean isFirstSnapshotFromCache() {
+        return firstSnapshotFromCache;
+    }
+
+    /**
+     * Document reads this feed has likely been billed for: the full result when the server first
+     * answers, then at most one per changed document. Cached and locally written snapshots are free.
+     */
+    public long getEstimatedReads() {
+        return estimatedReads;
+    }
+
+    // A user's bookings in list order: newest first, ties broken by id so cursors are exact
+    public static Query bookingsQuery(FirebaseFirestore firestore, String userId) {
+        return firestore.collection("bookings")
+                .whereEqualTo("userId", userId)
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .orderBy("bookingId", Query.Direction.DESCENDING);
+    }
+
+    // A user's bookings that haven't started yet, soonest first (index: userId, reservationAt)
+    public static Query upcomingQuery(FirebaseFirestore firestore, String userId, long now) {
+        return firestore.collection("bookings")
+                .whereEqualTo("userId", userId)
+                .whereGreaterThanOrEqualTo("reservationAt", now)
+                .orderBy("reservationAt", Query.Direction.ASCENDING);
+    }
+
+    // Everyone's confirmed bookings on the day of the given instant, by time (index: status, reservationAt)
+    public static Query dayQuery(FirebaseFirestore firestore, long instant) {
+        return firestore.collection("bookings")
+                .whereEqualTo("status", "Confirmed")
+                .whereGreaterThanOrEqualTo("reservationAt", BookingTimes.startOfDay(instant))
+                .whereLessThan("reservationAt", BookingTimes.startOfNextDay(instant))
+                .orderBy("reservationAt", Query.Direction.ASCENDING);
+    }
+
+    public static Booking toBooking(DocumentSnapshot document) {
+        // Default constructor, so no fresh booking id is generated just to be overwritten
+        Booking booking = new Booking();
+        booking.setName(document.getString("name"));
+        booking.setPhone(document.getString("phone"));
+        Long reservationAt = document.getLong("reservationAt");
+        Long partySize = document.getLong("partySize");
+        // Bookings saved before the typed fields only have the form's strings
+        booking.setReservationAt(reservationAt != null ? reservationAt
+                : BookingTimes.parse(document.getString("date"), document.getString("time")));
+        booking.setPartySize(partySize != null ? partySize.intValue()
+                : BookingTimes.parseGuests(document.getString("guests")));
+        String bookingId = document.getString("bookingId");
+        booking.setBookingId(bookingId != null ? bookingId : document.getId());
+        booking.setStatus(document.getString("status"));
+        Long timestamp = document.getLong("timestamp");
+        booking.setTimestamp(timestamp != null ? timestamp : 0);
+        return booking;
+    }
+
+    private static List<Change> toChanges(QuerySnapshot snapshot) {
+        List<DocumentChange> documentChanges = snapshot.getDocumentChanges();
+        List<Change> changes = new ArrayList<>(documentChanges.size());
+        for (DocumentChange change : documentChanges) {
+            changes.add(new Change(change.getType(), change.getOldIndex(), change.getNewIndex(),
+                    toBooking(change.getDocument())));
+        }
+        return changes;
+    }
+
+    private void recordSnapshot(QuerySnapshot snapshot, int changeCount, boolean fromCache) {
+        snapshots++;
+        long elapsed = SystemClock.uptimeMillis() - startedAt;
+        if (snapshots == 1) {
+            timeToFirstSnapshotMs = elapsed;
+            firstSnapshotFromCache = fromCache;
+        }
+        if (fromCache || snapshot.getMetadata().hasPendingWrites()) {
+            return;
+        }
+        if (!serverAnswered) {
+            serverAnswered = true;
+            timeToServerSnapshotMs = elapsed;
+            // A query is billed at least one read even when it matches nothing
+            estimatedReads += Math.max(1, snapshot.size());
+            Log.d(TAG, "Bookings listed after " + timeToFirstSnapshotMs + "ms"
+                    + (firstSnapshotFromCache ? " from cache" : "") + ", confirmed by server after "
+                    + elapsed + "ms, " + snapshot.size() + " bookings");
+        } else {
+            estimatedReads += changeCount;
+        }
+    }
+}
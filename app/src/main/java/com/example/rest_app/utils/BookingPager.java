@@ -0,0 +1,511 @@
+package com.example.rest_app.utils;
+
+import android.util.Log;
+
+import com.example.rest_app.model.Booking;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A user's booking list, newest first, without ever holding all of it. The first page is the
+ * live window kept current by BookingFeed; older bookings are fetched page by page behind it
+ * with value cursors, and pages far from what is on screen are dropped from memory and fetched
+ * again if the user scrolls back. Positions stay stable throughout: a dropped page keeps its
+ * size, and its rows read as null until it is back.
+ */
+public class BookingPager {
+    private static final String TAG = "BookingPager";
+    public static final int PAGE_SIZE = 20;
+    // Fetch the next page when the last visible row is this close to the end
+    private static final int PREFETCH_DISTANCE = 5;
+    // Pages this many pages away from the visible ones stay in memory, anything further is dropped
+    private static final int KEEP_PAGES_AROUND = 2;
+    // Payload for rebinding just the status badge
+    public static final String PAYLOAD_STATUS = "status";
+
+    // Position just after a booking in list order (timestamp, then id, both descending)
+    public static class Cursor {
+        public final long timestamp;
+        public final String bookingId;
+
+        public Cursor(long timestamp, String bookingId) {
+            this.timestamp = timestamp;
+            this.bookingId = bookingId;
+        }
+
+        static Cursor after(Booking booking) {
+            return new Cursor(booking.getTimestamp(), booking.getBookingId());
+        }
+    }
+
+    // Where older pages come from; the Firestore one is used in the app
+    public interface PageSource {
+        // Bookings after the cursor (null for the very first page) up to and including endAt, if set
+        void fetchPage(String userId, Cursor after, Cursor endAt, int limit, PageCallback callback);
+    }
+
+    public interface PageCallback {
+        void onResult(List<Booking> bookings);
+
+        void onError(Exception e);
+    }
+
+    // Positional notifications for the adapter, on the main thread
+    public interface Listener {
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+
+        void onChanged(int position, int count, Object payload);
+
+        void onMoved(int fromPosition, int toPosition);
+    }
+
+    private static class Page {
+        // Cursors survive eviction, so the page can be fetched again as it was
+        Cursor after;
+        Cursor end;
+        int size;
+        // null while evicted
+        List<Booking> items;
+        boolean loading;
+    }
+
+    private final PageSource source;
+    private final String userId;
+    private Listener listener;
+    private boolean released;
+
+    // Main thread only
+    private final List<Booking> head = new ArrayList<>();
+    private final List<Page> history = new ArrayList<>();
+    private boolean headLoaded;
+    private boolean appending;
+    private boolean endReached;
+
+    // Metrics
+    private int pagesFetched;
+    private int pagesEvicted;
+    private int maxLoadedItems;
+
+    public BookingPager(PageSource source, String userId) {
+        this.source = source;
+        this.userId = userId;
+    }
+
+    public static PageSource firestoreSource(FirebaseFirestore firestore) {
+        return new FirestoreSource(firestore);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Stops delivering results, call when the view goes away
+    public void release() {
+        released = true;
+        listener = null;
+    }
+
+    public int size() {
+        int size = head.size();
+        for (Page page : history) {
+            size += page.size;
+        }
+        return size;
+    }
+
+    // The booking at a position, or null if its page is not in memory right now
+    public Booking get(int position) {
+        if (position < head.size()) {
+            return head.get(position);
+        }
+        int offset = position - head.size();
+        for (Page page : history) {
+            if (offset < page.size) {
+                return page.items != null ? page.items.get(offset) : null;
+            }
+            offset -= page.size;
+        }
+        return null;
+    }
+
+    public boolean hasMore() {
+        return headLoaded && !endReached;
+    }
+
+    public int getLoadedItemCount() {
+        int loaded = head.size();
+        for (Page page : history) {
+            if (page.items != null) {
+                loaded += page.items.size();
+            }
+        }
+        return loaded;
+    }
+
+    public int getMaxLoadedItems() {
+        return maxLoadedItems;
+    }
+
+    public int getPagesFetched() {
+        return pagesFetched;
+    }
+
+    public int getPagesEvicted() {
+        return pagesEvicted;
+    }
+
+    /**
+     * Applies a batch from the live first page. Bookings pushed out of the window by a new one
+     * move to the front of the history, and ones pulled in after a cancellation leave it.
+     */
+    public void applyLiveChanges(List<BookingFeed.Change> changes) {
+        Booking oldTail = head.size() == PAGE_SIZE ? head.get(PAGE_SIZE - 1) : null;
+        List<Booking> leftWindow = new ArrayList<>();
+        for (BookingFeed.Change change : changes) {
+            switch (change.type) {
+                case ADDED:
+                    head.add(change.newIndex, change.booking);
+                    notifyInserted(change.newIndex, 1);
+                    break;
+                case REMOVED:
+                    leftWindow.add(head.remove(change.oldIndex));
+                    notifyRemoved(change.oldIndex, 1);
+                    break;
+                case MODIFIED:
+                    Booking old = head.get(change.oldIndex);
+                    if (change.oldIndex != change.newIndex) {
+                        head.remove(change.oldIndex);
+                        head.add(change.newIndex, change.booking);
+                        notifyMoved(change.oldIndex, change.newIndex);
+                    } else {
+                        head.set(change.newIndex, change.booking);
+                    }
+                    if (!sameDetails(old, change.booking)) {
+                        notifyChanged(change.newIndex, 1, null);
+                    } else if (!Objects.equals(old.getStatus(), change.booking.getStatus())) {
+                        notifyChanged(change.newIndex, 1, PAYLOAD_STATUS);
+                    }
+                    break;
+            }
+        }
+
+        if (!headLoaded) {
+            headLoaded = true;
+            endReached = head.size() < PAGE_SIZE;
+        } else if (head.size() < PAGE_SIZE) {
+            // Fewer bookings than a page in total; nothing can be behind the window
+            endReached = true;
+            clearHistory();
+        } else {
+            reconcileWindowEdge(oldTail, leftWindow);
+        }
+        updateMaxLoaded();
+    }
+
+    /**
+     * Call from the scroll listener with the visible range. Prefetches the next page near the
+     * end, brings back dropped pages that come into reach, and drops the ones out of reach.
+     */
+    public void onVisibleRange(int firstVisible, int lastVisible) {
+        if (released || firstVisible < 0) {
+            return;
+        }
+        if (lastVisible >= size() - PREFETCH_DISTANCE) {
+            loadMore();
+        }
+
+        int firstPage = historyPageAt(firstVisible);
+        int lastPage = historyPageAt(lastVisible);
+        int keepFrom = Math.max(0, (firstPage < 0 ? 0 : firstPage) - KEEP_PAGES_AROUND);
+        int keepTo = (lastPage < 0 ? -1 : lastPage) + KEEP_PAGES_AROUND;
+        for (int i = 0; i < history.size(); i++) {
+            Page page = history.get(i);
+            if (i >= keepFrom && i <= keepTo) {
+                if (page.items == null) {
+                    reload(i, page);
+                }
+            } else if (page.items != null) {
+                page.items = null;
+                pagesEvicted++;
+            }
+        }
+    }
+
+    // Drops a booking the user cancelled from the history; live ones are handled by the listener
+    public void removeFromHistory(String bookingId) {
+        int start = head.size();
+        for (int i = 0; i < history.size(); i++) {
+            Page page = history.get(i);
+            if (page.items != null) {
+                for (int j = 0; j < page.items.size(); j++) {
+                    if (page.items.get(j).getBookingId().equals(bookingId)) {
+                        page.items.remove(j);
+                        page.size--;
+                        if (page.size == 0) {
+                            history.remove(i);
+                        }
+                        notifyRemoved(start + j, 1);
+                        return;
+                    }
+                }
+            }
+            start += page.size;
+        }
+    }
+
+    private void loadMore() {
+        if (!hasMore() || appending || userId == null) {
+            return;
+        }
+        Cursor after = !history.isEmpty() ? history.get(history.size() - 1).end
+                : !head.isEmpty() ? Cursor.after(head.get(head.size() - 1)) : null;
+        appending = true;
+        pagesFetched++;
+        NetworkStats.getInstance().record("bookings");
+        source.fetchPage(userId, after, null, PAGE_SIZE, new PageCallback() {
+            @Override
+            public void onResult(List<Booking> bookings) {
+                appending = false;
+                if (released) {
+                    return;
+                }
+                if (bookings.size() < PAGE_SIZE) {
+                    endReached = true;
+                }
+                if (bookings.isEmpty()) {
+                    return;
+                }
+                Page page = new Page();
+                page.after = after;
+                page.end = Cursor.after(bookings.get(bookings.size() - 1));
+                page.size = bookings.size();
+                page.items = new ArrayList<>(bookings);
+                int position = size();
+                history.add(page);
+                notifyInserted(position, page.size);
+                updateMaxLoaded();
+                Log.d(TAG, "Loaded page " + history.size() + " (" + page.size + " bookings), "
+                        + getLoadedItemCount() + " of " + size() + " in memory");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                appending = false;
+                Log.e(TAG, "Error loading bookings: " + e.getMessage());
+            }
+        });
+    }
+
+    private void reload(int index, Page page) {
+        if (page.loading || userId == null) {
+            return;
+        }
+        page.loading = true;
+        pagesFetched++;
+        NetworkStats.getInstance().record("bookings");
+        // Bounded by the page's own end: if bookings in it were cancelled in the meantime, a plain
+        // limit would pull in the first rows of the next page, which is then showing them too.
+        // The limit leaves room for rows the live window pushed into the first page.
+        source.fetchPage(userId, page.after, page.end, page.size + PAGE_SIZE, new PageCallback() {
+            @Override
+            public void onResult(List<Booking> bookings) {
+                page.loading = false;
+                int current = history.indexOf(page);
+                if (released || current < 0) {
+                    return;
+                }
+                int start = startOf(current);
+                int oldSize = page.size;
+                page.items = new ArrayList<>(bookings);
+                page.size = bookings.size();
+                // Bookings cancelled elsewhere in the meantime make the page shorter
+                if (page.size < oldSize) {
+                    notifyRemoved(start + page.size, oldSize - page.size);
+                } else if (page.size > oldSize) {
+                    notifyInserted(start + oldSize, page.size - oldSize);
+                }
+                if (page.size > 0) {
+                    notifyChanged(start, page.size, null);
+                } else {
+                    history.remove(page);
+                }
+                updateMaxLoaded();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                page.loading = false;
+                Log.e(TAG, "Error reloading bookings: " + e.getMessage());
+            }
+        });
+    }
+
+    // Keeps the history starting right after the last booking of the live window
+    private void reconcileWindowEdge(Booking oldTail, List<Booking> leftWindow) {
+        Booking tail = head.get(head.size() - 1);
+
+        // Pulled into the window after a cancellation: they sort after the old tail
+        Set<String> pulled = new HashSet<>();
+        if (oldTail != null) {
+            for (Booking booking : head) {
+                if (compare(booking, oldTail) > 0) {
+                    pulled.add(booking.getBookingId());
+                }
+            }
+        }
+        // Pushed out of the window by a newer booking; cancelled ones sort before the new tail
+        List<Booking> pushed = new ArrayList<>();
+        for (Booking booking : leftWindow) {
+            if (compare(booking, tail) > 0) {
+                pushed.add(booking);
+            }
+        }
+        Collections.sort(pushed, BookingPager::compare);
+
+        if (history.isEmpty()) {
+            if (!pushed.isEmpty()) {
+                endReached = false; // They are fetched with the next page
+            }
+            return;
+        }
+
+        Page first = history.get(0);
+        first.after = Cursor.after(tail);
+        if (first.items == null) {
+            // Not in memory: only the size moves, the rows are fetched from the new cursor later
+            int delta = pushed.size() - pulled.size();
+            first.size += delta;
+            if (delta > 0) {
+                notifyInserted(head.size(), delta);
+            } else if (delta < 0) {
+                notifyRemoved(head.size(), -delta);
+            }
+        } else {
+            while (!first.items.isEmpty() && pulled.contains(first.items.get(0).getBookingId())) {
+                first.items.remove(0);
+                first.size--;
+                notifyRemoved(head.size(), 1);
+            }
+            for (int i = pushed.size() - 1; i >= 0; i--) {
+                first.items.add(0, pushed.get(i));
+                first.size++;
+                notifyInserted(head.size(), 1);
+            }
+        }
+
+        if (first.size <= 0) {
+            history.remove(0);
+        }
+    }
+
+    private void clearHistory() {
+        int count = size() - head.size();
+        history.clear();
+        if (count > 0) {
+            notifyRemoved(head.size(), count);
+        }
+    }
+
+    // Index of the history page holding a position, or -1 for the live window
+    private int historyPageAt(int position) {
+        int offset = position - head.size();
+        if (offset < 0) {
+            return -1;
+        }
+        for (int i = 0; i < history.size(); i++) {
+            if (offset < history.get(i).size) {
+                return i;
+            }
+            offset -= history.get(i).size;
+        }
+        return history.size() - 1;
+    }
+
+    private int startOf(int pageIndex) {
+        int start = head.size();
+        for (int i = 0; i < pageIndex; i++) {
+            start += history.get(i).size;
+        }
+        return start;
+    }
+
+    private void updateMaxLoaded() {
+        maxLoadedItems = Math.max(maxLoadedItems, getLoadedItemCount());
+    }
+
+    // List order: newest first, ties broken by id
+    static int compare(Booking a, Booking b) {
+        int byTime = Long.compare(b.getTimestamp(), a.getTimestamp());
+        return byTime != 0 ? byTime : b.getBookingId().compareTo(a.getBookingId());
+    }
+
+    private static boolean sameDetails(Booking oldItem, Booking newItem) {
+        return Objects.equals(oldItem.getName(), newItem.getName())
+                && Objects.equals(oldItem.getPhone(), newItem.getPhone())
+                && oldItem.getReservationAt() == newItem.getReservationAt()
+                && oldItem.getPartySize() == newItem.getPartySize();
+    }
+
+    private void notifyInserted(int position, int count) {
+        if (listener != null) {
+            listener.onInserted(position, count);
+        }
+    }
+
+    private void notifyRemoved(int position, int count) {
+        if (listener != null) {
+            listener.onRemoved(position, count);
+        }
+    }
+
+    private void notifyChanged(int position, int count, Object payload) {
+        if (listener != null) {
+            listener.onChanged(position, count, payload);
+        }
+    }
+
+    private void notifyMoved(int fromPosition, int toPosition) {
+        if (listener != null) {
+            listener.onMoved(fromPosition, toPosition);
+        }
+    }
+
+    // Firestore source: bookings of one user, same order and fields as the live window
+    private static class FirestoreSource implements PageSource {
+        private final FirebaseFirestore firestore;
+
+        FirestoreSource(FirebaseFirestore firestore) {
+            this.firestore = firestore;
+        }
+
+        @Override
+        public void fetchPage(String userId, Cursor after, Cursor endAt, int limit, PageCallback callback) {
+            Query query = BookingFeed.bookingsQuery(firestore, userId).limit(limit);
+            if (after != null) {
+                query = query.startAfter(after.timestamp, after.bookingId);
+            }
+            if (endAt != null) {
+                query = query.endAt(endAt.timestamp, endAt.bookingId);
+            }
+            query.get()
+                    .addOnSuccessListener(snapshot -> {
+                        List<Booking> bookings = new ArrayList<>(snapshot.size());
+                        for (DocumentSnapshot document : snapshot.getDocuments()) {
+                            bookings.add(BookingFeed.toBooking(document));
+                        }
+                        callback.onResult(bookings);
+                    })
+                    .addOnFailureListener(callback::onError);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.rest_app.utils;
+
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Conversions between a booking's reservation instant (epoch millis, what is stored and
+ * queried) and the calendar values shown and picked in the app. Calendar math uses the
+ * device time zone, which is taken to be the restaurant's.
+ */
+public final class BookingTimes {
+    public static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private BookingTimes() {
+    }
+
+    // month is 1-12
+    public static long reservationAt(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Reads the "d/M/yyyy" and "HH:mm" strings of the booking form (and of bookings stored
+     * before the instant was), or returns -1 if they aren't a valid date and time.
+     */
+    public static long parse(String date, String time) {
+        String[] dateParts = date != null ? date.split("/") : new String[0];
+        String[] timeParts = time != null ? time.split(":") : new String[0];
+        if (dateParts.length != 3 || timeParts.length != 2) {
+            return -1;
+        }
+        try {
+            int day = Integer.parseInt(dateParts[0].trim());
+            int month = Integer.parseInt(dateParts[1].trim());
+            int year = Integer.parseInt(dateParts[2].trim());
+            int hour = Integer.parseInt(timeParts[0].trim());
+            int minute = Integer.parseInt(timeParts[1].trim());
+            if (day < 1 || month < 1 || month > 12 || hour > 23 || minute > 59 || hour < 0 || minute < 0) {
+                return -1;
+            }
+            // Calendar is lenient and would roll 31/2 over into March
+            if (day > daysInMonth(year, month)) {
+                return -1;
+            }
+            return reservationAt(year, month, day, hour, minute);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // month is 1-12
+    public static int daysInMonth(int year, int month) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, 1);
+        return calendar.getActualMaximum(Calendar.DAY_OF_MONTH);
+    }
+
+    // "4 Guests" -> 4; 0 if there is no leading number
+    public static int parseGuests(String guests) {
+        int count = 0;
+        for (int i = 0; guests != null && i < guests.length() && Character.isDigit(guests.charAt(i)); i++) {
+            count = count * 10 + (guests.charAt(i) - '0');
+        }
+        return count;
+    }
+
+    // Midnight at the start of the instant's day
+    public static long startOfDay(long instant) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(instant);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    // Midnight at the start of the next day; not always DAY_MS later because of DST
+    public static long startOfNextDay(long instant) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(startOfDay(instant));
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    public static int minuteOfDay(long instant) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(instant);
+        return calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+    }
+
+    // "yyyy-MM-dd", used to key per-day documents
+    public static String dayKey(long instant) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(instant);
+        return String.format(Locale.US, "%04d-%02d-%02d", calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    // Same "d/M/yyyy" the date picker shows
+    public static String formatDate(long instant) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(instant);
+        return calendar.get(Calendar.DAY_OF_MONTH) + "/" + (calendar.get(Calendar.MONTH) + 1) + "/" + calendar.get(Calendar.YEAR);
+    }
+
+    public static String formatTime(long instant) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(instant);
+        return String.format(Locale.US, "%02d:%02d", calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE));
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.rest_app.utils;
+
+import com.example.rest_app.model.FoodItem;
+import com.google.firebase.firestore.FieldValue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records cart changes between writes so only the touched cart lines are sent.
+ * Lines live under a "lines" map in the cart document, keyed by item id.
+ */
+public class CartDeltaTracker {
+    public static final String LINES_FIELD = "lines";
+
+    private static final int ADDED = 1;
+    private static final int REMOVED = 2;
+    private static final int QUANTITY = 3;
+
+    private static class LineChange {
+        int kind;
+        int quantityDelta;
+    }
+
+    private final Map<String, LineChange> changes = new LinkedHashMap<>();
+    private boolean needsFullWrite = true;
+
+    public void onLineAdded(String itemId) {
+        LineChange change = changeFor(itemId);
+        change.kind = ADDED;
+        change.quantityDelta = 0;
+    }
+
+    public void onLineRemoved(String itemId) {
+        LineChange change = changeFor(itemId);
+        change.kind = REMOVED;
+        change.quantityDelta = 0;
+    }
+
+    public void onQuantityChanged(String itemId, int delta) {
+        LineChange change = changeFor(itemId);
+        if (change.kind == ADDED) {
+            // The whole line is written anyway, so the new quantity is already included
+            return;
+        }
+        change.kind = QUANTITY;
+        change.quantityDelta += delta;
+    }
+
+    // Next write must rewrite the whole document (first sync, cart cleared, failed delta)
+    public void requireFullWrite() {
+        needsFullWrite = true;
+        changes.clear();
+    }
+
+    public boolean needsFullWrite() {
+        return needsFullWrite;
+    }
+
+    // Field-path updates for Firestore update(), consuming the recorded changes
+    public Map<String, Object> buildDelta(Map<String, FoodItem> cartIndex) {
+        Map<String, Object> update = new HashMap<>();
+        for (Map.Entry<String, LineChange> entry : changes.entrySet()) {
+            String path = LINES_FIELD + "." + lineKey(entry.getKey());
+            LineChange change = entry.getValue();
+            FoodItem item = cartIndex.get(entry.getKey());
+
+            if (change.kind == REMOVED || item == null) {
+                update.put(path, FieldValue.delete());
+            } else if (change.kind == ADDED) {
+                update.put(path, lineToMap(item));
+            } else if (change.quantityDelta != 0) {
+                update.put(path + ".quantity", FieldValue.increment(change.quantityDelta));
+            }
+        }
+        changes.clear();
+        return update;
+    }
+
+    // The full "lines" map, consuming the recorded changes
+    public Map<String, Object> buildFullLines(Map<String, FoodItem> cartIndex) {
+        Map<String, Object> lines = new HashMap<>();
+        for (FoodItem item : cartIndex.values()) {
+            lines.put(lineKey(item.getId()), lineToMap(item));
+        }
+        changes.clear();
+        needsFullWrite = false;
+        return lines;
+    }
+
+    public static Map<String, Object> lineToMap(FoodItem item) {
+        Map<String, Object> itemMap = new HashMap<>();
+        itemMap.put("id", item.getId());
+        itemMap.put("name", item.getName());
+        itemMap.put("description", item.getDescription());
+        itemMap.put("price", item.getPrice());
+        itemMap.put("priceMinor", item.getPriceMinor());
+        itemMap.put("imageUrl", item.getImageUrl());
+        itemMap.put("category", item.getCategory());
+        itemMap.put("quantity", item.getQuantity());
+        itemMap.put("calories", item.getCalories());
+        return itemMap;
+    }
+
+    public static FoodItem lineFromMap(Map<String, Object> line) {
+        FoodItem item = new FoodItem(
+                asString(line.get("name")),
+                asString(line.get("description")),
+                line.get("price") instanceof Number ? ((Number) line.get("price")).doubleValue() : 0,
+                asString(line.get("imageUrl")),
+                asString(line.get("category")),
+                line.get("calories") instanceof Number ? ((Number) line.get("calories")).intValue() : 0
+        );
+        if (line.get("id") != null) {
+            item.setId(asString(line.get("id")));
+        }
+        if (line.get("priceMinor") instanceof Number) {
+            // Exact price; "price" is only there for older readers
+            item.setPriceMinor(((Number) line.get("priceMinor")).longValue());
+        }
+        item.setQuantity(line.get("quantity") instanceof Number ? ((Number) line.get("quantity")).intValue() : 1);
+        return item;
+    }
+
+    // Remote lines now match the local cart, so the next save can be a delta
+    public void markSynced() {
+        needsFullWrite = false;
+        changes.clear();
+    }
+
+    private static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    // Firestore field paths can't contain these characters, so replace them in the key
+    public static String lineKey(String itemId) {
+        StringBuilder key = new StringBuilder(itemId.length());
+        for (int i = 0; i < itemId.length(); i++) {
+            char c = itemId.charAt(i);
+            if (c == '.' || c == '/' || c == '~' || c == '*' || c == '[' || c == ']' || c == '`') {
+                key.append('_');
+            } else {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    private LineChange changeFor(String itemId) {
+        LineChange change = changes.get(itemId);
+        if (change == null) {
+            change = new LineChange();
+            changes.put(itemId, change);
+        }
+        return change;
+    }
+}
@@ -1,28 +1,69 @@
 package com.example.rest_app.utils;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import com.example.rest_app.model.FoodItem;
+import com.example.rest_app.model.Money;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class CartManager {
     private static CartManager instance;
-    private List<FoodItem> cartItems;
+    // Cart lines keyed by FoodItem id, insertion ordered for display
+    private final Map<String, FoodItem> cartIndex;
+    // Running total in minor units of the base currency; long arithmetic keeps it exact
+    private long totalMinor;
+    private int itemCount;
     private FirebaseAuthManager authManager;
-    private CartUpdateListener cartUpdateListener;
     private FirebaseFirestore firestore;
+    private final CartWriteBehind writeBehind;
+    private final CartDeltaTracker deltaTracker;
+    private SyncMode syncMode = SyncMode.DELTA;
+    private boolean pendingWriteIsDelta;
+    private long bytesSent;
 
-    public interface CartUpdateListener {
-        void onCartUpdated();
+    // Local cart versioning, used to reconcile with the remote document
+    private CartSnapshotStore snapshotStore;
+    private long cartVersion;
+    private long lastModified;
+    private long pendingWriteVersion;
+    private long syncedVersion = -1;
+    private String hydratedUserId;
+    private String reconciledUserId;
+
+    // FULL rewrites the whole cart document on every save, DELTA only sends the changed lines
+    public enum SyncMode {
+        FULL,
+        DELTA
+    }
+
+    // Where cart events are posted; tests swap it for one that doesn't need a main looper
+    interface EventSink {
+        void post(EventBus.Event event);
     }
 
+    private final EventSink events;
+
     private CartManager() {
-        cartItems = new ArrayList<>();
-        firestore = FirebaseFirestore.getInstance();
+        this(FirebaseFirestore.getInstance(), new Handler(Looper.getMainLooper()),
+                event -> EventBus.getInstance().post(event));
+    }
+
+    // For tests: no Firestore is touched until a user is signed in
+    CartManager(FirebaseFirestore firestore, Handler handler, EventSink events) {
+        cartIndex = new LinkedHashMap<>();
+        deltaTracker = new CartDeltaTracker();
+        this.firestore = firestore;
+        this.events = events;
+        writeBehind = new CartWriteBehind(handler, this::writeCartDocument, this::buildCartData);
     }
 
     public static CartManager getInstance() {
@@ -36,91 +77,126 @@ public class CartManager {
         this.authManager = authManager;
     }
 
-    public void setCartUpdateListener(CartUpdateListener listener) {
-        this.cartUpdateListener = listener;
+    // Enables the on-disk cart snapshot used for instant restore on cold start
+    public void attachContext(Context context) {
+        if (snapshotStore == null) {
+            snapshotStore = new CartSnapshotStore(context);
+        }
     }
 
     // Add item to cart
     public void addToCart(FoodItem foodItem) {
         // Check if item already exists in cart
-        for (FoodItem item : cartItems) {
-            if (item.getName().equals(foodItem.getName())) {
-                item.setQuantity(item.getQuantity() + 1);
-                notifyCartUpdated();
-                saveCartToFirestore();
-                return;
-            }
+        FoodItem item = cartIndex.get(foodItem.getId());
+        if (item != null) {
+            item.setQuantity(item.getQuantity() + 1);
+            totalMinor += item.getPriceMinor();
+            itemCount++;
+            deltaTracker.onQuantityChanged(item.getId(), 1);
+            markModified();
+            notifyCartUpdated(new EventBus.QuantityChanged(item.getId(), item.getQuantity()));
+            saveCartToFirestore();
+            return;
         }
 
         // Add new item
-        FoodItem newItem = new FoodItem(
-                foodItem.getName(),
-                foodItem.getDescription(),
-                foodItem.getPrice(),
-                foodItem.getImageUrl(),
-                foodItem.getCategory(),
-                foodItem.getCalories()
-        );
+        FoodItem newItem = new FoodItem(foodItem);
         newItem.setQuantity(1);
-        cartItems.add(newItem);
-        notifyCartUpdated();
+        cartIndex.put(newItem.getId(), newItem);
+        totalMinor += newItem.getPriceMinor();
+        itemCount++;
+        deltaTracker.onLineAdded(newItem.getId());
+        markModified();
+        notifyCartUpdated(new EventBus.ItemAdded(newItem.getId()));
         saveCartToFirestore();
     }
 
     // Remove item from cart
     public void removeFromCart(FoodItem foodItem) {
-        cartItems.removeIf(item -> item.getName().equals(foodItem.getName()));
-        notifyCartUpdated();
+        FoodItem item = cartIndex.remove(foodItem.getId());
+        if (item != null) {
+            totalMinor -= item.getPriceMinor() * item.getQuantity();
+            itemCount -= item.getQuantity();
+            deltaTracker.onLineRemoved(item.getId());
+        }
+        markModified();
+        notifyCartUpdated(new EventBus.ItemRemoved(foodItem.getId()));
         saveCartToFirestore();
     }
 
     // Update item quantity
     public void updateQuantity(FoodItem foodItem, int quantity) {
-        for (FoodItem item : cartItems) {
-            if (item.getName().equals(foodItem.getName())) {
-                if (quantity <= 0) {
-                    removeFromCart(item);
-                } else {
-                    item.setQuantity(quantity);
-                }
-                break;
-            }
+        FoodItem item = cartIndex.get(foodItem.getId());
+        if (item == null) {
+            return;
+        }
+        if (quantity <= 0) {
+            removeFromCart(item);
+            return;
         }
-        notifyCartUpdated();
+
+        int delta = quantity - item.getQuantity();
+        item.setQuantity(quantity);
+        totalMinor += item.getPriceMinor() * delta;
+        itemCount += delta;
+        deltaTracker.onQuantityChanged(item.getId(), delta);
+        markModified();
+        notifyCartUpdated(new EventBus.QuantityChanged(item.getId(), quantity));
         saveCartToFirestore();
     }
 
+    /**
+     * Changes the quantity of a cart line by delta, starting from what the cart holds now rather
+     * than from a row the caller may have shown earlier. Reaching zero removes the line.
+     */
+    public void incrementQuantity(String itemId, int delta) {
+        FoodItem item = cartIndex.get(itemId);
+        if (item != null) {
+            updateQuantity(item, item.getQuantity() + delta);
+        }
+    }
+
     // Clear cart
     public void clearCart() {
-        cartItems.clear();
-        notifyCartUpdated();
+        cartIndex.clear();
+        totalMinor = 0;
+        itemCount = 0;
+        deltaTracker.requireFullWrite();
+        markModified();
+        notifyCartUpdated(new EventBus.CartReplaced());
         saveCartToFirestore();
     }
 
-    // Get cart items
+    // Get cart items (in the order they were added)
     public List<FoodItem> getCartItems() {
-        return new ArrayList<>(cartItems);
+        return new ArrayList<>(cartIndex.values());
     }
 
-    // Get total price
+    // Look up a single cart line by item id
+    public FoodItem getCartItem(String itemId) {
+        return cartIndex.get(itemId);
+    }
+
+    // Get total price in base currency major units, for display (kept up to date by every mutation)
     public double getTotalPrice() {
-        double total = 0;
-        for (FoodItem item : cartItems) {
-            total += item.getPrice() * item.getQuantity();
-        }
-        return total;
+        return Money.toMajor(totalMinor);
     }
 
-    // Get item count
+    // Exact total in minor units of the base currency, use this for anything that gets stored
+    public long getTotalMinor() {
+        return totalMinor;
+    }
+
+    public Money getTotal() {
+        return Money.ofMinor(totalMinor);
+    }
+
+    // Get item count (kept up to date by every mutation)
     public int getCartItemCount() {
-        int count = 0;
-        for (FoodItem item : cartItems) {
-            count += item.getQuantity();
-        }
-        return count;
+        return itemCount;
     }
 
-    // Save cart to Firestore
+    // Save cart to Firestore (coalesced through the write-behind queue)
     public void saveCartToFirestore() {
         if (authManager == null || !authManager.isUserLoggedIn()) {
             return;
@@ -129,23 +205,123 @@ public class CartManager {
         String userId = authManager.getCurrentUserId();
         if (userId == null) return;
 
+        writeBehind.markDirty(userId);
+    }
+
+    // Push any pending cart write immediately (call from onPause and before sign-out)
+    public void flushPendingWrites() {
+        writeBehind.flush();
+    }
+
+    public CartWriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+
+    public SyncMode getSyncMode() {
+        return syncMode;
+    }
+
+    public void setSyncMode(SyncMode syncMode) {
+        this.syncMode = syncMode;
+        // The document layout differs between modes, so start over with a full write
+        deltaTracker.requireFullWrite();
+    }
+
+    // Approximate bytes of cart payload handed to Firestore so far
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    private Map<String, Object> buildCartData(String userId) {
         Map<String, Object> cartData = new HashMap<>();
-        cartData.put("userId", userId);
-        cartData.put("items", convertCartItemsToMap());
-        cartData.put("lastUpdated", System.currentTimeMillis());
-        cartData.put("userEmail", authManager.getCurrentUserEmail());
-        cartData.put("userName", authManager.getCurrentUserName());
+        pendingWriteVersion = cartVersion;
+        if (snapshotStore != null) {
+            snapshotStore.write(userId, cartVersion, lastModified, getCartItems());
+        }
+        pendingWriteIsDelta = syncMode == SyncMode.DELTA && !deltaTracker.needsFullWrite();
+
+        if (pendingWriteIsDelta) {
+            cartData.putAll(deltaTracker.buildDelta(cartIndex));
+        } else {
+            cartData.put("userId", userId);
+            if (syncMode == SyncMode.DELTA) {
+                cartData.put(CartDeltaTracker.LINES_FIELD, deltaTracker.buildFullLines(cartIndex));
+            } else {
+                cartData.put("items", convertCartItemsToMap());
+            }
+            cartData.put("userEmail", authManager != null ? authManager.getCurrentUserEmail() : null);
+            cartData.put("userName", authManager != null ? authManager.getCurrentUserName() : null);
+        }
+        // lastUpdated is the local mutation time so a restored snapshot compares equal
+        cartData.put("lastUpdated", lastModified);
+        cartData.put("version", cartVersion);
         cartData.put("totalItems", getCartItemCount());
         cartData.put("totalPrice", getTotalPrice());
+        cartData.put("totalPriceMinor", totalMinor);
+        return cartData;
+    }
+
+    private void writeCartDocument(String userId, Map<String, Object> cartData, Runnable onComplete) {
+        bytesSent += estimateBytes(cartData);
+        final long writtenVersion = pendingWriteVersion;
+
+        if (pendingWriteIsDelta) {
+            firestore.collection("userCarts")
+                    .document(userId)
+                    .update(cartData)
+                    .addOnSuccessListener(aVoid -> {
+                        syncedVersion = writtenVersion;
+                        Log.d("CartManager", "Cart delta saved to Firestore");
+                    })
+                    .addOnFailureListener(e -> {
+                        // Document may be missing or out of sync; rewrite it in full
+                        Log.e("CartManager", "Error saving cart delta: " + e.getMessage());
+                        deltaTracker.requireFullWrite();
+                        saveCartToFirestore();
+                    })
+                    .addOnCompleteListener(task -> onComplete.run());
+            return;
+        }
 
         firestore.collection("userCarts")
                 .document(userId)
                 .set(cartData)
-                .addOnSuccessListener(aVoid -> Log.d("CartManager", "Cart saved to Firestore"))
-                .addOnFailureListener(e -> Log.e("CartManager", "Error saving cart: " + e.getMessage()));
+                .addOnSuccessListener(aVoid -> {
+                    syncedVersion = writtenVersion;
+                    Log.d("CartManager", "Cart saved to Firestore");
+                })
+                .addOnFailureListener(e -> {
+                    Log.e("CartManager", "Error saving cart: " + e.getMessage());
+                    deltaTracker.requireFullWrite();
+                })
+                .addOnCompleteListener(task -> onComplete.run());
+    }
+
+    private static long estimateBytes(Object value) {
+        if (value == null) {
+            return 1;
+        }
+        if (value instanceof String) {
+            return ((String) value).length() + 1;
+        }
+        if (value instanceof Map) {
+            long size = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += String.valueOf(entry.getKey()).length() + 1 + estimateBytes(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof List) {
+            long size = 0;
+            for (Object element : (List<?>) value) {
+                size += estimateBytes(element);
+            }
+            return size;
+        }
+        return 8;
     }
 
-    // Load cart from Firestore
+    // Load cart: restore the local snapshot first, then reconcile with Firestore once per session
     public void loadCartFromFirestore() {
         if (authManager == null || !authManager.isUserLoggedIn()) {
             return;
@@ -154,38 +330,130 @@ public class CartManager {
         String userId = authManager.getCurrentUserId();
         if (userId == null) return;
 
+        if (!userId.equals(hydratedUserId)) {
+            restoreFromSnapshot(userId);
+        }
+
+        // Already reconciled, and every later change went through this manager
+        if (userId.equals(reconciledUserId)) {
+            Log.d("CartManager", "Cart is current (version " + cartVersion + ", synced " + syncedVersion + "), skipping fetch");
+            return;
+        }
+
+        final long fetchStart = SystemClock.uptimeMillis();
+        NetworkStats.getInstance().record("cart");
         firestore.collection("userCarts")
                 .document(userId)
                 .get()
                 .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        // You can implement cart restoration here if needed
-                        Log.d("CartManager", "Cart loaded from Firestore");
-                        notifyCartUpdated();
+                    if (!userId.equals(authManager.getCurrentUserId())) {
+                        return; // Signed out or switched user while loading
+                    }
+                    reconciledUserId = userId;
+
+                    Long remoteUpdated = documentSnapshot.exists() ? documentSnapshot.getLong("lastUpdated") : null;
+                    if (remoteUpdated != null && remoteUpdated > lastModified) {
+                        applyRemoteCart(documentSnapshot);
+                        Log.d("CartManager", "Cart restored from Firestore in " + (SystemClock.uptimeMillis() - fetchStart) + "ms");
+                        notifyCartUpdated(new EventBus.CartReplaced());
+                    } else if (remoteUpdated == null || remoteUpdated < lastModified) {
+                        // Local cart is newer than the remote copy
+                        if (!cartIndex.isEmpty() || remoteUpdated != null) {
+                            saveCartToFirestore();
+                        }
+                    } else {
+                        syncedVersion = cartVersion;
+                        Log.d("CartManager", "Cart snapshot matches Firestore");
                     }
                 })
                 .addOnFailureListener(e -> Log.e("CartManager", "Error loading cart: " + e.getMessage()));
     }
 
+    private void restoreFromSnapshot(String userId) {
+        long start = SystemClock.uptimeMillis();
+        hydratedUserId = userId;
+        reconciledUserId = null;
+
+        CartSnapshotStore.Snapshot snapshot = snapshotStore != null ? snapshotStore.read() : null;
+        if (snapshot != null && userId.equals(snapshot.userId)) {
+            replaceCart(snapshot.items);
+            cartVersion = snapshot.version;
+            lastModified = snapshot.lastModified;
+            Log.d("CartManager", "Cart restored from disk in " + (SystemClock.uptimeMillis() - start) + "ms");
+        } else {
+            // Cart in memory belongs to nobody (or another user)
+            replaceCart(new ArrayList<>());
+            cartVersion = 0;
+            lastModified = 0;
+        }
+        syncedVersion = -1;
+        deltaTracker.requireFullWrite();
+        notifyCartUpdated(new EventBus.CartReplaced());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applyRemoteCart(DocumentSnapshot documentSnapshot) {
+        List<FoodItem> items = new ArrayList<>();
+        Object lines = documentSnapshot.get(CartDeltaTracker.LINES_FIELD);
+        Object legacyItems = documentSnapshot.get("items");
+        if (lines instanceof Map) {
+            for (Object line : ((Map<String, Object>) lines).values()) {
+                if (line instanceof Map) {
+                    items.add(CartDeltaTracker.lineFromMap((Map<String, Object>) line));
+                }
+            }
+        } else if (legacyItems instanceof List) {
+            for (Object line : (List<Object>) legacyItems) {
+                if (line instanceof Map) {
+                    items.add(CartDeltaTracker.lineFromMap((Map<String, Object>) line));
+                }
+            }
+        }
+
+        replaceCart(items);
+        Long remoteVersion = documentSnapshot.getLong("version");
+        Long remoteUpdated = documentSnapshot.getLong("lastUpdated");
+        cartVersion = remoteVersion != null ? remoteVersion : 0;
+        lastModified = remoteUpdated != null ? remoteUpdated : 0;
+        syncedVersion = cartVersion;
+
+        if (lines instanceof Map && syncMode == SyncMode.DELTA) {
+            deltaTracker.markSynced();
+        } else {
+            deltaTracker.requireFullWrite();
+        }
+        if (snapshotStore != null) {
+            snapshotStore.write(hydratedUserId, cartVersion, lastModified, items);
+        }
+    }
+
+    private void replaceCart(List<FoodItem> items) {
+        cartIndex.clear();
+        totalMinor = 0;
+        itemCount = 0;
+        for (FoodItem item : items) {
+            if (item.getQuantity() <= 0) continue;
+            cartIndex.put(item.getId(), item);
+            totalMinor += item.getPriceMinor() * item.getQuantity();
+            itemCount += item.getQuantity();
+        }
+    }
+
+    private void markModified() {
+        cartVersion++;
+        lastModified = Math.max(System.currentTimeMillis(), lastModified + 1);
+    }
+
     private List<Map<String, Object>> convertCartItemsToMap() {
         List<Map<String, Object>> itemsList = new ArrayList<>();
-        for (FoodItem item : cartItems) {
-            Map<String, Object> itemMap = new HashMap<>();
-            itemMap.put("name", item.getName());
-            itemMap.put("description", item.getDescription());
-            itemMap.put("price", item.getPrice());
-            itemMap.put("imageUrl", item.getImageUrl());
-            itemMap.put("category", item.getCategory());
-            itemMap.put("quantity", item.getQuantity());
-            itemMap.put("calories", item.getCalories());
-            itemsList.add(itemMap);
+        for (FoodItem item : cartIndex.values()) {
+            itemsList.add(CartDeltaTracker.lineToMap(item));
         }
         return itemsList;
     }
 
-    private void notifyCartUpdated() {
-        if (cartUpdateListener != null) {
-            cartUpdateListener.onCartUpdated();
-        }
+    // Subscribers get all cart events of a frame together, so bursts of changes cause one refresh
+    private void notifyCartUpdated(EventBus.Event event) {
+        events.post(event);
     }
 }
\ No newline at end of file
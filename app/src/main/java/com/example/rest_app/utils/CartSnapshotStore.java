@@ -0,0 +1,120 @@
+package com.example.rest_app.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.rest_app.model.FoodItem;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a copy of the cart on disk so it can be shown immediately on cold start,
+ * before the remote cart document has been fetched.
+ */
+public class CartSnapshotStore {
+    private static final String TAG = "CartSnapshotStore";
+    private static final String FILE_NAME = "cart_snapshot.json";
+
+    public static class Snapshot {
+        public final String userId;
+        public final long version;
+        public final long lastModified;
+        public final List<FoodItem> items;
+
+        public Snapshot(String userId, long version, long lastModified, List<FoodItem> items) {
+            this.userId = userId;
+            this.version = version;
+            this.lastModified = lastModified;
+            this.items = items;
+        }
+    }
+
+    private final AtomicTextFile file;
+
+    public CartSnapshotStore(Context context) {
+        this(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+    }
+
+    public CartSnapshotStore(File file) {
+        this.file = new AtomicTextFile(file);
+    }
+
+    // Reads the snapshot synchronously; the file is small enough to read on the main thread
+    public Snapshot read() {
+        try {
+            String content = file.read();
+            if (content == null) {
+                return null;
+            }
+
+            JSONObject json = new JSONObject(content);
+            List<FoodItem> items = new ArrayList<>();
+            JSONArray lines = json.optJSONArray("lines");
+            if (lines != null) {
+                for (int i = 0; i < lines.length(); i++) {
+                    JSONObject line = lines.getJSONObject(i);
+                    FoodItem item = new FoodItem(
+                            line.optString("name"),
+                            line.optString("description"),
+                            line.optDouble("price", 0),
+                            line.optString("imageUrl"),
+                            line.optString("category"),
+                            line.optInt("calories", 0)
+                    );
+                    item.setId(line.optString("id", item.getName()));
+                    if (line.has("priceMinor")) {
+                        // Exact price; snapshots written before it was stored only have "price"
+                        item.setPriceMinor(line.getLong("priceMinor"));
+                    }
+                    item.setQuantity(line.optInt("quantity", 1));
+                    items.add(item);
+                }
+            }
+            return new Snapshot(json.optString("userId"), json.optLong("version"), json.optLong("lastModified"), items);
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading cart snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Serializes on the caller's thread, writes on the disk thread
+    public void write(String userId, long version, long lastModified, List<FoodItem> items) {
+        final String payload;
+        try {
+            JSONArray lines = new JSONArray();
+            for (FoodItem item : items) {
+                JSONObject line = new JSONObject();
+                line.put("id", item.getId());
+                line.put("name", item.getName());
+                line.put("description", item.getDescription());
+                line.put("price", item.getPrice());
+                line.put("priceMinor", item.getPriceMinor());
+                line.put("imageUrl", item.getImageUrl());
+                line.put("category", item.getCategory());
+                line.put("calories", item.getCalories());
+                line.put("quantity", item.getQuantity());
+                lines.put(line);
+            }
+            JSONObject json = new JSONObject();
+            json.put("userId", userId);
+            json.put("version", version);
+            json.put("lastModified", lastModified);
+            json.put("lines", lines);
+            payload = json.toString();
+        } catch (Exception e) {
+            Log.e(TAG, "Error serializing cart snapshot: " + e.getMessage());
+            return;
+        }
+
+        file.writeAsync(payload);
+    }
+
+    public void clear() {
+        file.deleteAsync();
+    }
+}
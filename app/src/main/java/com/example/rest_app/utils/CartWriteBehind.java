@@ -0,0 +1,157 @@
+package com.example.rest_app.utils;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Coalesces cart saves: mutations inside the window collapse into a single write,
+ * and each user has at most one write in flight at a time.
+ */
+public class CartWriteBehind {
+    private static final String TAG = "CartWriteBehind";
+    public static final long DEFAULT_WINDOW_MS = 750;
+
+    // Performs the actual write and calls onComplete when it has finished (success or failure)
+    public interface CartWriter {
+        void write(String userId, Map<String, Object> cartData, Runnable onComplete);
+    }
+
+    // Builds the cart document at flush time so the latest state is always written
+    public interface PayloadBuilder {
+        Map<String, Object> build(String userId);
+    }
+
+    private static class PendingState {
+        boolean dirty;
+        boolean inFlight;
+        long firstDirtyAt;
+        Runnable scheduledFlush;
+    }
+
+    private final Handler handler;
+    private final CartWriter writer;
+    private final PayloadBuilder payloadBuilder;
+    private final Map<String, PendingState> states = new HashMap<>();
+    private long windowMs = DEFAULT_WINDOW_MS;
+
+    // Counters
+    private long mutationCount;
+    private long writeCount;
+    private long lastFlushLatencyMs;
+    private long totalFlushLatencyMs;
+
+    public CartWriteBehind(Handler handler, CartWriter writer, PayloadBuilder payloadBuilder) {
+        this.handler = handler;
+        this.writer = writer;
+        this.payloadBuilder = payloadBuilder;
+    }
+
+    public void setWindowMs(long windowMs) {
+        this.windowMs = Math.max(0, windowMs);
+    }
+
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    // Record a cart change; the write happens once the window closes
+    public void markDirty(String userId) {
+        mutationCount++;
+        PendingState state = stateFor(userId);
+        if (!state.dirty) {
+            state.dirty = true;
+            state.firstDirtyAt = SystemClock.uptimeMillis();
+        }
+        if (!state.inFlight && state.scheduledFlush == null) {
+            scheduleFlush(userId, state, windowMs);
+        }
+    }
+
+    // Write every pending cart now (used from onPause and before sign-out)
+    public void flush() {
+        for (Map.Entry<String, PendingState> entry : states.entrySet()) {
+            PendingState state = entry.getValue();
+            if (state.scheduledFlush != null) {
+                handler.removeCallbacks(state.scheduledFlush);
+                state.scheduledFlush = null;
+            }
+            if (state.dirty && !state.inFlight) {
+                writeNow(entry.getKey(), state);
+            }
+        }
+    }
+
+    public boolean hasPendingWrites() {
+        for (PendingState state : states.values()) {
+            if (state.dirty || state.inFlight) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getMutationCount() {
+        return mutationCount;
+    }
+
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    // Writes avoided by coalescing
+    public long getWritesSaved() {
+        return Math.max(0, mutationCount - writeCount);
+    }
+
+    // Time from the first unsaved mutation until its write completed
+    public long getLastFlushLatencyMs() {
+        return lastFlushLatencyMs;
+    }
+
+    public long getAverageFlushLatencyMs() {
+        return writeCount == 0 ? 0 : totalFlushLatencyMs / writeCount;
+    }
+
+    private PendingState stateFor(String userId) {
+        PendingState state = states.get(userId);
+        if (state == null) {
+            state = new PendingState();
+            states.put(userId, state);
+        }
+        return state;
+    }
+
+    private void scheduleFlush(String userId, PendingState state, long delayMs) {
+        state.scheduledFlush = () -> {
+            state.scheduledFlush = null;
+            if (state.dirty && !state.inFlight) {
+                writeNow(userId, state);
+            }
+        };
+        handler.postDelayed(state.scheduledFlush, delayMs);
+    }
+
+    private void writeNow(String userId, PendingState state) {
+        final long dirtySince = state.firstDirtyAt;
+        state.dirty = false;
+        state.inFlight = true;
+        writeCount++;
+
+        Map<String, Object> cartData = payloadBuilder.build(userId);
+        writer.write(userId, cartData, () -> {
+            state.inFlight = false;
+            lastFlushLatencyMs = SystemClock.uptimeMillis() - dirtySince;
+            totalFlushLatencyMs += lastFlushLatencyMs;
+            Log.d(TAG, "Cart write finished in " + lastFlushLatencyMs + "ms, writes saved: " + getWritesSaved());
+
+            // Changes that arrived while this write was in flight go out in the next window
+            if (state.dirty && state.scheduledFlush == null) {
+                scheduleFlush(userId, state, windowMs);
+            }
+        });
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.rest_app.utils;
+
+import android.util.Log;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Guests arriving per 15-minute slot of a day, for the host stand and the kitchen. The counts
+ * are kept up to date by the booking and cancel transactions instead of summing bookings. They
+ * live in the same availability/{yyyy-MM-dd} document as the taken tables, which those
+ * transactions already read and write, so keeping them costs no extra writes and reading a
+ * day is one document.
+ */
+public class CoverCounts {
+    private static final String TAG = "CoverCounts";
+
+    public static final int SLOT_MINUTES = 15;
+    public static final int SLOTS_PER_DAY =
+            (TableAvailability.CLOSE_MINUTES - TableAvailability.OPEN_MINUTES) / SLOT_MINUTES;
+
+    public interface Listener {
+        // Main thread; arrivals[slot] is the guests arriving in that slot, counted from opening time
+        void onCovers(int[] arrivals, boolean fromCache);
+
+        void onError(Exception e);
+    }
+
+    private final FirebaseFirestore firestore;
+    private ListenerRegistration registration;
+
+    // Metrics
+    private long estimatedReads;
+    private long lastLagMs = -1;
+
+    public CoverCounts(FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    // Slot of a reservation starting at the given minute of the day, or -1 outside opening hours
+    public static int slotOf(int minuteOfDay) {
+        int offset = minuteOfDay - TableAvailability.OPEN_MINUTES;
+        return offset < 0 || offset >= SLOTS_PER_DAY * SLOT_MINUTES ? -1 : offset / SLOT_MINUTES;
+    }
+
+    /**
+     * Arrivals per slot from the covers field of a day document; all zero for a day without one.
+     * Entries that aren't numbers count as zero.
+     */
+    public static int[] fromList(Object covers) {
+        int[] arrivals = new int[SLOTS_PER_DAY];
+        if (covers instanceof List) {
+            List<?> list = (List<?>) covers;
+            for (int slot = 0; slot < arrivals.length && slot < list.size(); slot++) {
+                if (list.get(slot) instanceof Number) {
+                    arrivals[slot] = ((Number) list.get(slot)).intValue();
+                }
+            }
+        }
+        return arrivals;
+    }
+
+    public static List<Long> toList(int[] arrivals) {
+        List<Long> list = new ArrayList<>(arrivals.length);
+        for (int count : arrivals) {
+            list.add((long) count);
+        }
+        return list;
+    }
+
+    /**
+     * Adds guests (negative to take them off) to a slot. Counts never go below zero, so taking
+     * off a booking twice can't leave the slot owing guests.
+     */
+    public static void add(int[] arrivals, int slot, int guests) {
+        if (slot >= 0 && slot < arrivals.length) {
+            arrivals[slot] = Math.max(0, arrivals[slot] + guests);
+        }
+    }
+
+    /**
+     * Listens to the counts of the day of the given instant until the owner is destroyed.
+     * Fragments should pass getViewLifecycleOwner(). Must be called on the main thread.
+     */
+    public void listen(LifecycleOwner owner, long day, Listener listener) {
+        stop();
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+
+        NetworkStats.getInstance().record("covers");
+        registration = firestore.collection("availability")
+                .document(BookingTimes.dayKey(day))
+                .addSnapshotListener((snapshot, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Covers listener failed: " + error.getMessage());
+                        listener.onError(error);
+                        return;
+                    }
+                    if (snapshot == null) {
+                        return;
+                    }
+                    boolean fromCache = snapshot.getMetadata().isFromCache();
+                    recordSnapshot(snapshot, fromCache);
+                    listener.onCovers(fromList(snapshot.exists() ? snapshot.get("covers") : null), fromCache);
+                });
+
+        lifecycle.addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    stop();
+                    source.getLifecycle().removeObserver(this);
+                }
+            }
+        });
+    }
+
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    /**
+     * Guests at their tables in each slot: everyone who arrived within one seating length
+     * before the end of the slot.
+     */
+    public static int[] seated(int[] arrivals) {
+        int window = TableAvailability.SEATING_MINUTES / SLOT_MINUTES;
+        int[] seated = new int[arrivals.length];
+        int running = 0;
+        for (int slot = 0; slot < arrivals.length; slot++) {
+            running += arrivals[slot];
+            if (slot >= window) {
+                running -= arrivals[slot - window];
+            }
+            seated[slot] = running;
+        }
+        return seated;
+    }
+
+    // Document reads billed so far: one for each snapshot the server sends
+    public long getEstimatedReads() {
+        return estimatedReads;
+    }
+
+    /**
+     * Time from the last booking or cancel of the day until this listener saw it, or -1.
+     * Based on the writing device's clock, so it is only as good as the clocks agree.
+     */
+    public long getLastLagMs() {
+        return lastLagMs;
+    }
+
+    private void recordSnapshot(DocumentSnapshot snapshot, boolean fromCache) {
+        if (fromCache) {
+            return;
+        }
+        // A missing document is billed as a read too
+        estimatedReads++;
+        Long updatedAt = snapshot.exists() ? snapshot.getLong("updatedAt") : null;
+        // Our own writes show up before they are committed; only count confirmed ones
+        if (updatedAt != null && !snapshot.getMetadata().hasPendingWrites()) {
+            lastLagMs = System.currentTimeMillis() - updatedAt;
+            Log.d(TAG, "Covers updated " + lastLagMs + "ms after the write, reads: " + estimatedReads);
+        }
+    }
+}
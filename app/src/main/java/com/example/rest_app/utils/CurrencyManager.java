@@ -1,15 +1,18 @@
 package com.example.rest_app.utils;
 
-import android.os.AsyncTask;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
-import org.json.JSONObject;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import com.example.rest_app.model.Money;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Locale;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class CurrencyManager {
     private static final String TAG = "CurrencyManager";
@@ -19,19 +22,97 @@ public class CurrencyManager {
     private static final String API_KEY = "97a4dcdc46f82f4dffe77771";
     private static final String API_BASE_URL = "https://v6.exchangerate-api.com/v6/" + API_KEY + "/latest/USD";
     private static final String BASE_CURRENCY = "USD";
+    // The API publishes new rates once a day; refresh well within that
+    private static final long RATES_TTL_MS = 6 * 60 * 60 * 1000L;
+    private static final long RETRY_DELAY_MS = 5 * 60 * 1000L;
+    private static final int CONNECT_TIMEOUT_MS = 8000;
+    // Without it a server that stops sending mid-body holds the IO thread (and fetchInFlight) forever
+    static final int READ_TIMEOUT_MS = 10000;
 
-    // Cache the exchange rates
-    private final Map<String, Double> exchangeRates = new HashMap<>();
-    private String currentCurrencyCode = BASE_CURRENCY;
-    private CurrencyUpdateListener listener;
+    // Registry, rates and selection, swapped as a whole so readers on any thread see a consistent set
+    private final AtomicReference<RateTable> table;
+    private ExchangeRateCache rateCache;
+    private boolean fetchInFlight;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable refreshRunnable = this::startFetch;
 
-    public interface CurrencyUpdateListener {
-        void onRatesLoaded();
+    // Metrics
+    private long cacheHits;
+    private long cacheMisses;
+    private long staleServes;
+
+    /**
+     * Immutable snapshot of everything a price lookup needs. Updates build a new table
+     * (copying the rate array) and publish it atomically; lookups never lock.
+     */
+    private static final class RateTable {
+        final CurrencyRegistry registry;
+        // Compiled per-currency formats with memoized results, called for every price on every bind
+        final PriceFormatter formatter;
+        // Rates against BASE_CURRENCY indexed like the registry (NaN = unknown); never written after publication
+        final double[] rates;
+        final int baseIndex;
+        final int currentIndex;
+        // Until a currency's rate is known, prices stay in the base currency rather than showing a wrong symbol
+        final int displayIndex;
+        // Wall clock time the rates were fetched, 0 if only the base rate is known
+        final long fetchedAt;
+
+        RateTable(CurrencyRegistry registry, PriceFormatter formatter, double[] rates, int currentIndex, long fetchedAt) {
+            this.registry = registry;
+            this.formatter = formatter;
+            this.rates = rates;
+            this.baseIndex = registry.indexOf(BASE_CURRENCY);
+            this.currentIndex = currentIndex;
+            this.displayIndex = Double.isNaN(rates[currentIndex]) ? baseIndex : currentIndex;
+            this.fetchedAt = fetchedAt;
+        }
+
+        static RateTable initial(CurrencyRegistry registry) {
+            double[] rates = new double[registry.size()];
+            Arrays.fill(rates, Double.NaN);
+            int base = registry.indexOf(BASE_CURRENCY);
+            rates[base] = 1.0;
+            return new RateTable(registry, new PriceFormatter(registry), rates, base, 0);
+        }
+
+        RateTable withCurrent(int index) {
+            return new RateTable(registry, formatter, rates, index, fetchedAt);
+        }
+
+        RateTable withRates(Map<String, Double> fetched, long newFetchedAt) {
+            double[] newRates = rates.clone();
+            for (Map.Entry<String, Double> rate : fetched.entrySet()) {
+                int index = registry.indexOf(rate.getKey());
+                if (index != CurrencyRegistry.NOT_FOUND && rate.getValue() != null) {
+                    newRates[index] = rate.getValue();
+                }
+            }
+            newRates[baseIndex] = 1.0;
+            return new RateTable(registry, formatter, newRates, currentIndex, newFetchedAt);
+        }
+
+        // Carries the known rates and the selected currency over to another registry
+        RateTable withRegistry(CurrencyRegistry newRegistry) {
+            RateTable next = initial(newRegistry);
+            next = next.withRates(knownRates(), fetchedAt);
+            int index = newRegistry.indexOf(registry.code(currentIndex));
+            return index != CurrencyRegistry.NOT_FOUND ? next.withCurrent(index) : next;
+        }
+
+        Map<String, Double> knownRates() {
+            Map<String, Double> known = new HashMap<>();
+            for (int i = 0; i < rates.length; i++) {
+                if (!Double.isNaN(rates[i])) {
+                    known.put(registry.code(i), rates[i]);
+                }
+            }
+            return known;
+        }
     }
 
-    private CurrencyManager() {
-        // Default conversion: 1.0 for the base currency
-        exchangeRates.put(BASE_CURRENCY, 1.0);
+    CurrencyManager() {
+        table = new AtomicReference<>(RateTable.initial(CurrencyRegistry.builtIn()));
     }
 
     public static synchronized CurrencyManager getInstance() {
@@ -41,126 +122,216 @@ public class CurrencyManager {
         return instance;
     }
 
-    public void setCurrencyUpdateListener(CurrencyUpdateListener listener) {
-        this.listener = listener;
+    // Loads the bundled currency metadata and rates persisted by a previous session, call once at startup
+    public void attachContext(Context context) {
+        if (rateCache != null) {
+            return;
+        }
+        final CurrencyRegistry registry = CurrencyRegistry.load(context, BASE_CURRENCY);
+        table.updateAndGet(current -> current.withRegistry(registry));
+        rateCache = new ExchangeRateCache(context);
+        final ExchangeRateCache.Entry entry = rateCache.read();
+        if (entry != null) {
+            RateTable restored = table.updateAndGet(current ->
+                    current.fetchedAt == 0 ? current.withRates(entry.rates, entry.fetchedAt) : current);
+            if (restored.fetchedAt == entry.fetchedAt) {
+                Log.d(TAG, "Exchange rates restored from disk, age " + getRatesAgeMs() / 1000 + "s");
+            }
+        }
     }
 
+    /**
+     * Makes sure rates are available: fresh cached rates are used as is, stale ones are
+     * served immediately while a refresh runs in the background.
+     */
     public void fetchExchangeRates() {
-        // Only fetch if rates are empty or on a regular interval
-        if (exchangeRates.size() <= 1) {
-            new FetchRatesTask().execute(API_BASE_URL);
+        long fetchedAt = table.get().fetchedAt;
+        if (isFresh()) {
+            cacheHits++;
+            scheduleRefresh(fetchedAt + RATES_TTL_MS - System.currentTimeMillis());
+            return;
+        }
+        if (fetchedAt > 0) {
+            staleServes++;
+        } else {
+            cacheMisses++;
         }
+        startFetch();
+    }
+
+    public boolean isFresh() {
+        long fetchedAt = table.get().fetchedAt;
+        return fetchedAt > 0 && System.currentTimeMillis() - fetchedAt < RATES_TTL_MS;
+    }
+
+    // How old the rates in use are, or -1 if none have been fetched yet
+    public long getRatesAgeMs() {
+        long fetchedAt = table.get().fetchedAt;
+        return fetchedAt > 0 ? System.currentTimeMillis() - fetchedAt : -1;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    // Times expired rates were shown while a refresh was in progress
+    public long getStaleServes() {
+        return staleServes;
+    }
+
+    private void startFetch() {
+        if (fetchInFlight) {
+            return;
+        }
+        fetchInFlight = true;
+        handler.removeCallbacks(refreshRunnable);
+        // Only the currencies we have metadata for are worth parsing out of the response
+        final List<String> wanted = table.get().registry.codes();
+        TaskScheduler.getInstance().submit(TaskScheduler.Pool.IO, "fetch-rates",
+                () -> downloadRates(API_BASE_URL, wanted, READ_TIMEOUT_MS), new TaskScheduler.Callback<Map<String, Double>>() {
+                    @Override
+                    public void onResult(Map<String, Double> result) {
+                        onRatesFetched(result);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        // Rejected by a saturated pool; treat it like a failed fetch
+                        onRatesFetched(null);
+                    }
+                });
+    }
+
+    private void scheduleRefresh(long delayMs) {
+        handler.removeCallbacks(refreshRunnable);
+        handler.postDelayed(refreshRunnable, Math.max(0, delayMs));
     }
 
     /**
      * Converts price from BASE_CURRENCY (USD) to the currently selected currency.
+     * Safe to call from any thread.
      */
     public double convertPrice(double priceInBase) {
-        if (currentCurrencyCode.equals(BASE_CURRENCY) || !exchangeRates.containsKey(currentCurrencyCode)) {
-            return priceInBase;
-        }
-        Double rate = exchangeRates.get(currentCurrencyCode);
-        return rate != null ? priceInBase * rate : priceInBase;
+        RateTable t = table.get();
+        return priceInBase * t.rates[t.displayIndex];
     }
 
     /**
      * Formats the price with the currency symbol and conversion applied.
      */
     public String formatPrice(double priceInBase) {
-        double convertedPrice = convertPrice(priceInBase);
+        RateTable t = table.get();
+        return t.formatter.format(t.displayIndex, priceInBase * t.rates[t.displayIndex]);
+    }
 
-        switch (currentCurrencyCode) {
-            case "EUR":
-                return String.format(Locale.US, "€%.2f", convertedPrice);
-            case "GBP":
-                return String.format(Locale.US, "£%.2f", convertedPrice);
-            case "JPY":
-                return String.format(Locale.US, "¥%.0f", convertedPrice); // No decimals for JPY
-            case "INR":
-                return String.format(Locale.US, "₹%.2f", convertedPrice);
-            case "CAD":
-                return String.format(Locale.US, "C$%.2f", convertedPrice);
-            case BASE_CURRENCY: // USD
-            default:
-                return String.format(Locale.US, "$%.2f", convertedPrice);
-        }
+    /**
+     * Converts an exact amount to the currently selected currency, in major units.
+     * Amounts in another currency are first brought back to BASE_CURRENCY.
+     */
+    public double convertPrice(Money amount) {
+        return convertPrice(table.get(), amount);
+    }
+
+    public String formatPrice(Money amount) {
+        RateTable t = table.get();
+        return t.formatter.format(t.displayIndex, convertPrice(t, amount));
+    }
+
+    // Same as formatPrice(Money) for a base currency amount, without creating a Money
+    public String formatMinor(long minorInBase) {
+        return formatPrice(Money.toMajor(minorInBase));
     }
 
     public String getCurrentCurrencyCode() {
-        return currentCurrencyCode;
+        RateTable t = table.get();
+        return t.registry.code(t.currentIndex);
+    }
+
+    public CurrencyRegistry getRegistry() {
+        return table.get().registry;
     }
 
     /**
      * Sets the new currency code and triggers a UI update.
      */
     public void setCurrentCurrencyCode(String currencyCode) {
-        this.currentCurrencyCode = currencyCode;
-        if (listener != null) {
-            listener.onRatesLoaded(); // Trigger UI refresh in fragments
-        }
-    }
-
-    // AsyncTask for fetching rates from the API
-    private class FetchRatesTask extends AsyncTask<String, Void, Map<String, Double>> {
-        @Override
-        protected Map<String, Double> doInBackground(String... urls) {
-            Map<String, Double> rates = new HashMap<>();
-            HttpURLConnection connection = null;
-            try {
-                URL url = new URL(urls[0]);
-                connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(8000);
-
-                int responseCode = connection.getResponseCode();
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-
-                    JSONObject jsonResponse = new JSONObject(response.toString());
-                    String resultStatus = jsonResponse.getString("result");
-                    if (resultStatus.equals("success")) {
-                        JSONObject ratesObject = jsonResponse.getJSONObject("conversion_rates");
-
-                        // Extract specific currency codes. Add more as needed.
-                        rates.put("USD", ratesObject.getDouble("USD"));
-                        rates.put("EUR", ratesObject.getDouble("EUR"));
-                        rates.put("GBP", ratesObject.getDouble("GBP"));
-                        rates.put("JPY", ratesObject.getDouble("JPY"));
-                        rates.put("INR", ratesObject.getDouble("INR"));
-                        rates.put("CAD", ratesObject.getDouble("CAD"));
-                    } else {
-                        Log.e(TAG, "API call failed. Error: " + jsonResponse.optString("error-type"));
-                    }
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error fetching exchange rates: " + e.getMessage());
-            } finally {
-                if (connection != null) {
-                    connection.disconnect();
-                }
+        if (table.get().registry.indexOf(currencyCode) == CurrencyRegistry.NOT_FOUND) {
+            Log.e(TAG, "Unknown currency " + currencyCode);
+            return;
+        }
+        table.updateAndGet(current -> {
+            int index = current.registry.indexOf(currencyCode);
+            return index != CurrencyRegistry.NOT_FOUND ? current.withCurrent(index) : current;
+        });
+        // Trigger UI refresh in fragments
+        EventBus.getInstance().post(new EventBus.RatesUpdated(currencyCode));
+    }
+
+    private static double convertPrice(RateTable t, Money amount) {
+        double major = amount.toMajor();
+        int index = t.registry.indexOf(amount.getCurrencyCode());
+        if (index == t.displayIndex) {
+            return major;
+        }
+        if (index != t.baseIndex) {
+            if (index == CurrencyRegistry.NOT_FOUND || Double.isNaN(t.rates[index]) || t.rates[index] == 0) {
+                return major; // No rate known, show it unconverted
             }
-            return rates;
+            major /= t.rates[index];
         }
+        return major * t.rates[t.displayIndex];
+    }
 
-        @Override
-        protected void onPostExecute(Map<String, Double> result) {
-            if (result != null && !result.isEmpty()) {
-                exchangeRates.putAll(result);
-                Log.d(TAG, "Exchange rates loaded successfully: " + exchangeRates.keySet());
-            } else {
-                Log.e(TAG, "Failed to load exchange rates. Using default USD.");
-                // Retain default USD rate if API fails
+    // Runs on the IO pool; static so nothing here holds on to UI state. Empty on any failure.
+    static Map<String, Double> downloadRates(String ratesUrl, List<String> wanted, int readTimeoutMs) {
+        Map<String, Double> rates = new HashMap<>();
+        HttpURLConnection connection = null;
+        try {
+            NetworkStats.getInstance().record("rates");
+            URL url = new URL(ratesUrl);
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("GET");
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(readTimeoutMs);
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                // Streams the body and stops once the supported currencies are read
+                try (InputStream in = connection.getInputStream()) {
+                    rates.putAll(JsonResponseParser.parseRates(in, wanted));
+                }
             }
+        } catch (Exception e) {
+            Log.e(TAG, "Error fetching exchange rates: " + e.getMessage());
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+        return rates;
+    }
 
-            if (listener != null) {
-                listener.onRatesLoaded();
+    // Runs on the main thread
+    void onRatesFetched(Map<String, Double> result) {
+        fetchInFlight = false;
+        if (result != null && !result.isEmpty()) {
+            final long fetchedAt = System.currentTimeMillis();
+            RateTable updated = table.updateAndGet(current -> current.withRates(result, fetchedAt));
+            if (rateCache != null) {
+                rateCache.write(fetchedAt, updated.knownRates());
             }
+            scheduleRefresh(RATES_TTL_MS);
+            Log.d(TAG, "Exchange rates loaded successfully for " + result.size() + " currencies");
+        } else {
+            Log.e(TAG, "Failed to load exchange rates. Keeping the last known rates.");
+            // Retain the cached (or default USD) rates and try again later
+            scheduleRefresh(RETRY_DELAY_MS);
         }
+
+        EventBus.getInstance().post(new EventBus.RatesUpdated(getCurrentCurrencyCode()));
     }
-}
\ No newline at end of file
+}
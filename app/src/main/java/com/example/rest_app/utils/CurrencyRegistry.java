@@ -0,0 +1,146 @@
+package com.example.rest_app.utils;
+
+import android.content.Context;
+import android.util.JsonReader;
+import android.util.Log;
+
+import com.example.rest_app.R;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The currencies the app can display, loaded from res/raw/currencies.json. Each currency has
+ * a fixed index, so rate tables and formatters can be plain arrays indexed by it.
+ */
+public final class CurrencyRegistry {
+    private static final String TAG = "CurrencyRegistry";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    public static final int NOT_FOUND = -1;
+
+    private final String[] codes;
+    private final String[] symbols;
+    private final int[] fractionDigits;
+    private final String[] names;
+    private final Map<String, Integer> indexByCode = new HashMap<>();
+    private final List<String> codeList;
+
+    private CurrencyRegistry(List<String> codes, List<String> symbols, List<Integer> fractionDigits, List<String> names) {
+        int size = codes.size();
+        this.codes = codes.toArray(new String[size]);
+        this.symbols = symbols.toArray(new String[size]);
+        this.names = names.toArray(new String[size]);
+        this.fractionDigits = new int[size];
+        for (int i = 0; i < size; i++) {
+            this.fractionDigits[i] = fractionDigits.get(i);
+            indexByCode.put(this.codes[i], i);
+        }
+        this.codeList = Collections.unmodifiableList(Arrays.asList(this.codes));
+    }
+
+    // Falls back to the built-in currencies if the bundled file can't be read
+    public static CurrencyRegistry load(Context context, String requiredCode) {
+        try (InputStream in = context.getResources().openRawResource(R.raw.currencies)) {
+            CurrencyRegistry registry = parse(in);
+            if (registry.indexOf(requiredCode) != NOT_FOUND) {
+                return registry;
+            }
+            Log.e(TAG, "Currency metadata is missing " + requiredCode);
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading currency metadata: " + e.getMessage());
+        }
+        return builtIn();
+    }
+
+    // The currencies the app shipped with, used until the bundled metadata is loaded
+    public static CurrencyRegistry builtIn() {
+        return new CurrencyRegistry(
+                Arrays.asList("USD", "EUR", "GBP", "INR", "JPY", "CAD"),
+                Arrays.asList("$", "€", "£", "₹", "¥", "C$"),
+                Arrays.asList(2, 2, 2, 2, 0, 2), // No decimals for JPY
+                Arrays.asList("US Dollar", "Euro", "British Pound", "Indian Rupee", "Japanese Yen", "Canadian Dollar"));
+    }
+
+    // Reads an array of {"code", "symbol", "digits", "name"} objects
+    static CurrencyRegistry parse(InputStream in) throws IOException {
+        List<String> codes = new ArrayList<>();
+        List<String> symbols = new ArrayList<>();
+        List<Integer> digits = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+
+        JsonReader reader = new JsonReader(new InputStreamReader(in, UTF_8));
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String code = null;
+            String symbol = null;
+            String name = null;
+            int fraction = 2;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "code":
+                        code = reader.nextString();
+                        break;
+                    case "symbol":
+                        symbol = reader.nextString();
+                        break;
+                    case "digits":
+                        fraction = reader.nextInt();
+                        break;
+                    case "name":
+                        name = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (code != null && !codes.contains(code)) {
+                codes.add(code);
+                symbols.add(symbol != null ? symbol : code + " ");
+                digits.add(fraction);
+                names.add(name != null ? name : code);
+            }
+        }
+        reader.endArray();
+        return new CurrencyRegistry(codes, symbols, digits, names);
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    public int indexOf(String code) {
+        Integer index = code != null ? indexByCode.get(code) : null;
+        return index != null ? index : NOT_FOUND;
+    }
+
+    public String code(int index) {
+        return codes[index];
+    }
+
+    public String symbol(int index) {
+        return symbols[index];
+    }
+
+    public int fractionDigits(int index) {
+        return fractionDigits[index];
+    }
+
+    public String name(int index) {
+        return names[index];
+    }
+
+    // All codes in display order
+    public List<String> codes() {
+        return codeList;
+    }
+}
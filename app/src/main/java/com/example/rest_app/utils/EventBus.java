@@ -0,0 +1,215 @@
+package com.example.rest_app.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * App-wide event bus for cart and currency changes. Any number of subscribers can listen,
+ * they are held weakly so a forgotten fragment can still be collected, and events posted
+ * during a frame are delivered together on the next frame, so a burst of changes causes one refresh.
+ */
+public class EventBus {
+    private static EventBus instance;
+
+    public abstract static class Event {
+        // Uptime when the event was posted, used for dispatch latency
+        final long postedAt = SystemClock.uptimeMillis();
+    }
+
+    public static class ItemAdded extends Event {
+        public final String itemId;
+
+        public ItemAdded(String itemId) {
+            this.itemId = itemId;
+        }
+    }
+
+    public static class QuantityChanged extends Event {
+        public final String itemId;
+        public final int quantity;
+
+        public QuantityChanged(String itemId, int quantity) {
+            this.itemId = itemId;
+            this.quantity = quantity;
+        }
+    }
+
+    public static class ItemRemoved extends Event {
+        public final String itemId;
+
+        public ItemRemoved(String itemId) {
+            this.itemId = itemId;
+        }
+    }
+
+    // The whole cart changed at once: cleared, restored from disk or replaced by the remote copy
+    public static class CartReplaced extends Event {
+    }
+
+    // New rates arrived or the selected currency changed
+    public static class RatesUpdated extends Event {
+        public final String currencyCode;
+
+        public RatesUpdated(String currencyCode) {
+            this.currencyCode = currencyCode;
+        }
+    }
+
+    // Convenience set for subscribers that redraw on any cart change
+    @SuppressWarnings("unchecked")
+    public static final Class<? extends Event>[] CART_EVENTS = new Class[]{
+            ItemAdded.class, QuantityChanged.class, ItemRemoved.class, CartReplaced.class};
+
+    public interface Subscriber {
+        // Runs on the main thread once per frame with the events of the subscribed types, oldest first
+        void onEvents(List<Event> events);
+    }
+
+    private static class Subscription {
+        final WeakReference<Subscriber> subscriber;
+        final List<Class<? extends Event>> types;
+
+        Subscription(Subscriber subscriber, List<Class<? extends Event>> types) {
+            this.subscriber = new WeakReference<>(subscriber);
+            this.types = types;
+        }
+
+        boolean wants(Event event) {
+            for (Class<? extends Event> type : types) {
+                if (type.isInstance(event)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Main thread only
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    // Guarded by this
+    private List<Event> pending = new ArrayList<>();
+    private boolean frameScheduled;
+
+    // Metrics, guarded by this
+    private long eventsPosted;
+    private long batchesDispatched;
+    private long totalLatencyMs;
+    private long maxLatencyMs;
+    private long latencySamples;
+
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> dispatch();
+
+    // Tests make their own bus instead of sharing the app-wide one
+    EventBus() {
+    }
+
+    public static synchronized EventBus getInstance() {
+        if (instance == null) {
+            instance = new EventBus();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a subscriber for the given event types. Only a weak reference is kept, so
+     * subscribers must be held elsewhere (fragments subscribing themselves are fine, a bare
+     * lambda is not). Must be called on the main thread.
+     */
+    @SafeVarargs
+    public final void subscribe(Subscriber subscriber, Class<? extends Event>... types) {
+        unsubscribe(subscriber);
+        subscriptions.add(new Subscription(subscriber, Arrays.asList(types)));
+    }
+
+    // Must be called on the main thread
+    public void unsubscribe(Subscriber subscriber) {
+        for (int i = subscriptions.size() - 1; i >= 0; i--) {
+            Subscriber current = subscriptions.get(i).subscriber.get();
+            if (current == null || current == subscriber) {
+                subscriptions.remove(i);
+            }
+        }
+    }
+
+    // Can be called from any thread; delivery happens on the next frame
+    public void post(Event event) {
+        boolean schedule;
+        synchronized (this) {
+            pending.add(event);
+            eventsPosted++;
+            schedule = !frameScheduled;
+            frameScheduled = true;
+        }
+        if (!schedule) {
+            return;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        } else {
+            mainHandler.post(() -> Choreographer.getInstance().postFrameCallback(frameCallback));
+        }
+    }
+
+    public synchronized long getEventsPosted() {
+        return eventsPosted;
+    }
+
+    public synchronized long getBatchesDispatched() {
+        return batchesDispatched;
+    }
+
+    // Time from post until the subscriber was called
+    public synchronized long getAverageDispatchLatencyMs() {
+        return latencySamples == 0 ? 0 : totalLatencyMs / latencySamples;
+    }
+
+    public synchronized long getMaxDispatchLatencyMs() {
+        return maxLatencyMs;
+    }
+
+    private void dispatch() {
+        List<Event> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new ArrayList<>();
+            frameScheduled = false;
+            batchesDispatched++;
+        }
+
+        // Copy so subscribers may (un)subscribe while being called
+        List<Subscription> targets = new ArrayList<>(subscriptions);
+        for (Subscription subscription : targets) {
+            Subscriber subscriber = subscription.subscriber.get();
+            if (subscriber == null) {
+                subscriptions.remove(subscription);
+                continue;
+            }
+            List<Event> matching = new ArrayList<>();
+            for (Event event : batch) {
+                if (subscription.wants(event)) {
+                    matching.add(event);
+                }
+            }
+            if (!matching.isEmpty()) {
+                subscriber.onEvents(matching);
+                recordLatency(SystemClock.uptimeMillis() - matching.get(0).postedAt);
+            }
+        }
+    }
+
+    private synchronized void recordLatency(long latencyMs) {
+        totalLatencyMs += latencyMs;
+        latencySamples++;
+        if (latencyMs > maxLatencyMs) {
+            maxLatencyMs = latencyMs;
+        }
+    }
+}
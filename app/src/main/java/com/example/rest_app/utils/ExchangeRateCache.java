@@ -0,0 +1,82 @@
+package com.example.rest_app.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Keeps the last fetched exchange rates on disk together with the time they were fetched,
+ * so prices can be shown in the selected currency right after a cold start.
+ */
+public class ExchangeRateCache {
+    private static final String TAG = "ExchangeRateCache";
+    private static final String FILE_NAME = "exchange_rates.json";
+
+    public static class Entry {
+        public final long fetchedAt;
+        public final Map<String, Double> rates;
+
+        public Entry(long fetchedAt, Map<String, Double> rates) {
+            this.fetchedAt = fetchedAt;
+            this.rates = rates;
+        }
+    }
+
+    private final AtomicTextFile file;
+
+    public ExchangeRateCache(Context context) {
+        this(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+    }
+
+    public ExchangeRateCache(File file) {
+        this.file = new AtomicTextFile(file);
+    }
+
+    // Reads synchronously; the file only holds a handful of rates
+    public Entry read() {
+        try {
+            String content = file.read();
+            if (content == null) {
+                return null;
+            }
+            JSONObject json = new JSONObject(content);
+            JSONObject ratesObject = json.getJSONObject("rates");
+            Map<String, Double> rates = new HashMap<>();
+            Iterator<String> codes = ratesObject.keys();
+            while (codes.hasNext()) {
+                String code = codes.next();
+                rates.put(code, ratesObject.getDouble(code));
+            }
+            return new Entry(json.getLong("fetchedAt"), rates);
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading exchange rate cache: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Serializes on the caller's thread, writes on a background thread
+    public void write(long fetchedAt, Map<String, Double> rates) {
+        final String payload;
+        try {
+            JSONObject ratesObject = new JSONObject();
+            for (Map.Entry<String, Double> rate : rates.entrySet()) {
+                ratesObject.put(rate.getKey(), rate.getValue().doubleValue());
+            }
+            JSONObject json = new JSONObject();
+            json.put("fetchedAt", fetchedAt);
+            json.put("rates", ratesObject);
+            payload = json.toString();
+        } catch (Exception e) {
+            Log.e(TAG, "Error serializing exchange rates: " + e.getMessage());
+            return;
+        }
+
+        file.writeAsync(payload);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.rest_app.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates unique, time-ordered ids for orders, bookings and reviews.
+ * An id is 13 characters packing 41 bits of milliseconds, the low 10 bits of the device node
+ * and a 12 bit sequence, followed by 8 characters holding the other 40 node bits. One device
+ * can hand out 4096 ids per millisecond without coordination, and the 50 bit random node
+ * keeps two installs from sharing a node (about 50% only at 39 million installs).
+ */
+public class IdGenerator {
+    private static final String PREFS_NAME = "id_generator";
+    private static final String KEY_NODE_ID = "node_id";
+    public static final String BOOKING_PREFIX = "BK_";
+    public static final String REVIEW_PREFIX = "RV_";
+
+    // 2024-01-01T00:00:00Z, keeps the timestamp inside 41 bits until 2093
+    private static final long EPOCH_MS = 1704067200000L;
+    public static final int NODE_BITS = 50;
+    // Node bits inside the time-ordered part; the rest go in the suffix
+    private static final int LOW_NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long NODE_MASK = (1L << NODE_BITS) - 1;
+    private static final long LOW_NODE_MASK = (1L << LOW_NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // Crockford base32; ids sort in the same order as they were generated
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+    private static final int SUFFIX_LENGTH = (NODE_BITS - LOW_NODE_BITS) / 5;
+
+    private static volatile IdGenerator instance;
+
+    private final long lowNode;
+    // The high node bits, encoded once since they are the same in every id
+    private final char[] nodeSuffix = new char[SUFFIX_LENGTH];
+    // Last issued (timestamp << SEQUENCE_BITS | sequence)
+    private final AtomicLong lastTick = new AtomicLong();
+
+    public IdGenerator(long node) {
+        node &= NODE_MASK;
+        this.lowNode = node & LOW_NODE_MASK;
+        long high = node >>> LOW_NODE_BITS;
+        for (int i = SUFFIX_LENGTH - 1; i >= 0; i--) {
+            nodeSuffix[i] = ALPHABET[(int) (high & 31)];
+            high >>>= 5;
+        }
+    }
+
+    private static long randomNode() {
+        return new SecureRandom().nextLong() & NODE_MASK;
+    }
+
+    // Pins the node to a value persisted for this install, call once at startup
+    public static synchronized void init(Context context) {
+        if (instance != null) {
+            return;
+        }
+        SharedPreferences prefs = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        long node = prefs.getLong(KEY_NODE_ID, -1);
+        // Installs from before the node was widened have a 10 bit node; give them a full one
+        if (node <= LOW_NODE_MASK) {
+            node = randomNode();
+            prefs.edit().putLong(KEY_NODE_ID, node).apply();
+        }
+        instance = new IdGenerator(node);
+    }
+
+    public static IdGenerator getInstance() {
+        if (instance == null) {
+            synchronized (IdGenerator.class) {
+                if (instance == null) {
+                    // Not initialised with a context; fall back to a random node for this process
+                    instance = new IdGenerator(randomNode());
+                }
+            }
+        }
+        return instance;
+    }
+
+    public static String newOrderId() {
+        return getInstance().nextId("ORD_");
+    }
+
+    public static String newBookingId() {
+        return getInstance().nextId(BOOKING_PREFIX);
+    }
+
+    public static String newReviewId() {
+        return getInstance().nextId(REVIEW_PREFIX);
+    }
+
+    // Lock-free: if the clock hasn't moved (or went backwards) the sequence keeps counting up
+    public long nextRaw() {
+        long now = (System.currentTimeMillis() - EPOCH_MS) << SEQUENCE_BITS;
+        while (true) {
+            long previous = lastTick.get();
+            long next = now > previous ? now : previous + 1;
+            if (lastTick.compareAndSet(previous, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (LOW_NODE_BITS + SEQUENCE_BITS)) | (lowNode << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * The time-ordered raw value behind an id with the given prefix, or -1 if it isn't one.
+     * Ids from before the node suffix was added decode the same way.
+     */
+    public static long decode(String id, String prefix) {
+        if (id == null || !id.startsWith(prefix)) {
+            return -1;
+        }
+        int length = id.length() - prefix.length();
+        if (length != ENCODED_LENGTH && length != ENCODED_LENGTH + SUFFIX_LENGTH) {
+            return -1;
+        }
+        long raw = 0;
+        for (int i = prefix.length(); i < prefix.length() + ENCODED_LENGTH; i++) {
+            int digit = indexOf(id.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            raw = (raw << 5) | digit;
+        }
+        return raw;
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String nextId(String prefix) {
+        long raw = nextRaw();
+        int prefixLength = prefix.length();
+        char[] chars = new char[prefixLength + ENCODED_LENGTH + SUFFIX_LENGTH];
+        prefix.getChars(0, prefixLength, chars, 0);
+        System.arraycopy(nodeSuffix, 0, chars, prefixLength + ENCODED_LENGTH, SUFFIX_LENGTH);
+        for (int i = prefixLength + ENCODED_LENGTH - 1; i >= prefixLength; i--) {
+            chars[i] = ALPHABET[(int) (raw & 31)];
+            raw >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.rest_app.utils;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pull parsers for the HTTP APIs the app talks to. They read straight off the response
+ * stream, skip values they don't need and stop as soon as they have what was asked for,
+ * so the full body is never held in memory.
+ */
+public final class JsonResponseParser {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private JsonResponseParser() {
+    }
+
+    /**
+     * Parses an ExchangeRate-API "latest" response. Only the codes in wanted are kept
+     * (all of them if wanted is null), and reading stops once every wanted rate was seen.
+     */
+    public static Map<String, Double> parseRates(InputStream in, Collection<String> wanted) throws IOException {
+        Map<String, Double> rates = new HashMap<>();
+        String result = null;
+        String errorType = null;
+
+        try (JsonReader reader = new JsonReader(new InputStreamReader(in, UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("result".equals(name)) {
+                    result = reader.nextString();
+                } else if ("error-type".equals(name)) {
+                    errorType = reader.nextString();
+                } else if ("conversion_rates".equals(name)) {
+                    // "result" comes first in practice, so this is usually the last thing read
+                    boolean canStopEarly = "success".equals(result);
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String code = reader.nextName();
+                        if (wanted == null || wanted.contains(code)) {
+                            rates.put(code, reader.nextDouble());
+                            if (canStopEarly && wanted != null && rates.size() == wanted.size()) {
+                                return rates;
+                            }
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    if (canStopEarly) {
+                        return rates;
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+        }
+
+        if (!"success".equals(result)) {
+            throw new IOException("API call failed. Error: " + errorType);
+        }
+        return rates;
+    }
+
+    /**
+     * Parses a Zen Quotes response (an array of {"q": quote, "a": author} objects) into
+     * [quote, author] pairs, reading at most max entries.
+     */
+    public static List<String[]> parseQuotes(InputStream in, int max) throws IOException {
+        List<String[]> quotes = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(in, UTF_8))) {
+            reader.beginArray();
+            while (reader.hasNext() && quotes.size() < max) {
+                String quote = null;
+                String author = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if ("q".equals(name) && reader.peek() == JsonToken.STRING) {
+                        quote = reader.nextString();
+                    } else if ("a".equals(name) && reader.peek() == JsonToken.STRING) {
+                        author = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (quote != null && author != null) {
+                    quotes.add(new String[]{quote, author});
+                }
+            }
+        }
+        return quotes;
+    }
+}
@@ -0,0 +1,515 @@
+package com.example.rest_app.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.rest_app.model.FoodItem;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pages the menu catalog from the Firestore "menu" collection and keeps the pages on disk.
+ * On cold start the first page is served from disk straight away; the cache is only
+ * refetched when the catalog version in menuMeta/catalog changes.
+ */
+public class MenuRepository {
+    private static final String TAG = "MenuRepository";
+    private static final String CACHE_DIR = "menu_cache";
+    public static final int PAGE_SIZE = 40;
+
+    private static MenuRepository instance;
+
+    public interface MenuCallback {
+        // pageIndex 0 means the list should be replaced, anything else is appended
+        void onPage(List<FoodItem> items, int pageIndex, boolean hasMore);
+    }
+
+    // Where pages come from; the Firestore one is used in the app
+    public interface RemoteSource {
+        void fetchVersion(RemoteCallback<Long> callback);
+
+        // Items ordered by name, then id; after is the last item of the previous page, or null
+        void fetchPage(FoodItem after, int limit, RemoteCallback<List<FoodItem>> callback);
+    }
+
+    public interface RemoteCallback<T> {
+        void onResult(T result, long bytes);
+        void onError(Exception e);
+    }
+
+    private final File cacheDir;
+    private final RemoteSource remote;
+    private final Handler mainHandler;
+
+    // Pages loaded this session, in order
+    private final List<List<FoodItem>> pages = new ArrayList<>();
+    private long cachedVersion = -1;
+    private int cachedPageCount;
+    private boolean versionCurrent;
+    private boolean endReached;
+    private boolean loading;
+
+    // Metrics
+    private long loadStartedAt;
+    private long timeToFirstItemMs = -1;
+    private long bytesFetched;
+    private int remoteReads;
+
+    public MenuRepository(File cacheDir, RemoteSource remote) {
+        this(cacheDir, remote, new Handler(Looper.getMainLooper()));
+    }
+
+    // Callbacks are delivered on the handler's thread
+    MenuRepository(File cacheDir, RemoteSource remote, Handler mainHandler) {
+        this.cacheDir = cacheDir;
+        this.remote = remote;
+        this.mainHandler = mainHandler;
+    }
+
+    public static synchronized MenuRepository getInstance(Context context) {
+        if (instance == null) {
+            File dir = new File(context.getApplicationContext().getCacheDir(), CACHE_DIR);
+            instance = new MenuRepository(dir, new FirestoreSource(FirebaseFirestore.getInstance()));
+        }
+        return instance;
+    }
+
+    public long getTimeToFirstItemMs() {
+        return timeToFirstItemMs;
+    }
+
+    public long getBytesFetched() {
+        return bytesFetched;
+    }
+
+    public int getRemoteReads() {
+        return remoteReads;
+    }
+
+    public boolean hasMore() {
+        return !endReached;
+    }
+
+    // Everything loaded so far, in catalog order
+    public List<FoodItem> getLoadedItems() {
+        List<FoodItem> items = new ArrayList<>();
+        for (List<FoodItem> page : pages) {
+            items.addAll(page);
+        }
+        return items;
+    }
+
+    public void loadFirstPage(MenuCallback callback) {
+        if (!pages.isEmpty()) {
+            // Already loaded this session (e.g. the fragment was recreated)
+            callback.onPage(getLoadedItems(), 0, !endReached);
+            if (!versionCurrent) {
+                checkVersion(callback);
+            }
+            return;
+        }
+
+        loadStartedAt = SystemClock.uptimeMillis();
+        AtomicTextFile.runOnDiskThread(() -> {
+            final JSONObject meta = readJson(new File(cacheDir, "meta.json"));
+            final List<FoodItem> firstPage = meta != null ? readPage(0) : null;
+            mainHandler.post(() -> {
+                if (meta != null && firstPage != null) {
+                    cachedVersion = meta.optLong("version", -1);
+                    cachedPageCount = meta.optInt("pages", 0);
+                    // endReached is about the last cached page, not this one
+                    endReached = meta.optBoolean("endReached") && cachedPageCount <= 1;
+                    pages.add(firstPage);
+                    deliver(callback, firstPage, 0);
+                    Log.d(TAG, "Menu served from disk cache (version " + cachedVersion + ")");
+                }
+                checkVersion(callback);
+            });
+        });
+    }
+
+    public void loadNextPage(MenuCallback callback) {
+        if (loading || endReached || pages.isEmpty()) {
+            return;
+        }
+        final int pageIndex = pages.size();
+        loading = true;
+
+        if (versionCurrent && pageIndex < cachedPageCount) {
+            AtomicTextFile.runOnDiskThread(() -> {
+                final List<FoodItem> page = readPage(pageIndex);
+                mainHandler.post(() -> {
+                    if (page != null) {
+                        loading = false;
+                        pages.add(page);
+                        if (pageIndex == cachedPageCount - 1) {
+                            endReached = page.size() < PAGE_SIZE;
+                        }
+                        deliver(callback, page, pageIndex);
+                    } else {
+                        fetchRemotePage(pageIndex, callback);
+                    }
+                });
+            });
+        } else {
+            fetchRemotePage(pageIndex, callback);
+        }
+    }
+
+    private void checkVersion(MenuCallback callback) {
+        loading = true;
+        remoteReads++;
+        NetworkStats.getInstance().record("menu");
+        remote.fetchVersion(new RemoteCallback<Long>() {
+            @Override
+            public void onResult(Long version, long bytes) {
+                bytesFetched += bytes;
+                if (version != null && version == cachedVersion && !pages.isEmpty()) {
+                    versionCurrent = true;
+                    loading = false;
+                    return;
+                }
+                // Catalog changed (or nothing cached): start over from the first page
+                cachedVersion = version != null ? version : -1;
+                cachedPageCount = 0;
+                versionCurrent = true;
+                endReached = false;
+                clearDiskCache();
+                fetchRemotePage(0, callback);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error checking menu version: " + e.getMessage());
+                loading = false;
+                if (pages.isEmpty()) {
+                    serveBundledMenu(callback);
+                }
+            }
+        });
+    }
+
+    private void fetchRemotePage(int pageIndex, MenuCallback callback) {
+        loading = true;
+        FoodItem after = null;
+        if (pageIndex > 0) {
+            List<FoodItem> lastPage = pages.get(pageIndex - 1);
+            after = lastPage.get(lastPage.size() - 1);
+        }
+
+        remoteReads++;
+        NetworkStats.getInstance().record("menu");
+        remote.fetchPage(after, PAGE_SIZE, new RemoteCallback<List<FoodItem>>() {
+            @Override
+            public void onResult(List<FoodItem> items, long bytes) {
+                loading = false;
+                bytesFetched += bytes;
+                if (pageIndex == 0 && items.isEmpty()) {
+                    // Nothing published in the menu collection yet
+                    serveBundledMenu(callback);
+                    return;
+                }
+
+                if (pageIndex == 0) {
+                    pages.clear();
+                }
+                pages.add(items);
+                endReached = items.size() < PAGE_SIZE;
+                cachedPageCount = pages.size();
+                writePage(pageIndex, items);
+                deliver(callback, items, pageIndex);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                loading = false;
+                Log.e(TAG, "Error loading menu page " + pageIndex + ": " + e.getMessage());
+                if (pages.isEmpty()) {
+                    serveBundledMenu(callback);
+                }
+            }
+        });
+    }
+
+    private void deliver(MenuCallback callback, List<FoodItem> items, int pageIndex) {
+        if (timeToFirstItemMs < 0 && !items.isEmpty()) {
+            timeToFirstItemMs = SystemClock.uptimeMillis() - loadStartedAt;
+            Log.d(TAG, "First menu item visible after " + timeToFirstItemMs + "ms");
+        }
+        callback.onPage(new ArrayList<>(items), pageIndex, !endReached);
+    }
+
+    private void serveBundledMenu(MenuCallback callback) {
+        List<FoodItem> items = getBundledMenu();
+        pages.clear();
+        pages.add(items);
+        endReached = true;
+        // Not written to disk, so the next cold start tries the remote catalog again
+        versionCurrent = true;
+        deliver(callback, items, 0);
+    }
+
+    // Disk cache
+
+    private List<FoodItem> readPage(int pageIndex) {
+        JSONObject json = readJson(new File(cacheDir, "page_" + pageIndex + ".json"));
+        if (json == null) {
+            return null;
+        }
+        List<FoodItem> items = new ArrayList<>();
+        JSONArray array = json.optJSONArray("items");
+        for (int i = 0; array != null && i < array.length(); i++) {
+            JSONObject line = array.optJSONObject(i);
+            if (line == null) continue;
+            FoodItem item = new FoodItem(
+                    line.optString("name"),
+                    line.optString("description"),
+                    line.optDouble("price", 0),
+                    line.optString("imageUrl"),
+                    line.optString("category"),
+                    line.optInt("calories", 0)
+            );
+            item.setId(line.optString("id", item.getName()));
+            items.add(item);
+        }
+        return items;
+    }
+
+    private void writePage(int pageIndex, List<FoodItem> items) {
+        final String pageJson;
+        final String metaJson;
+        try {
+            JSONArray array = new JSONArray();
+            for (FoodItem item : items) {
+                JSONObject line = new JSONObject();
+                line.put("id", item.getId());
+                line.put("name", item.getName());
+                line.put("description", item.getDescription());
+                line.put("price", item.getPrice());
+                line.put("imageUrl", item.getImageUrl());
+                line.put("category", item.getCategory());
+                line.put("calories", item.getCalories());
+                array.put(line);
+            }
+            JSONObject page = new JSONObject();
+            page.put("items", array);
+            pageJson = page.toString();
+
+            JSONObject meta = new JSONObject();
+            meta.put("version", cachedVersion);
+            meta.put("pages", cachedPageCount);
+            meta.put("endReached", endReached);
+            metaJson = meta.toString();
+        } catch (Exception e) {
+            Log.e(TAG, "Error serializing menu page: " + e.getMessage());
+            return;
+        }
+
+        AtomicTextFile.runOnDiskThread(() -> {
+            if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+                Log.e(TAG, "Could not create menu cache dir");
+                return;
+            }
+            try {
+                new AtomicTextFile(new File(cacheDir, "page_" + pageIndex + ".json")).write(pageJson);
+                // Meta last, so it never points at a page that isn't on disk
+                new AtomicTextFile(new File(cacheDir, "meta.json")).write(metaJson);
+            } catch (Exception e) {
+                Log.e(TAG, "Error writing menu page " + pageIndex + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private void clearDiskCache() {
+        AtomicTextFile.runOnDiskThread(() -> {
+            File[] files = cacheDir.listFiles();
+            if (files == null) return;
+            for (File file : files) {
+                if (!file.delete()) {
+                    Log.e(TAG, "Could not delete " + file.getName());
+                }
+            }
+        });
+    }
+
+    private static JSONObject readJson(File file) {
+        try {
+            String content = new AtomicTextFile(file).read();
+            return content != null ? new JSONObject(content) : null;
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Firestore source: menu/{itemId} documents ordered by name and id, version in menuMeta/catalog
+    private static class FirestoreSource implements RemoteSource {
+        private final FirebaseFirestore firestore;
+
+        FirestoreSource(FirebaseFirestore firestore) {
+            this.firestore = firestore;
+        }
+
+        @Override
+        public void fetchVersion(RemoteCallback<Long> callback) {
+            firestore.collection("menuMeta")
+                    .document("catalog")
+                    .get()
+                    .addOnSuccessListener(document -> callback.onResult(document.getLong("version"), 32))
+                    .addOnFailureListener(callback::onError);
+        }
+
+        @Override
+        public void fetchPage(FoodItem after, int limit, RemoteCallback<List<FoodItem>> callback) {
+            // The id breaks ties, so items sharing a name with the last one of a page aren't skipped
+            Query query = firestore.collection("menu")
+                    .orderBy("name")
+                    .orderBy(FieldPath.documentId())
+                    .limit(limit);
+            if (after != null) {
+                query = query.startAfter(after.getName(), after.getId());
+            }
+            query.get()
+                    .addOnSuccessListener(snapshot -> {
+                        List<FoodItem> items = new ArrayList<>();
+                        long bytes = 0;
+                        for (DocumentSnapshot document : snapshot.getDocuments()) {
+                            Double price = document.getDouble("price");
+                            Long calories = document.getLong("calories");
+                            FoodItem item = new FoodItem(
+                                    document.getString("name"),
+                                    document.getString("description"),
+                                    price != null ? price : 0,
+                                    document.getString("imageUrl"),
+                                    document.getString("category"),
+                                    calories != null ? calories.intValue() : 0
+                            );
+                            item.setId(document.getId());
+                            items.add(item);
+                            bytes += estimateBytes(item);
+                        }
+                        callback.onResult(items, bytes);
+                    })
+                    .addOnFailureListener(callback::onError);
+        }
+
+        private static long estimateBytes(FoodItem item) {
+            return length(item.getId()) + length(item.getName()) + length(item.getDescription())
+                    + length(item.getImageUrl()) + length(item.getCategory()) + 16;
+        }
+
+        private static int length(String value) {
+            return value != null ? value.length() : 0;
+        }
+    }
+
+    // Shipped with the app so the menu still shows before the catalog has been published
+    public static List<FoodItem> getBundledMenu() {
+        List<FoodItem> items = new ArrayList<>();
+        // 10 Delicious Food Items with Your Image URLs
+        items.add(new FoodItem("Spicy Chicken Burger",
+                "Crispy fried chicken with spicy mayo, fresh lettuce, tomato, and pickles. Served with golden fries.",
+                12.99,
+                "https://images.unsplash.com/photo-1690650262031-b01b6e172374?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8OHx8U3BpY3klMjBDaGlja2VuJTIwQnVyZ2VyfGVufDB8fDB8fHww",
+                "Burgers",
+                560));
+
+        items.add(new FoodItem("Classic Beef Burger",
+                "Juicy beef patty with melted cheese, crisp lettuce, ripe tomato, and our special sauce on a toasted bun.",
+                11.99,
+                "https://images.unsplash.com/photo-1645024679624-e8351ac98f01?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8MTF8fFNwaWN5JTIwQ2hpY2tlbiUyMEJ1cmdlcnxlbnwwfHwwfHx8MA%3D%3D",
+                "Burgers",
+                620));
+
+        items.add(new FoodItem("Margherita Pizza",
+                "Classic Italian pizza with fresh tomato sauce, mozzarella, basil, and extra virgin olive oil.",
+                14.99,
+                "https://images.unsplash.com/photo-1564936281291-294551497d81?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8NHx8TWFyZ2hlcml0YSUyMFBpenphfGVufDB8fDB8fHww",
+                "Pizza",
+                850));
+
+        items.add(new FoodItem("Pepperoni Supreme",
+                "Loaded with spicy pepperoni, mozzarella cheese, and our signature tomato sauce on thin crust.",
+                16.99,
+                "https://images.unsplash.com/photo-1595854341625-f33ee10dbf94?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8OHx8TWFyZ2hlcml0YSUyMFBpenphfGVufDB8fDB8fHww",
+                "Pizza",
+                920));
+
+        items.add(new FoodItem("Creamy Alfredo Pasta",
+                "Fettuccine pasta tossed in rich, creamy Alfredo sauce with parmesan and fresh herbs.",
+                11.99,
+                "https://media.istockphoto.com/id/1501557025/photo/pasta.webp?a=1&s=612x612&w=0&k=20&c=lINOnT_giw8rfPqhQQ9KZkyL-23pUJmLOCZ5pcY0f-E=",
+                "Pasta",
+                720));
+
+        items.add(new FoodItem("Spaghetti Bolognese",
+                "Traditional spaghetti with slow-cooked meat sauce, parmesan, and fresh basil.",
+                12.99,
+                "https://media.istockphoto.com/id/1357859588/photo/pasta-bolognese.webp?a=1&s=612x612&w=0&k=20&c=dZ2jzLixDHjl4S4lN1nR8NvoQUKDOqW1tAeubjQRtH0=",
+                "Pasta",
+                680));
+
+        items.add(new FoodItem("California Sushi Roll",
+                "Fresh avocado, crab meat, cucumber wrapped in sushi rice and nori. Served with soy sauce.",
+                8.99,
+                "https://media.istockphoto.com/id/1139967411/photo/sushi-rolls-different-taste-rainbow-color-serving-food-background-top-view.webp?a=1&s=612x612&w=0&k=20&c=JTiYeUfIJo8IkECQimtGO1iCYzgmeWSshvuoM_34-9o=",
+                "Asian",
+                320));
+
+        items.add(new FoodItem("Grilled Salmon Steak",
+                "Atlantic salmon grilled to perfection with lemon butter sauce and seasonal vegetables.",
+                22.99,
+                "https://media.istockphoto.com/id/2154123683/photo/fresh-cooked-delicious-salmon-steak-with-spices-and-herbs.webp?a=1&s=612x612&w=0&k=20&c=-Rc0TQl1gDrBp-0XO1Q3swT8KnhXitTSaJ5LgjHCXRA=",
+                "Seafood",
+                480));
+
+        items.add(new FoodItem("Chocolate Lava Cake",
+                "Warm chocolate cake with molten center, served with vanilla ice cream and berry compote.",
+                7.99,
+                "https://images.unsplash.com/photo-1673551490812-eaee2e9bf0ef?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8Mnx8Q2hvY29sYXRlJTIwTGF2YSUyMENha2V8ZW58MHx8MHx8fDA%3D",
+                "Desserts",
+                420));
+
+        items.add(new FoodItem("Fresh Berry Smoothie",
+                "Mixed berries blended with yogurt and honey. Refreshing and packed with antioxidants.",
+                5.99,
+                "https://media.istockphoto.com/id/970519622/photo/yogurt-and-strawberry-smoothie-in-jar-on-wooden-table.webp?a=1&s=612x612&w=0&k=20&c=EiRyDpiD4x_vaP044o-DtmXfhAMo3ni-gKBhkgE1t1U=",
+                "Drinks",
+                180));
+
+        // Bonus Items (You can add more if needed)
+        items.add(new FoodItem("BBQ Chicken Wings",
+                "Crispy chicken wings glazed with homemade BBQ sauce. Served with ranch dip and celery sticks.",
+                9.99,
+                "https://media.istockphoto.com/id/1312295903/photo/glazed-bbq-chicken-wings-cooked-on-the-grill-closeup.webp?a=1&s=612x612&w=0&k=20&c=po1ulv8AcSLH-9KLyaA6p6JfjqPaYlw8WzLlt_stXOU=",
+                "Appetizers",
+                380));
+
+        items.add(new FoodItem("Beef Tacos",
+                "Three soft tortillas filled with seasoned beef, lettuce, cheese, and fresh salsa.",
+                10.99,
+                "https://images.unsplash.com/photo-1687881063470-a78e6ea2590e?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8NHx8QmVlZiUyMFRhY29zfGVufDB8fDB8fHww",
+                "Mexican",
+                450));
+
+        items.add(new FoodItem("Gourmet Salad Bowl",
+                "Mixed greens with cherry tomatoes, cucumber, olives, feta cheese, and balsamic dressing.",
+                8.99,
+                "https://images.unsplash.com/photo-1676300186659-030de568e39a?w=500&auto=format&fit=crop&q=60&ixlib=rb-4.1.0&ixid=M3wxMjA3fDB8MHxzZWFyY2h8M3x8R291cm1ldCUyMFNhbGFkJTIwQm93bHxlbnwwfHwwfHx8MA%3D%3D",
+                "Salads",
+                280));
+        return items;
+    }
+}
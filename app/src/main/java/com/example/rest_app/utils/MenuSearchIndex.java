@@ -0,0 +1,288 @@
+package com.example.rest_app.utils;
+
+import com.example.rest_app.model.FoodItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory search index over menu items. Text is lowercased and tokenized once when an
+ * item is added; queries are matched by token prefix (via a sorted token dictionary) and
+ * by substring (via a trigram index, or a scan for terms under three characters), and
+ * results are ranked by where the match was found.
+ */
+public class MenuSearchIndex {
+    private static final int FIELD_NAME = 1;
+    private static final int FIELD_CATEGORY = 2;
+    private static final int FIELD_DESCRIPTION = 4;
+    private static final int FIELD_BITS = 3;
+
+    private static final int MATCH_EXACT = 3;
+    private static final int MATCH_PREFIX = 2;
+    private static final int MATCH_INFIX = 1;
+
+    // Postings are (slot << FIELD_BITS | fieldMask)
+    private static class Postings {
+        int[] entries = new int[4];
+        int size;
+
+        void add(int entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+    }
+
+    private final TreeMap<String, Postings> tokens = new TreeMap<>();
+    private final Map<String, Postings> trigrams = new HashMap<>();
+    private final Map<String, Integer> slotsById = new HashMap<>();
+    private final List<FoodItem> items = new ArrayList<>();
+    // Lowercased "name category description", kept to verify substring matches
+    private final List<String> searchText = new ArrayList<>();
+    private boolean[] alive = new boolean[16];
+    private int liveCount;
+
+    // Scratch space reused across queries
+    private int[] totalScore = new int[16];
+    private int[] termScore = new int[16];
+    private int[] termsMatched = new int[16];
+    private int[] touched = new int[16];
+    private int[] termTouched = new int[16];
+    private long[] ranking = new long[16];
+
+    public synchronized void clear() {
+        tokens.clear();
+        trigrams.clear();
+        slotsById.clear();
+        items.clear();
+        searchText.clear();
+        Arrays.fill(alive, false);
+        liveCount = 0;
+    }
+
+    public synchronized void addAll(List<FoodItem> newItems) {
+        for (FoodItem item : newItems) {
+            add(item);
+        }
+    }
+
+    // Adds the item, or re-indexes it if an item with the same id is already present
+    public synchronized void add(FoodItem item) {
+        remove(item.getId());
+
+        int slot = items.size();
+        items.add(item);
+        ensureCapacity(slot + 1);
+        alive[slot] = true;
+        liveCount++;
+        slotsById.put(item.getId(), slot);
+
+        String name = lower(item.getName());
+        String category = lower(item.getCategory());
+        String description = lower(item.getDescription());
+        searchText.add(name + " " + category + " " + description);
+
+        Map<String, Integer> fieldMasks = new HashMap<>();
+        collectTokens(name, FIELD_NAME, fieldMasks);
+        collectTokens(category, FIELD_CATEGORY, fieldMasks);
+        collectTokens(description, FIELD_DESCRIPTION, fieldMasks);
+        for (Map.Entry<String, Integer> entry : fieldMasks.entrySet()) {
+            postingsFor(tokens, entry.getKey()).add(slot << FIELD_BITS | entry.getValue());
+            addTrigrams(entry.getKey(), slot);
+        }
+    }
+
+    // Removed items are tombstoned; their slots are skipped at query time
+    public synchronized void remove(String itemId) {
+        Integer slot = slotsById.remove(itemId);
+        if (slot != null && alive[slot]) {
+            alive[slot] = false;
+            liveCount--;
+        }
+    }
+
+    public synchronized int size() {
+        return liveCount;
+    }
+
+    /**
+     * Returns items matching every word of the query, best matches first.
+     * Name matches rank above category matches, which rank above description matches.
+     */
+    public synchronized List<FoodItem> search(String query) {
+        List<String> terms = splitTerms(query);
+        List<FoodItem> results = new ArrayList<>();
+        if (terms.isEmpty()) {
+            return results;
+        }
+
+        int touchedCount = 0;
+        for (int t = 0; t < terms.size(); t++) {
+            String term = terms.get(t);
+            int termTouchedCount = scoreTerm(term);
+
+            // Fold this term's best score per item into the running totals
+            for (int i = 0; i < termTouchedCount; i++) {
+                int slot = termTouched[i];
+                if (termsMatched[slot] == t) {
+                    if (t == 0) {
+                        touched[touchedCount++] = slot;
+                    }
+                    termsMatched[slot] = t + 1;
+                    totalScore[slot] += termScore[slot];
+                }
+                termScore[slot] = 0;
+            }
+        }
+
+        int resultCount = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int slot = touched[i];
+            if (termsMatched[slot] == terms.size()) {
+                // Higher score first, then catalog order
+                ranking[resultCount++] = ((long) (Integer.MAX_VALUE - totalScore[slot]) << 32) | slot;
+            }
+            termsMatched[slot] = 0;
+            totalScore[slot] = 0;
+        }
+
+        Arrays.sort(ranking, 0, resultCount);
+        for (int i = 0; i < resultCount; i++) {
+            results.add(items.get((int) ranking[i]));
+        }
+        return results;
+    }
+
+    // Scores one query term into termScore; returns how many slots were written to termTouched
+    private int scoreTerm(String term) {
+        int count = 0;
+
+        // Token prefix matches (includes exact matches)
+        SortedMap<String, Postings> range = tokens.subMap(term, term + Character.MAX_VALUE);
+        for (Map.Entry<String, Postings> entry : range.entrySet()) {
+            int matchKind = entry.getKey().length() == term.length() ? MATCH_EXACT : MATCH_PREFIX;
+            Postings postings = entry.getValue();
+            for (int i = 0; i < postings.size; i++) {
+                int slot = postings.entries[i] >>> FIELD_BITS;
+                if (!alive[slot]) continue;
+                int score = matchKind * fieldWeight(postings.entries[i] & ((1 << FIELD_BITS) - 1));
+                if (termScore[slot] == 0) {
+                    termTouched[count++] = slot;
+                }
+                if (score > termScore[slot]) {
+                    termScore[slot] = score;
+                }
+            }
+        }
+
+        // Substring matches inside words, e.g. "urger" in "burger"
+        if (term.length() >= 3) {
+            Postings candidates = trigrams.get(term.substring(0, 3));
+            if (candidates != null) {
+                for (int i = 0; i < candidates.size; i++) {
+                    int slot = candidates.entries[i];
+                    if (!alive[slot] || termScore[slot] != 0) continue;
+                    if (searchText.get(slot).contains(term)) {
+                        termScore[slot] = MATCH_INFIX;
+                        termTouched[count++] = slot;
+                    }
+                }
+            }
+        } else {
+            // Too short for a trigram, e.g. "ur" in "burger"; these match so many items that
+            // scanning the text is about as cheap as any index would be
+            for (int slot = 0; slot < items.size(); slot++) {
+                if (!alive[slot] || termScore[slot] != 0) continue;
+                if (searchText.get(slot).contains(term)) {
+                    termScore[slot] = MATCH_INFIX;
+                    termTouched[count++] = slot;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int fieldWeight(int fieldMask) {
+        if ((fieldMask & FIELD_NAME) != 0) return 4;
+        if ((fieldMask & FIELD_CATEGORY) != 0) return 2;
+        return 1;
+    }
+
+    private void collectTokens(String text, int field, Map<String, Integer> fieldMasks) {
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = text.substring(start, i);
+                Integer mask = fieldMasks.get(token);
+                fieldMasks.put(token, mask == null ? field : mask | field);
+                start = -1;
+            }
+        }
+    }
+
+    private void addTrigrams(String token, int slot) {
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            Postings postings = postingsFor(trigrams, token.substring(i, i + 3));
+            // Tokens of the same item are added together, so a repeat is always the last entry
+            if (postings.size == 0 || postings.entries[postings.size - 1] != slot) {
+                postings.add(slot);
+            }
+        }
+    }
+
+    private static Postings postingsFor(Map<String, Postings> map, String key) {
+        Postings postings = map.get(key);
+        if (postings == null) {
+            postings = new Postings();
+            map.put(key, postings);
+        }
+        return postings;
+    }
+
+    private static List<String> splitTerms(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lowerQuery.length(); i++) {
+            boolean wordChar = i < lowerQuery.length() && Character.isLetterOrDigit(lowerQuery.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(lowerQuery.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static String lower(String text) {
+        return text != null ? text.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= alive.length) {
+            return;
+        }
+        int newSize = Math.max(capacity, alive.length * 2);
+        alive = Arrays.copyOf(alive, newSize);
+        totalScore = Arrays.copyOf(totalScore, newSize);
+        termScore = Arrays.copyOf(termScore, newSize);
+        termsMatched = Arrays.copyOf(termsMatched, newSize);
+        touched = Arrays.copyOf(touched, newSize);
+        termTouched = Arrays.copyOf(termTouched, newSize);
+        ranking = Arrays.copyOf(ranking, newSize);
+    }
+}
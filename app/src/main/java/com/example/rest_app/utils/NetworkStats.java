@@ -0,0 +1,59 @@
+package com.example.rest_app.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the network requests the app starts, in total and per source ("menu", "rates",
+ * "bookings", ...), so screens can see how many calls a user action caused.
+ */
+public class NetworkStats {
+    private static NetworkStats instance;
+
+    private final AtomicLong total = new AtomicLong();
+    private final Map<String, AtomicLong> bySource = new ConcurrentHashMap<>();
+
+    private NetworkStats() {
+    }
+
+    public static synchronized NetworkStats getInstance() {
+        if (instance == null) {
+            instance = new NetworkStats();
+        }
+        return instance;
+    }
+
+    // Call right before issuing a request; safe from any thread
+    public void record(String source) {
+        total.incrementAndGet();
+        AtomicLong counter = bySource.get(source);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = bySource.putIfAbsent(source, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    public long getCount(String source) {
+        AtomicLong counter = bySource.get(source);
+        return counter != null ? counter.get() : 0;
+    }
+
+    // Copy of the per source counts
+    public Map<String, Long> snapshot() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : bySource.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+}
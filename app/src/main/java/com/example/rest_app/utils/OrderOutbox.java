@@ -0,0 +1,371 @@
+package com.example.rest_app.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Durable queue for placed orders. An order is appended to a local journal before
+ * placeOrder returns, then uploaded in the background with retry and backoff.
+ * Uploads use set() on orders/{orderId}, so retrying an order is idempotent. An upload that
+ * hasn't been acknowledged within the timeout counts as failed, since Firestore keeps offline
+ * writes pending instead of failing them.
+ */
+public class OrderOutbox {
+    private static final String TAG = "OrderOutbox";
+    private static final String JOURNAL_NAME = "order_outbox.journal";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long INITIAL_BACKOFF_MS = 2000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+    static final long UPLOAD_TIMEOUT_MS = 30 * 1000;
+
+    private static OrderOutbox instance;
+
+    public interface OrderUploader {
+        void upload(String orderId, Map<String, Object> orderData, UploadCallback callback);
+    }
+
+    public interface UploadCallback {
+        void onSuccess();
+        void onFailure(Exception e);
+    }
+
+    private static class PendingOrder {
+        final String orderId;
+        final Map<String, Object> orderData;
+        int attempts;
+        long nextAttemptAt;
+
+        PendingOrder(String orderId, Map<String, Object> orderData) {
+            this.orderId = orderId;
+            this.orderData = orderData;
+        }
+    }
+
+    private final File journal;
+    private final OrderUploader uploader;
+    private final long uploadTimeoutMs;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    // Only touched on the executor thread
+    private final Map<String, PendingOrder> pending = new LinkedHashMap<>();
+    private PendingOrder uploading;
+    private int uploadingAttempt;
+    // Set when a journal line couldn't be read; the journal is then never deleted
+    private boolean journalDamaged;
+    // Orders journaled but not yet picked up by the executor, guarded by this
+    private int inboundOrders;
+    // Whether the journal ends in a newline, guarded by this; null until checked
+    private Boolean journalTerminated;
+
+    // Counters
+    private volatile int pendingCount;
+    private volatile int failedCount;
+    private volatile long deliveredCount;
+    private volatile long failedAttempts;
+
+    public OrderOutbox(File journal, OrderUploader uploader) {
+        this(journal, uploader, UPLOAD_TIMEOUT_MS);
+    }
+
+    OrderOutbox(File journal, OrderUploader uploader, long uploadTimeoutMs) {
+        this.journal = journal;
+        this.uploader = uploader;
+        this.uploadTimeoutMs = uploadTimeoutMs;
+        executor.execute(() -> {
+            replayJournal();
+            drainOnExecutor();
+        });
+    }
+
+    public static synchronized OrderOutbox getInstance(Context context) {
+        if (instance == null) {
+            File journal = new File(context.getApplicationContext().getFilesDir(), JOURNAL_NAME);
+            FirebaseFirestore firestore = FirebaseFirestore.getInstance();
+            instance = new OrderOutbox(journal, (orderId, orderData, callback) ->
+                    firestore.collection("orders")
+                            .document(orderId)
+                            .set(orderData)
+                            .addOnSuccessListener(aVoid -> callback.onSuccess())
+                            .addOnFailureListener(callback::onFailure));
+        }
+        return instance;
+    }
+
+    /**
+     * Commits the order to the local journal and schedules the upload.
+     * Returns false only if the order could not be written to disk.
+     */
+    public boolean enqueue(String orderId, Map<String, Object> orderData) {
+        final Map<String, Object> copy = new HashMap<>(orderData);
+        try {
+            String json = new JSONObject(orderData).toString();
+            // Queued under the same lock as the journal write and the replay: an order the replay
+            // already picked up is then still pending when this runs, so it isn't uploaded twice
+            synchronized (this) {
+                appendToJournal("P\t" + orderId + "\t" + json + "\n");
+                inboundOrders++;
+                executor.execute(() -> {
+                    synchronized (this) {
+                        inboundOrders--;
+                    }
+                    if (!pending.containsKey(orderId)) {
+                        pending.put(orderId, new PendingOrder(orderId, copy));
+                        pendingCount = pending.size();
+                    }
+                    drainOnExecutor();
+                });
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error writing order to journal: " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    // Retry anything waiting on backoff right away (e.g. when the app comes back to the foreground)
+    public void drain() {
+        executor.execute(() -> {
+            for (PendingOrder order : pending.values()) {
+                order.nextAttemptAt = 0;
+            }
+            drainOnExecutor();
+        });
+    }
+
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    // Orders whose last upload attempt failed and are waiting to retry
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    public long getDeliveredCount() {
+        return deliveredCount;
+    }
+
+    public long getFailedAttempts() {
+        return failedAttempts;
+    }
+
+    private void drainOnExecutor() {
+        if (uploading != null || pending.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        PendingOrder next = null;
+        long earliestRetry = Long.MAX_VALUE;
+        for (PendingOrder order : pending.values()) {
+            if (order.nextAttemptAt <= now) {
+                next = order;
+                break;
+            }
+            earliestRetry = Math.min(earliestRetry, order.nextAttemptAt);
+        }
+
+        if (next == null) {
+            executor.schedule(this::drainOnExecutor, earliestRetry - now, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        final PendingOrder order = next;
+        final int attempt = ++order.attempts;
+        uploading = order;
+        uploadingAttempt = attempt;
+        final ScheduledFuture<?> timeout = executor.schedule(() -> onUploadFailed(order, attempt,
+                new TimeoutException("No acknowledgement after " + uploadTimeoutMs + "ms")),
+                uploadTimeoutMs, TimeUnit.MILLISECONDS);
+        uploader.upload(order.orderId, order.orderData, new UploadCallback() {
+            @Override
+            public void onSuccess() {
+                executor.execute(() -> {
+                    timeout.cancel(false);
+                    onUploaded(order, attempt);
+                });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                executor.execute(() -> {
+                    timeout.cancel(false);
+                    onUploadFailed(order, attempt, e);
+                });
+            }
+        });
+    }
+
+    private boolean isCurrentUpload(PendingOrder order, int attempt) {
+        return uploading == order && uploadingAttempt == attempt;
+    }
+
+    // A late success of a timed-out attempt still counts; the order is only delivered once
+    private void onUploaded(PendingOrder order, int attempt) {
+        if (isCurrentUpload(order, attempt)) {
+            uploading = null;
+        }
+        if (pending.remove(order.orderId) != null) {
+            // Pending first, so nobody sees the order both delivered and pending
+            pendingCount = pending.size();
+            deliveredCount++;
+            try {
+                appendToJournal("D\t" + order.orderId + "\n");
+            } catch (Exception e) {
+                // Worst case the order is uploaded again on next start, which set() makes harmless
+                Log.e(TAG, "Error marking order delivered: " + e.getMessage());
+            }
+        }
+        if (pending.isEmpty()) {
+            compactJournal();
+        }
+        updateCounts();
+        Log.d(TAG, "Order " + order.orderId + " delivered after " + order.attempts + " attempt(s)");
+        drainOnExecutor();
+    }
+
+    private void onUploadFailed(PendingOrder order, int attempt, Exception e) {
+        if (!isCurrentUpload(order, attempt)) {
+            return; // Already timed out, or delivered in the meantime
+        }
+        uploading = null;
+        failedAttempts++;
+        long backoff = Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << Math.min(order.attempts - 1, 16));
+        order.nextAttemptAt = System.currentTimeMillis() + backoff;
+        updateCounts();
+        Log.e(TAG, "Order " + order.orderId + " upload failed (attempt " + order.attempts
+                + "), retrying in " + backoff + "ms: " + (e != null ? e.getMessage() : "unknown error"));
+        drainOnExecutor();
+    }
+
+    private void updateCounts() {
+        int failed = 0;
+        for (PendingOrder order : pending.values()) {
+            if (order.attempts > 0) {
+                failed++;
+            }
+        }
+        pendingCount = pending.size();
+        failedCount = failed;
+    }
+
+    private synchronized void appendToJournal(String record) throws Exception {
+        if (journalTerminated == null) {
+            journalTerminated = endsWithNewline(journal);
+        }
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            // A crash mid-append leaves a torn line; end it so this record starts on its own line
+            out.write(((journalTerminated ? "" : "\n") + record).getBytes(UTF_8));
+            out.getFD().sync();
+        }
+        journalTerminated = true;
+    }
+
+    private static boolean endsWithNewline(File file) throws Exception {
+        if (!file.exists() || file.length() == 0) {
+            return true;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(file.length() - 1);
+            return in.read() == '\n';
+        }
+    }
+
+    private synchronized void compactJournal() {
+        // Everything in the journal has been delivered, so it can start over empty. Not if some
+        // of it couldn't be read: those lines may be orders, so the file is kept for recovery.
+        if (inboundOrders > 0 || journalDamaged) {
+            return;
+        }
+        if (journal.exists() && !journal.delete()) {
+            Log.e(TAG, "Could not compact order journal");
+        }
+        journalTerminated = true;
+    }
+
+    // Holds the lock so no order is journaled halfway through, see enqueue
+    private synchronized void replayJournal() {
+        if (!journal.exists()) {
+            return;
+        }
+        int badLines = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journal), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Each line on its own, so one torn or corrupt record doesn't hide the ones after it
+                try {
+                    String[] parts = line.split("\t", 3);
+                    if (parts.length == 3 && "P".equals(parts[0])) {
+                        pending.put(parts[1], new PendingOrder(parts[1], toMap(new JSONObject(parts[2]))));
+                    } else if (parts.length >= 2 && "D".equals(parts[0])) {
+                        pending.remove(parts[1]);
+                    } else if (!line.isEmpty()) {
+                        badLines++;
+                    }
+                } catch (Exception e) {
+                    badLines++;
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error replaying order journal: " + e.getMessage());
+            badLines++;
+        }
+        if (badLines > 0) {
+            journalDamaged = true;
+            Log.e(TAG, "Skipped " + badLines + " unreadable line(s) in the order journal");
+        }
+        updateCounts();
+        Log.d(TAG, "Replayed order journal, " + pending.size() + " order(s) pending");
+    }
+
+    private static Map<String, Object> toMap(JSONObject json) throws Exception {
+        Map<String, Object> map = new HashMap<>();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            map.put(key, fromJson(json.get(key)));
+        }
+        return map;
+    }
+
+    private static Object fromJson(Object value) throws Exception {
+        if (value instanceof JSONObject) {
+            return toMap((JSONObject) value);
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            List<Object> list = new ArrayList<>();
+            for (int i = 0; i < array.length(); i++) {
+                list.add(fromJson(array.get(i)));
+            }
+            return list;
+        }
+        if (value == JSONObject.NULL) {
+            return null;
+        }
+        return value;
+    }
+}
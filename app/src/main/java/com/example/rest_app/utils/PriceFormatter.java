@@ -0,0 +1,147 @@
+package com.example.rest_app.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Formats prices without String.format. Each currency is compiled once into a symbol and
+ * fraction digit count, digits are written into a reused per-thread char buffer, and recent results
+ * are memoized per currency in a small direct-mapped cache (a colliding entry simply replaces the old one).
+ * Safe to use from several threads without locking.
+ */
+public class PriceFormatter {
+    private static final int CACHE_SIZE = 512; // per currency, must be a power of two
+
+    private static class CurrencyFormat {
+        final char[] symbol;
+        final int fractionDigits;
+        final long scale;
+        // Entries are immutable, so a racing reader sees either the old or the new pair, never a mix
+        final CacheEntry[] cache = new CacheEntry[CACHE_SIZE];
+
+        CurrencyFormat(String symbol, int fractionDigits) {
+            this.symbol = symbol.toCharArray();
+            this.fractionDigits = fractionDigits;
+            long s = 1;
+            for (int i = 0; i < fractionDigits; i++) {
+                s *= 10;
+            }
+            this.scale = s;
+        }
+    }
+
+    private static class CacheEntry {
+        final long bits;
+        final String text;
+
+        CacheEntry(long bits, String text) {
+            this.bits = bits;
+            this.text = text;
+        }
+    }
+
+    private final CurrencyRegistry registry;
+    // Indexed like the registry
+    private final CurrencyFormat[] formats;
+    private final ThreadLocal<char[]> buffers = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[48];
+        }
+    };
+
+    // Metrics
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    public PriceFormatter(CurrencyRegistry registry) {
+        this.registry = registry;
+        this.formats = new CurrencyFormat[registry.size()];
+        for (int i = 0; i < formats.length; i++) {
+            formats[i] = new CurrencyFormat(registry.symbol(i), registry.fractionDigits(i));
+        }
+    }
+
+    // Unknown codes are formatted like the registry's first currency
+    public String format(String currencyCode, double amount) {
+        int index = registry.indexOf(currencyCode);
+        return format(index != CurrencyRegistry.NOT_FOUND ? index : 0, amount);
+    }
+
+    // Same output as String.format(Locale.US, symbol + "%.Nf", amount)
+    public String format(int currencyIndex, double amount) {
+        CurrencyFormat format = formats[currencyIndex];
+        if (Double.isNaN(amount) || Double.isInfinite(amount)
+                || Math.abs(amount) >= Long.MAX_VALUE / format.scale) {
+            return String.valueOf(format.symbol) + String.format(Locale.US, "%." + format.fractionDigits + "f", amount);
+        }
+
+        long bits = Double.doubleToLongBits(amount);
+        int slot = (int) (bits ^ (bits >>> 32)) * 0x9E3779B9 >>> (32 - Integer.numberOfTrailingZeros(CACHE_SIZE));
+        CacheEntry cached = format.cache[slot];
+        if (cached != null && cached.bits == bits) {
+            cacheHits.increment();
+            return cached.text;
+        }
+
+        cacheMisses.increment();
+        String formatted = render(format, amount);
+        format.cache[slot] = new CacheEntry(bits, formatted);
+        return formatted;
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * The amount in minor units, rounded half up from its shortest decimal form (what
+     * Double.toString prints), as String.format does. Scaling the double and calling Math.round
+     * only agrees when the scaled value isn't close to half a unit: 1.005 * 100 is
+     * 100.49999999999999, which rounds to 1.00 instead of 1.01.
+     */
+    private static long toUnits(double magnitude, CurrencyFormat format) {
+        double scaled = magnitude * format.scale;
+        double fraction = scaled - Math.floor(scaled);
+        if (scaled < 1e12 && Math.abs(fraction - 0.5) > 1e-3) {
+            return Math.round(scaled);
+        }
+        return BigDecimal.valueOf(magnitude).setScale(format.fractionDigits, RoundingMode.HALF_UP)
+                .unscaledValue().longValue();
+    }
+
+    private String render(CurrencyFormat format, double amount) {
+        char[] buffer = buffers.get();
+        boolean negative = Double.doubleToRawLongBits(amount) < 0; // Includes -0.0, as String.format does
+        long units = toUnits(Math.abs(amount), format);
+        long whole = units / format.scale;
+        long fraction = units % format.scale;
+
+        // Fill the buffer from the right: fraction, point, whole part, sign, symbol
+        int pos = buffer.length;
+        if (format.fractionDigits > 0) {
+            for (int i = 0; i < format.fractionDigits; i++) {
+                buffer[--pos] = (char) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            buffer[--pos] = '.';
+        }
+        do {
+            buffer[--pos] = (char) ('0' + whole % 10);
+            whole /= 10;
+        } while (whole > 0);
+        if (negative) {
+            buffer[--pos] = '-';
+        }
+        for (int i = format.symbol.length - 1; i >= 0; i--) {
+            buffer[--pos] = format.symbol[i];
+        }
+        return new String(buffer, pos, buffer.length - pos);
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.rest_app.utils;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Serves Zen quotes from a local pool instead of one HTTP call per screen. The pool is filled
+ * with a whole batch in a single request, kept on disk between sessions, and topped up in the
+ * background once it runs low. Each quote is shown once and then dropped; the file catches up
+ * every few quotes and when the screen showing them stops.
+ */
+public class QuoteProvider {
+    private static final String TAG = "QuoteProvider";
+    private static QuoteProvider instance;
+
+    // Returns a batch of random quotes (50 at the time of writing) in the same format as /random
+    private static final String BATCH_URL = "https://zenquotes.io/api/quotes";
+    private static final String FILE_NAME = "quotes.json";
+    private static final int MAX_POOL_SIZE = 100;
+    // Refill when fewer quotes than this are left
+    private static final int LOW_WATER_MARK = 10;
+    private static final long RETRY_DELAY_MS = 5 * 60 * 1000L;
+    private static final int CONNECT_TIMEOUT_MS = 8000;
+    private static final int READ_TIMEOUT_MS = 8000;
+    // Served quotes are dropped from the file in batches; a crash repeats at most this many
+    private static final int PERSIST_EVERY = 10;
+
+    public interface QuoteCallback {
+        // Runs on the main thread with [quote, author], or null if nothing could be loaded
+        void onQuote(String[] quote);
+    }
+
+    private static class Request {
+        final LifecycleOwner owner;
+        final QuoteCallback callback;
+
+        Request(LifecycleOwner owner, QuoteCallback callback) {
+            this.owner = owner;
+            this.callback = callback;
+        }
+    }
+
+    private final AtomicTextFile file;
+
+    // Main thread only
+    private final ArrayDeque<String[]> pool = new ArrayDeque<>();
+    private final Set<String> pooledTexts = new HashSet<>();
+    private final List<Request> waiting = new ArrayList<>();
+    private boolean loaded;
+    private boolean loading;
+    private boolean refillInFlight;
+    private long lastFailureAt;
+    // Quotes served since the pool was last written
+    private int unsavedTakes;
+    private LifecycleOwner flushOwner;
+
+    // Metrics for this session
+    private int quotesServed;
+    private int networkFetches;
+
+    private QuoteProvider(Context context) {
+        this.file = new AtomicTextFile(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+    }
+
+    public static synchronized QuoteProvider getInstance(Context context) {
+        if (instance == null) {
+            instance = new QuoteProvider(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Hands out the next quote. Served straight from memory when the pool has one, otherwise
+     * once the pool is loaded from disk or refilled. Nothing is delivered after the owner is
+     * destroyed. Must be called on the main thread.
+     */
+    public void nextQuote(LifecycleOwner owner, QuoteCallback callback) {
+        flushOnStop(owner);
+        if (!pool.isEmpty()) {
+            callback.onQuote(take());
+            refillIfLow();
+            return;
+        }
+        waiting.add(new Request(owner, callback));
+        if (!loaded) {
+            loadFromDisk();
+        } else if (!refill()) {
+            serveWaiting();
+        }
+    }
+
+    public int getPoolSize() {
+        return pool.size();
+    }
+
+    public int getQuotesServed() {
+        return quotesServed;
+    }
+
+    // HTTP requests made this session; without the pool this would equal getQuotesServed()
+    public int getNetworkFetches() {
+        return networkFetches;
+    }
+
+    private void loadFromDisk() {
+        if (loading) {
+            return;
+        }
+        loading = true;
+        TaskScheduler.getInstance().submit(TaskScheduler.Pool.IO, "quote-cache",
+                () -> readCache(file.getFile()), new TaskScheduler.Callback<List<String[]>>() {
+                    @Override
+                    public void onResult(List<String[]> quotes) {
+                        loading = false;
+                        loaded = true;
+                        addToPool(quotes);
+                        Log.d(TAG, "Restored " + pool.size() + " quotes from disk");
+                        if (pool.isEmpty() && refill()) {
+                            return; // Waiting requests are served once the refill is in
+                        }
+                        serveWaiting();
+                        refillIfLow();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        loading = false;
+                        loaded = true;
+                        if (!refill()) {
+                            serveWaiting();
+                        }
+                    }
+                });
+    }
+
+    private void refillIfLow() {
+        if (pool.size() < LOW_WATER_MARK) {
+            refill();
+        }
+    }
+
+    // Starts a batch download unless one is running or the last one failed recently; true if one is pending
+    private boolean refill() {
+        if (refillInFlight) {
+            return true;
+        }
+        if (lastFailureAt != 0 && SystemClock.uptimeMillis() - lastFailureAt < RETRY_DELAY_MS) {
+            return false;
+        }
+        refillInFlight = true;
+        networkFetches++;
+        TaskScheduler.getInstance().submit(TaskScheduler.Pool.IO, "quote-refill",
+                () -> downloadQuotes(BATCH_URL), new TaskScheduler.Callback<List<String[]>>() {
+                    @Override
+                    public void onResult(List<String[]> quotes) {
+                        onRefilled(quotes);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        Log.e(TAG, "Error fetching quotes: " + e.getMessage());
+                        onRefilled(null);
+                    }
+                });
+        return true;
+    }
+
+    // Runs on the main thread
+    private void onRefilled(List<String[]> quotes) {
+        refillInFlight = false;
+        if (quotes == null || quotes.isEmpty()) {
+            lastFailureAt = SystemClock.uptimeMillis();
+        } else {
+            lastFailureAt = 0;
+            addToPool(quotes);
+            persist();
+            Log.d(TAG, "Fetched " + quotes.size() + " quotes in one request; " + networkFetches
+                    + " requests for " + quotesServed + " quotes served this session");
+        }
+        serveWaiting();
+    }
+
+    private void serveWaiting() {
+        List<Request> requests = new ArrayList<>(waiting);
+        waiting.clear();
+        for (Request request : requests) {
+            if (request.owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+                continue;
+            }
+            request.callback.onQuote(pool.isEmpty() ? null : take());
+        }
+    }
+
+    private String[] take() {
+        String[] quote = pool.poll();
+        pooledTexts.remove(quote[0]);
+        quotesServed++;
+        // Shown quotes are dropped from the file too, so the next session doesn't repeat them
+        if (++unsavedTakes >= PERSIST_EVERY) {
+            persist();
+        }
+        return quote;
+    }
+
+    // Writes the pool once the owner stops, if quotes were served since the last write
+    private void flushOnStop(LifecycleOwner owner) {
+        if (owner == flushOwner || owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+        flushOwner = owner;
+        owner.getLifecycle().addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_STOP || event == Lifecycle.Event.ON_DESTROY) {
+                    if (unsavedTakes > 0) {
+                        persist();
+                    }
+                    source.getLifecycle().removeObserver(this);
+                    if (flushOwner == source) {
+                        flushOwner = null;
+                    }
+                }
+            }
+        });
+    }
+
+    private void addToPool(List<String[]> quotes) {
+        // The API repeats itself now and then; a quote already waiting is not added twice
+        for (String[] quote : quotes) {
+            if (pool.size() >= MAX_POOL_SIZE) {
+                break;
+            }
+            if (pooledTexts.add(quote[0])) {
+                pool.add(quote);
+            }
+        }
+    }
+
+    // Serializes on the main thread, writes on the disk thread
+    private void persist() {
+        final String payload;
+        try {
+            // Stored in the API's own format so the same parser reads it back
+            JSONArray array = new JSONArray();
+            for (String[] quote : pool) {
+                JSONObject json = new JSONObject();
+                json.put("q", quote[0]);
+                json.put("a", quote[1]);
+                array.put(json);
+            }
+            payload = array.toString();
+        } catch (Exception e) {
+            Log.e(TAG, "Error serializing quotes: " + e.getMessage());
+            return;
+        }
+
+        unsavedTakes = 0;
+        file.writeAsync(payload);
+    }
+
+    // Runs on the IO pool
+    private static List<String[]> readCache(File file) throws Exception {
+        if (!file.exists()) {
+            return Collections.emptyList();
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return JsonResponseParser.parseQuotes(in, MAX_POOL_SIZE);
+        }
+    }
+
+    // Runs on the IO pool; static so nothing here holds on to UI state
+    private static List<String[]> downloadQuotes(String batchUrl) throws Exception {
+        HttpURLConnection connection = null;
+        try {
+            NetworkStats.getInstance().record("quotes");
+            URL url = new URL(batchUrl);
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("GET");
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new Exception("Quote request failed with HTTP " + responseCode);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return JsonResponseParser.parseQuotes(in, MAX_POOL_SIZE);
+            }
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+}
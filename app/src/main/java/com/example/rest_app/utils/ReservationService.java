@@ -0,0 +1,176 @@
+package com.example.rest_app.utils;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Books and cancels tables against the shared availability in Firestore. Each day has an
+ * availability/{yyyy-MM-dd} document holding the taken tables per slot; a booking reads it,
+ * picks a table and writes both the day and the booking in one transaction, so two guests
+ * booking at the same moment can never get the same table. The day document also holds the
+ * per-slot guest counts of {@link CoverCounts}, which the same transactions keep in step.
+ */
+public class ReservationService {
+    private static final String TAG = "ReservationService";
+
+    public interface BookingCallback {
+        void onBooked(int table);
+
+        // Nothing was written; reason is meant for the user
+        void onUnavailable(String reason);
+
+        void onError(Exception e);
+    }
+
+    public interface CancelCallback {
+        void onCancelled();
+
+        void onError(Exception e);
+    }
+
+    private final FirebaseFirestore firestore;
+    private final TableAvailability tables;
+
+    public ReservationService(FirebaseFirestore firestore) {
+        this(firestore, TableAvailability.defaultFloorPlan());
+    }
+
+    public ReservationService(FirebaseFirestore firestore, TableAvailability tables) {
+        this.firestore = firestore;
+        this.tables = tables;
+    }
+
+    /**
+     * Reserves a table for the party and saves the booking under bookingId. bookingData is
+     * stored as given, plus the day, table and slots needed to free the table again.
+     */
+    public void book(String bookingId, Map<String, Object> bookingData, long reservationAt,
+                     int guests, BookingCallback callback) {
+        if (reservationAt <= 0) {
+            callback.onUnavailable("Please pick a valid date and time");
+            return;
+        }
+        final String dayKey = BookingTimes.dayKey(reservationAt);
+        final TableAvailability.Seating seating = TableAvailability.seatingAt(BookingTimes.minuteOfDay(reservationAt));
+        final String date = BookingTimes.formatDate(reservationAt);
+        final String time = BookingTimes.formatTime(reservationAt);
+        final int coverSlot = CoverCounts.slotOf(BookingTimes.minuteOfDay(reservationAt));
+        if (seating == null) {
+            callback.onUnavailable(String.format("Seatings start between %s and %s",
+                    clock(TableAvailability.OPEN_MINUTES),
+                    clock(TableAvailability.CLOSE_MINUTES - TableAvailability.SEATING_MINUTES)));
+            return;
+        }
+        if (guests < 1 || guests > tables.largestTable()) {
+            callback.onUnavailable("Our largest table seats " + tables.largestTable());
+            return;
+        }
+
+        final DocumentReference dayRef = firestore.collection("availability").document(dayKey);
+        final DocumentReference bookingRef = firestore.collection("bookings").document(bookingId);
+        // Firestore reruns the function if the day changed underneath it, so it must not keep state between runs
+        final int[] freeTables = new int[1];
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(dayRef);
+            TableAvailability.Day day = TableAvailability.Day.fromList(busyOf(snapshot));
+            int table = tables.reserve(day, seating, guests);
+            if (table < 0) {
+                freeTables[0] = tables.freeTables(day, seating);
+                return -1;
+            }
+            int[] covers = coversOf(snapshot);
+            CoverCounts.add(covers, coverSlot, guests);
+            transaction.set(dayRef, dayData(day, covers));
+
+            Map<String, Object> data = new HashMap<>(bookingData);
+            data.put("day", dayKey);
+            data.put("table", table);
+            data.put("startSlot", seating.startSlot);
+            data.put("slotCount", seating.slotCount);
+            data.put("coverSlot", coverSlot);
+            transaction.set(bookingRef, data);
+            return table;
+        }).addOnSuccessListener(table -> {
+            if (table >= 0) {
+                callback.onBooked(table);
+            } else if (freeTables[0] > 0) {
+                callback.onUnavailable("No table for " + guests + " is free at " + time + " on " + date
+                        + ". Please try another time.");
+            } else {
+                callback.onUnavailable("We're fully booked at " + time + " on " + date
+                        + ". Please try another time.");
+            }
+        }).addOnFailureListener(e -> {
+            Log.e(TAG, "Booking transaction failed: " + e.getMessage());
+            callback.onError(e);
+        });
+    }
+
+    // Deletes the booking and frees its table in the same transaction
+    public void cancel(String bookingId, CancelCallback callback) {
+        final DocumentReference bookingRef = firestore.collection("bookings").document(bookingId);
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot booking = transaction.get(bookingRef);
+            String dayKey = booking.exists() ? booking.getString("day") : null;
+            Long table = booking.exists() ? booking.getLong("table") : null;
+            Long startSlot = booking.exists() ? booking.getLong("startSlot") : null;
+            Long slotCount = booking.exists() ? booking.getLong("slotCount") : null;
+            Long coverSlot = booking.exists() ? booking.getLong("coverSlot") : null;
+            Long partySize = booking.exists() ? booking.getLong("partySize") : null;
+
+            // Bookings made before tables were assigned hold nothing to free, and only bookings
+            // that were added to the covers are taken off them
+            boolean holdsTable = table != null && startSlot != null && slotCount != null;
+            boolean counted = coverSlot != null && partySize != null;
+            if (dayKey != null && (holdsTable || counted)) {
+                DocumentReference dayRef = firestore.collection("availability").document(dayKey);
+                DocumentSnapshot snapshot = transaction.get(dayRef);
+                TableAvailability.Day day = TableAvailability.Day.fromList(busyOf(snapshot));
+                if (holdsTable) {
+                    tables.release(day, table.intValue(), startSlot.intValue(), slotCount.intValue());
+                }
+                int[] covers = coversOf(snapshot);
+                if (counted) {
+                    CoverCounts.add(covers, coverSlot.intValue(), -partySize.intValue());
+                }
+                transaction.set(dayRef, dayData(day, covers));
+            }
+            transaction.delete(bookingRef);
+            return null;
+        }).addOnSuccessListener(result -> callback.onCancelled())
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Cancel transaction failed: " + e.getMessage());
+                    callback.onError(e);
+                });
+    }
+
+    // Replaces the whole day document, so it always carries both the tables and the covers
+    private static Map<String, Object> dayData(TableAvailability.Day day, int[] covers) {
+        Map<String, Object> dayData = new HashMap<>();
+        dayData.put("busy", day.toList());
+        dayData.put("covers", CoverCounts.toList(covers));
+        dayData.put("updatedAt", System.currentTimeMillis());
+        return dayData;
+    }
+
+    private static int[] coversOf(DocumentSnapshot snapshot) {
+        return CoverCounts.fromList(snapshot.exists() ? snapshot.get("covers") : null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> busyOf(DocumentSnapshot snapshot) {
+        Object busy = snapshot.exists() ? snapshot.get("busy") : null;
+        return busy instanceof List ? (List<Long>) busy : null;
+    }
+
+    private static String clock(int minutes) {
+        return String.format("%02d:%02d", minutes / 60, minutes % 60);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.rest_app.utils;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Debounces search input, runs matching off the main thread and delivers only the
+ * result of the latest query. Older queries are cancelled when a newer one arrives.
+ * Matching runs through TaskScheduler; a query the saturated pool rejects is tried again after
+ * the debounce window unless a newer one replaced it.
+ * All public methods must be called on the main thread.
+ */
+public class SearchPipeline<T> {
+    private static final String TAG = "SearchPipeline";
+    public static final long DEFAULT_DEBOUNCE_MS = 150;
+
+    public interface Matcher<T> {
+        // Runs on the background executor
+        List<T> match(String query);
+    }
+
+    public interface ResultListener<T> {
+        // Runs on the main thread
+        void onResults(String query, List<T> results);
+    }
+
+    private final Handler handler;
+    private final TaskScheduler scheduler;
+    private final TaskScheduler.Pool pool;
+    private final Matcher<T> matcher;
+    private final ResultListener<T> listener;
+    private final long debounceMs;
+
+    private Runnable pendingDebounce;
+    private TaskScheduler.TaskHandle runningQuery;
+    private volatile long generation;
+    private long queryStartedAt;
+
+    // Metrics
+    private long queriesIssued;
+    private long queriesCancelled;
+    private long queriesRejected;
+    private long lastLatencyMs;
+    private long totalLatencyMs;
+    private long deliveredCount;
+
+    public SearchPipeline(Handler handler, TaskScheduler scheduler, TaskScheduler.Pool pool, long debounceMs,
+                          Matcher<T> matcher, ResultListener<T> listener) {
+        this.handler = handler;
+        this.scheduler = scheduler;
+        this.pool = pool;
+        this.debounceMs = debounceMs;
+        this.matcher = matcher;
+        this.listener = listener;
+    }
+
+    // Called for every keystroke; the query runs once typing pauses for the debounce window
+    public void onQueryChanged(String query) {
+        if (pendingDebounce == null) {
+            queryStartedAt = SystemClock.uptimeMillis();
+        }
+        cancel();
+        runAfterDebounce(query);
+    }
+
+    // Runs the query right away, e.g. on submit or when the underlying data changed
+    public void submitNow(String query) {
+        cancel();
+        queryStartedAt = SystemClock.uptimeMillis();
+        run(query);
+    }
+
+    // Drops the pending and running query so nothing more is delivered
+    public void cancel() {
+        if (pendingDebounce != null) {
+            handler.removeCallbacks(pendingDebounce);
+            pendingDebounce = null;
+        }
+        if (runningQuery != null) {
+            // Either still matching or its result hasn't been delivered yet
+            runningQuery.cancel();
+            runningQuery = null;
+            queriesCancelled++;
+        }
+        generation++;
+    }
+
+    public long getQueriesIssued() {
+        return queriesIssued;
+    }
+
+    public long getQueriesCancelled() {
+        return queriesCancelled;
+    }
+
+    // Times the pool was saturated and a query had to wait for another try
+    public long getQueriesRejected() {
+        return queriesRejected;
+    }
+
+    // From the first keystroke of a burst until its results were delivered
+    public long getLastLatencyMs() {
+        return lastLatencyMs;
+    }
+
+    public long getAverageLatencyMs() {
+        return deliveredCount == 0 ? 0 : totalLatencyMs / deliveredCount;
+    }
+
+    private void runAfterDebounce(String query) {
+        pendingDebounce = () -> {
+            pendingDebounce = null;
+            run(query);
+        };
+        handler.postDelayed(pendingDebounce, debounceMs);
+    }
+
+    private void run(String query) {
+        final long queryGeneration = ++generation;
+        final long startedAt = queryStartedAt;
+        queriesIssued++;
+        runningQuery = scheduler.submit(pool, "search", () -> {
+            if (queryGeneration != generation) {
+                return null; // A newer query arrived before this one started
+            }
+            return matcher.match(query);
+        }, new TaskScheduler.Callback<List<T>>() {
+            @Override
+            public void onResult(List<T> results) {
+                if (queryGeneration != generation) {
+                    return; // Stale, a newer query superseded it while matching
+                }
+                runningQuery = null;
+                lastLatencyMs = SystemClock.uptimeMillis() - startedAt;
+                totalLatencyMs += lastLatencyMs;
+                deliveredCount++;
+                listener.onResults(query, results);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (queryGeneration != generation) {
+                    return;
+                }
+                runningQuery = null;
+                if (e instanceof RejectedExecutionException) {
+                    queriesRejected++;
+                    runAfterDebounce(query);
+                } else {
+                    Log.e(TAG, "Search for \"" + query + "\" failed: " + e.getMessage());
+                }
+            }
+        });
+    }
+}
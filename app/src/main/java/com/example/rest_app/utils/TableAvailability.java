@@ -0,0 +1,163 @@
+package com.example.rest_app.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Table capacity model for reservations. Opening hours are cut into half-hour slots and each
+ * seating holds a table for two hours. A day is one long per slot whose bits are the tables
+ * taken in that slot, so checking a seating is a handful of ANDs, and picking the smallest
+ * free table that fits is a binary search plus a bit scan.
+ */
+public final class TableAvailability {
+    public static final int OPEN_MINUTES = 11 * 60;
+    public static final int CLOSE_MINUTES = 23 * 60;
+    public static final int SLOT_MINUTES = 30;
+    public static final int SLOTS_PER_DAY = (CLOSE_MINUTES - OPEN_MINUTES) / SLOT_MINUTES;
+    public static final int SEATING_MINUTES = 120;
+    // One bit per table in a slot's long
+    public static final int MAX_TABLES = 64;
+
+    // Seats per table on the restaurant floor
+    private static final int[] DEFAULT_TABLE_SEATS = {2, 2, 2, 2, 4, 4, 4, 4, 4, 4, 6, 6, 6, 8, 10};
+
+    // Sorted ascending, so lower table numbers are the smaller tables
+    private final int[] seats;
+    private final long allTables;
+
+    // Slots a seating covers; startSlot is counted from OPEN_MINUTES
+    public static final class Seating {
+        public final int startSlot;
+        public final int slotCount;
+
+        Seating(int startSlot, int slotCount) {
+            this.startSlot = startSlot;
+            this.slotCount = slotCount;
+        }
+    }
+
+    // Which tables are taken in each slot of one day
+    public static final class Day {
+        final long[] busy = new long[SLOTS_PER_DAY];
+
+        // Reads the "busy" array of an availability document; null or short lists mean free slots
+        public static Day fromList(List<Long> busy) {
+            Day day = new Day();
+            if (busy != null) {
+                for (int i = 0; i < Math.min(busy.size(), SLOTS_PER_DAY); i++) {
+                    Long bits = busy.get(i);
+                    day.busy[i] = bits != null ? bits : 0;
+                }
+            }
+            return day;
+        }
+
+        public List<Long> toList() {
+            List<Long> list = new ArrayList<>(SLOTS_PER_DAY);
+            for (long bits : busy) {
+                list.add(bits);
+            }
+            return list;
+        }
+    }
+
+    public TableAvailability(int[] tableSeats) {
+        if (tableSeats.length == 0 || tableSeats.length > MAX_TABLES) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_TABLES + " tables are supported");
+        }
+        this.seats = tableSeats.clone();
+        Arrays.sort(this.seats);
+        this.allTables = seats.length == MAX_TABLES ? -1L : (1L << seats.length) - 1;
+    }
+
+    public static TableAvailability defaultFloorPlan() {
+        return new TableAvailability(DEFAULT_TABLE_SEATS);
+    }
+
+    public int tableCount() {
+        return seats.length;
+    }
+
+    public int seatsAt(int table) {
+        return seats[table];
+    }
+
+    public int largestTable() {
+        return seats[seats.length - 1];
+    }
+
+    /**
+     * The slots a seating starting at the given minute of the day covers, or null if it
+     * wouldn't start and end within opening hours.
+     */
+    public static Seating seatingAt(int minuteOfDay) {
+        if (minuteOfDay < OPEN_MINUTES || minuteOfDay + SEATING_MINUTES > CLOSE_MINUTES) {
+            return null;
+        }
+        int offset = minuteOfDay - OPEN_MINUTES;
+        int startSlot = offset / SLOT_MINUTES;
+        // A seating that doesn't start on a slot boundary also takes the slot it ends in
+        int endSlot = (offset + SEATING_MINUTES + SLOT_MINUTES - 1) / SLOT_MINUTES;
+        return new Seating(startSlot, endSlot - startSlot);
+    }
+
+    /**
+     * Smallest free table that seats the party for the whole seating, or -1 if there is none.
+     * Does not change the day.
+     */
+    public int findTable(Day day, Seating seating, int party) {
+        int first = firstTableSeating(party);
+        if (first == seats.length) {
+            return -1;
+        }
+        long candidates = allTables & (-1L << first);
+        for (int slot = seating.startSlot; slot < seating.startSlot + seating.slotCount && candidates != 0; slot++) {
+            candidates &= ~day.busy[slot];
+        }
+        return candidates == 0 ? -1 : Long.numberOfTrailingZeros(candidates);
+    }
+
+    // Finds and takes a table in one step; returns the table or -1
+    public int reserve(Day day, Seating seating, int party) {
+        int table = findTable(day, seating, party);
+        if (table >= 0) {
+            long bit = 1L << table;
+            for (int slot = seating.startSlot; slot < seating.startSlot + seating.slotCount; slot++) {
+                day.busy[slot] |= bit;
+            }
+        }
+        return table;
+    }
+
+    public void release(Day day, int table, int startSlot, int slotCount) {
+        long mask = ~(1L << table);
+        for (int slot = Math.max(0, startSlot); slot < Math.min(SLOTS_PER_DAY, startSlot + slotCount); slot++) {
+            day.busy[slot] &= mask;
+        }
+    }
+
+    // Number of tables still free for the whole seating, whatever their size
+    public int freeTables(Day day, Seating seating) {
+        long free = allTables;
+        for (int slot = seating.startSlot; slot < seating.startSlot + seating.slotCount; slot++) {
+            free &= ~day.busy[slot];
+        }
+        return Long.bitCount(free);
+    }
+
+    // Index of the first table with at least party seats (seats is sorted), or seats.length
+    private int firstTableSeating(int party) {
+        int low = 0;
+        int high = seats.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (seats[mid] < party) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.rest_app.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * App-wide background task scheduler. Work goes to one of two bounded, named thread pools:
+ * IO for network and disk access, CPU for parsing and searching. Results are delivered on the
+ * main thread, and tasks tied to a lifecycle are cancelled when it is destroyed.
+ */
+public class TaskScheduler {
+    private static final String TAG = "TaskScheduler";
+    private static TaskScheduler instance;
+
+    public enum Pool {
+        IO,
+        CPU
+    }
+
+    public interface BackgroundWork<T> {
+        // Runs on a pool thread
+        T run() throws Exception;
+    }
+
+    public interface Callback<T> {
+        // Runs on the main thread; not called once the task was cancelled
+        void onResult(T result);
+
+        default void onError(Exception e) {
+            Log.e(TAG, "Background task failed: " + e.getMessage());
+        }
+    }
+
+    // Returned by submit so the caller can cancel the task
+    public static class TaskHandle {
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+
+        public void cancel() {
+            cancelled = true;
+            Future<?> running = future;
+            if (running != null) {
+                running.cancel(true);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    // Per pool counters, in milliseconds
+    private static class PoolStats {
+        final AtomicLong submitted = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong totalQueueWaitMs = new AtomicLong();
+        final AtomicLong totalRunMs = new AtomicLong();
+        final AtomicLong maxQueueDepth = new AtomicLong();
+    }
+
+    private final Handler mainHandler;
+    private final ThreadPoolExecutor ioPool;
+    private final ThreadPoolExecutor cpuPool;
+    private final PoolStats ioStats = new PoolStats();
+    private final PoolStats cpuStats = new PoolStats();
+
+    private TaskScheduler() {
+        this(new Handler(Looper.getMainLooper()),
+                // IO threads mostly wait on sockets and files, so a few more than cores is fine
+                createPool("app-io", 4, 64, Process.THREAD_PRIORITY_BACKGROUND),
+                createPool("app-cpu", cpuThreads(), 128,
+                        Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE));
+    }
+
+    // Results are delivered on mainHandler's thread
+    TaskScheduler(Handler mainHandler, ThreadPoolExecutor ioPool, ThreadPoolExecutor cpuPool) {
+        this.mainHandler = mainHandler;
+        this.ioPool = ioPool;
+        this.cpuPool = cpuPool;
+    }
+
+    public static synchronized TaskScheduler getInstance() {
+        if (instance == null) {
+            instance = new TaskScheduler();
+        }
+        return instance;
+    }
+
+    public <T> TaskHandle submit(Pool pool, String name, BackgroundWork<T> work, Callback<T> callback) {
+        TaskHandle handle = new TaskHandle();
+        ThreadPoolExecutor executor = executorFor(pool);
+        PoolStats stats = statsFor(pool);
+        final long queuedAt = SystemClock.uptimeMillis();
+
+        try {
+            handle.future = executor.submit(() -> {
+                long startedAt = SystemClock.uptimeMillis();
+                stats.totalQueueWaitMs.addAndGet(startedAt - queuedAt);
+                if (handle.cancelled) {
+                    return;
+                }
+
+                T result = null;
+                Exception error = null;
+                try {
+                    result = work.run();
+                } catch (Exception e) {
+                    error = e;
+                } finally {
+                    stats.totalRunMs.addAndGet(SystemClock.uptimeMillis() - startedAt);
+                    stats.completed.incrementAndGet();
+                }
+
+                final T finalResult = result;
+                final Exception finalError = error;
+                mainHandler.post(() -> {
+                    if (handle.cancelled || callback == null) {
+                        return;
+                    }
+                    if (finalError != null) {
+                        callback.onError(finalError);
+                    } else {
+                        callback.onResult(finalResult);
+                    }
+                });
+            });
+            stats.submitted.incrementAndGet();
+            updateMax(stats.maxQueueDepth, executor.getQueue().size());
+        } catch (RejectedExecutionException e) {
+            stats.rejected.incrementAndGet();
+            Log.w(TAG, pool + " pool is saturated, dropping " + name);
+            handle.cancelled = true;
+            if (callback != null) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        }
+        return handle;
+    }
+
+    /**
+     * Same as submit, but the task is cancelled when the owner is destroyed.
+     * Fragments should pass getViewLifecycleOwner() so nothing is delivered to a destroyed view.
+     * Must be called on the main thread.
+     */
+    public <T> TaskHandle submit(LifecycleOwner owner, Pool pool, String name,
+                                 BackgroundWork<T> work, Callback<T> callback) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            TaskHandle handle = new TaskHandle();
+            handle.cancelled = true;
+            return handle;
+        }
+
+        // Stops observing once the result is in; the result is dropped if the owner is gone
+        final LifecycleEventObserver[] observer = new LifecycleEventObserver[1];
+        Callback<T> lifecycleCallback = new Callback<T>() {
+            @Override
+            public void onResult(T result) {
+                lifecycle.removeObserver(observer[0]);
+                if (callback != null) {
+                    callback.onResult(result);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                lifecycle.removeObserver(observer[0]);
+                if (callback != null) {
+                    callback.onError(e);
+                }
+            }
+        };
+
+        TaskHandle handle = submit(pool, name, work, lifecycleCallback);
+        observer[0] = (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                handle.cancel();
+                lifecycle.removeObserver(observer[0]);
+            }
+        };
+        lifecycle.addObserver(observer[0]);
+        return handle;
+    }
+
+    public int getQueueDepth(Pool pool) {
+        return executorFor(pool).getQueue().size();
+    }
+
+    public long getMaxQueueDepth(Pool pool) {
+        return statsFor(pool).maxQueueDepth.get();
+    }
+
+    public int getActiveCount(Pool pool) {
+        return executorFor(pool).getActiveCount();
+    }
+
+    public long getCompletedCount(Pool pool) {
+        return statsFor(pool).completed.get();
+    }
+
+    public long getRejectedCount(Pool pool) {
+        return statsFor(pool).rejected.get();
+    }
+
+    // Average time a task waited in the queue before it started
+    public long getAverageQueueWaitMs(Pool pool) {
+        PoolStats stats = statsFor(pool);
+        long completed = stats.completed.get();
+        return completed == 0 ? 0 : stats.totalQueueWaitMs.get() / completed;
+    }
+
+    public long getAverageRunMs(Pool pool) {
+        PoolStats stats = statsFor(pool);
+        long completed = stats.completed.get();
+        return completed == 0 ? 0 : stats.totalRunMs.get() / completed;
+    }
+
+    private ThreadPoolExecutor executorFor(Pool pool) {
+        return pool == Pool.IO ? ioPool : cpuPool;
+    }
+
+    private PoolStats statsFor(Pool pool) {
+        return pool == Pool.IO ? ioStats : cpuStats;
+    }
+
+    private static int cpuThreads() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(2, Math.min(cores - 1, 4));
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Retry until the larger value sticks
+        }
+    }
+
+    static ThreadPoolExecutor createPool(String name, int threads, int queueCapacity, int priority) {
+        ThreadFactory factory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(() -> {
+                    Process.setThreadPriority(priority);
+                    runnable.run();
+                }, name + "-" + count.incrementAndGet());
+            }
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), factory);
+        // Let idle threads go away when the app isn't doing background work
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
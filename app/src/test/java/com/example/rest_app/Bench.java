@@ -0,0 +1,75 @@
+package com.example.rest_app;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Minimal JMH-style timing for the microbenchmarks in the unit tests: a warmup pass so the
+ * JIT has compiled the code, then the best of a few measured passes.
+ */
+public final class Bench {
+    private static final int WARMUP_PASSES = 3;
+    private static final int MEASURED_PASSES = 5;
+
+    // Write results here so the JIT can't drop the work being measured
+    public static volatile long sink;
+
+    public interface Op {
+        long run(int i);
+    }
+
+    private Bench() {
+    }
+
+    // Nanoseconds per call of op, best of the measured passes
+    public static double nsPerOp(int ops, Op op) {
+        long result = 0;
+        for (int pass = 0; pass < WARMUP_PASSES; pass++) {
+            for (int i = 0; i < ops; i++) {
+                result += op.run(i);
+            }
+        }
+        long best = Long.MAX_VALUE;
+        for (int pass = 0; pass < MEASURED_PASSES; pass++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ops; i++) {
+                result += op.run(i);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        sink = result;
+        return best / (double) ops;
+    }
+
+    /**
+     * Bytes the calling thread allocates per call of op, after a warmup pass, or -1 where the
+     * JVM can't tell. Allocation counts don't depend on machine load the way timings do.
+     */
+    public static long bytesPerOp(int ops, Op op) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+        long result = 0;
+        for (int i = 0; i < ops; i++) {
+            result += op.run(i);
+        }
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ops; i++) {
+            result += op.run(i);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+        sink = result;
+        return Math.round(allocated / (double) ops);
+    }
+
+    public static void report(String name, double nsPerOp) {
+        System.out.println(String.format("%-50s %10.1f ns/op", name, nsPerOp));
+    }
+
+    public static void report(String name, double nsPerOp, long bytesPerOp) {
+        System.out.println(String.format("%-50s %10.1f ns/op %8d bytes/op", name, nsPerOp, bytesPerOp));
+    }
+}
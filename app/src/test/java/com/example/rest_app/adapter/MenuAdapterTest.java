@@ -0,0 +1,156 @@
+package com.example.rest_app.adapter;
+
+import android.os.Looper;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.rest_app.R;
+import com.example.rest_app.model.FoodItem;
+import com.example.rest_app.utils.MenuSearchIndex;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Rows rebound while the menu is filtered, with the diffed updates against the
+ * notifyDataSetChanged() the adapter used before, which rebinds every row on screen.
+ */
+// Robolectric for RecyclerView and the real item_food layout
+@RunWith(RobolectricTestRunner.class)
+public class MenuAdapterTest {
+    private static final String[] DISHES = {"Chicken Burger", "Beef Burger", "Pizza", "Alfredo Pasta", "Salmon Steak",
+            "Sushi Roll", "Lava Cake", "Berry Smoothie", "Chicken Wings", "Beef Tacos"};
+    private static final String[] CATEGORIES = {"Burgers", "Burgers", "Pizza", "Pasta", "Seafood",
+            "Asian", "Desserts", "Drinks", "Burgers", "Mexican"};
+    // What the user types, one filter per step, ending back on the whole menu
+    private static final String[] FILTERS = {"b", "bu", "burger", "chicken burger", "burger", "", "pizza", ""};
+
+    private final List<FoodItem> menu = new ArrayList<>();
+    private final MenuSearchIndex index = new MenuSearchIndex();
+    private ContextThemeWrapper context;
+
+    @Before
+    public void setUp() {
+        context = new ContextThemeWrapper(RuntimeEnvironment.getApplication(), R.style.Theme_Rest_App);
+        for (int i = 0; i < 40; i++) {
+            String dish = DISHES[i % DISHES.length];
+            menu.add(new FoodItem(dish + " " + (i / DISHES.length + 1), "House " + dish.toLowerCase(),
+                    5 + i % 20, null, CATEGORIES[i % CATEGORIES.length]));
+        }
+        index.addAll(menu);
+    }
+
+    private RecyclerView recyclerViewFor(MenuAdapter adapter) {
+        RecyclerView recyclerView = new RecyclerView(context);
+        recyclerView.setLayoutManager(new LinearLayoutManager(context));
+        // Animations only run once attached to a window; without them removed rows leave right away
+        recyclerView.setItemAnimator(null);
+        recyclerView.setAdapter(adapter);
+        layout(recyclerView);
+        return recyclerView;
+    }
+
+    // One frame: lays out the list, which binds whatever the pending updates need
+    private static void layout(RecyclerView recyclerView) {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, 1080, 1920);
+    }
+
+    // Waits for the background diff to be applied on the main thread
+    private static void submit(MenuAdapter adapter, List<FoodItem> items) throws InterruptedException {
+        AtomicBoolean committed = new AtomicBoolean();
+        adapter.updateList(items, () -> committed.set(true));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!committed.get()) {
+            assertTrue("Diff never landed", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+    }
+
+    private List<FoodItem> filter(String query) {
+        return query.isEmpty() ? menu : index.search(query);
+    }
+
+    @Test
+    public void filteringOnlyBindsRowsComingIntoView() throws Exception {
+        MenuAdapter diffed = new MenuAdapter(context, menu);
+        RecyclerView diffedView = recyclerViewFor(diffed);
+        MenuAdapter baseline = new MenuAdapter(context, menu);
+        RecyclerView baselineView = recyclerViewFor(baseline);
+        int onScreen = diffedView.getChildCount();
+        assertTrue(onScreen > 1 && onScreen < menu.size());
+        assertEquals(onScreen, diffed.getFullBindCount());
+
+        long diffedBinds = 0;
+        long baselineBinds = 0;
+        for (String query : FILTERS) {
+            List<FoodItem> results = filter(query);
+
+            long before = diffed.getFullBindCount();
+            submit(diffed, results);
+            layout(diffedView);
+            long diffedStep = diffed.getFullBindCount() - before;
+
+            // The old path: swap the list and rebind everything
+            before = baseline.getFullBindCount();
+            submit(baseline, results);
+            baseline.notifyDataSetChanged();
+            layout(baselineView);
+            long baselineStep = baseline.getFullBindCount() - before;
+
+            assertEquals(query, baselineView.getChildCount(), baselineStep);
+            assertTrue(query + ": " + diffedStep + " vs " + baselineStep, diffedStep <= baselineStep);
+            assertEquals(0, diffed.getPartialBindCount());
+            System.out.println(String.format("filter %-18s %2d results, %2d rows rebound (notifyDataSetChanged: %2d)",
+                    "\"" + query + "\"", results.size(), diffedStep, baselineStep));
+            diffedBinds += diffedStep;
+            baselineBinds += baselineStep;
+        }
+        System.out.println(String.format("%d filter steps: %d full binds diffed, %d with notifyDataSetChanged",
+                FILTERS.length, diffedBinds, baselineBinds));
+        assertTrue(diffedBinds < baselineBinds);
+    }
+
+    @Test
+    public void sameResultsRebindNothing() throws Exception {
+        MenuAdapter adapter = new MenuAdapter(context, menu);
+        RecyclerView recyclerView = recyclerViewFor(adapter);
+        submit(adapter, filter("burger"));
+        layout(recyclerView);
+
+        long full = adapter.getFullBindCount();
+        // Typing on past the last match, e.g. a trailing space, gives the same results
+        submit(adapter, filter("burger "));
+        layout(recyclerView);
+        assertEquals(full, adapter.getFullBindCount());
+        assertEquals(0, adapter.getPartialBindCount());
+    }
+
+    @Test
+    public void currencySwitchOnlyRebindsPrices() throws Exception {
+        MenuAdapter adapter = new MenuAdapter(context, menu);
+        RecyclerView recyclerView = recyclerViewFor(adapter);
+        long full = adapter.getFullBindCount();
+
+        adapter.refreshPrices();
+        layout(recyclerView);
+        assertEquals(full, adapter.getFullBindCount());
+        assertEquals(recyclerView.getChildCount(), adapter.getPartialBindCount());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.rest_app.model;
+
+import com.example.rest_app.Bench;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MoneyTest {
+    @Test
+    public void fractionDigitsFollowIso4217() {
+        assertEquals(2, Money.fractionDigits("USD"));
+        assertEquals(2, Money.fractionDigits("EUR"));
+        assertEquals(0, Money.fractionDigits("JPY"));
+        assertEquals(0, Money.fractionDigits("KRW"));
+        assertEquals(3, Money.fractionDigits("KWD"));
+        assertEquals(3, Money.fractionDigits("BHD"));
+        // No minor unit, not a currency, no code at all
+        assertEquals(2, Money.fractionDigits("XAU"));
+        assertEquals(2, Money.fractionDigits("NOPE"));
+        assertEquals(2, Money.fractionDigits(null));
+    }
+
+    @Test
+    public void majorAmountsUseTheCurrencysMinorUnit() {
+        assertEquals(1250, Money.ofMajor(12.5, "USD").getMinorUnits());
+        assertEquals(1250, Money.ofMajor(1250, "JPY").getMinorUnits());
+        assertEquals(12_500, Money.ofMajor(12.5, "KWD").getMinorUnits());
+        assertEquals(12.5, Money.ofMinor(12_500, "KWD").toMajor(), 0);
+    }
+
+    @Test
+    public void totalsAreExact() {
+        // Ten dimes, and a 1,000-line cart, summed as doubles and as minor units
+        double doubleTotal = 0;
+        Money total = Money.ZERO;
+        for (int i = 0; i < 10; i++) {
+            doubleTotal += 0.10;
+            total = total.plus(Money.ofMinor(Money.toMinor(0.10)));
+        }
+        assertNotEquals(1.0, doubleTotal, 0);
+        assertEquals(100, total.getMinorUnits());
+        assertEquals(1.0, total.toMajor(), 0);
+
+        long minorTotal = 0;
+        BigDecimal exact = BigDecimal.ZERO;
+        for (int i = 0; i < 1_000; i++) {
+            double price = 0.99 + (i % 37) * 0.15;
+            int quantity = 1 + i % 3;
+            minorTotal += Money.toMinor(price) * quantity;
+            exact = exact.add(new BigDecimal(String.format(Locale.US, "%.2f", price)).multiply(BigDecimal.valueOf(quantity)));
+        }
+        assertEquals(exact.movePointRight(2).longValueExact(), minorTotal);
+    }
+
+    @Test
+    public void taxRoundsHalfUpToTheMinorUnit() {
+        assertEquals(80, Money.percentage(1000, 800));
+        assertEquals(0, Money.percentage(6, 800)); // 0.48 cents
+        assertEquals(1, Money.percentage(7, 800)); // 0.56 cents
+        assertEquals(1, Money.percentage(1, 5000)); // Half a cent
+        assertEquals(-1, Money.percentage(-1, 5000));
+        assertEquals(-1, Money.percentage(-7, 800));
+        assertEquals(Money.ofMinor(1080), Money.ofMinor(1000).plus(Money.ofMinor(1000).percentage(800)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mixingCurrenciesFails() {
+        Money.ofMinor(100, "USD").plus(Money.ofMinor(100, "EUR"));
+    }
+
+    @Test
+    public void minorUnitTotalsBeatBigDecimal() {
+        long[] prices = new long[10_000];
+        BigDecimal[] decimals = new BigDecimal[prices.length];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = 99 + (i % 37) * 15;
+            decimals[i] = BigDecimal.valueOf(prices[i], 2);
+        }
+        double minorNs = Bench.nsPerOp(200, i -> {
+            long sum = 0;
+            for (long price : prices) {
+                sum += price;
+            }
+            return Money.percentage(sum, 800) + sum;
+        });
+        double decimalNs = Bench.nsPerOp(200, i -> {
+            BigDecimal sum = BigDecimal.ZERO;
+            for (BigDecimal price : decimals) {
+                sum = sum.add(price);
+            }
+            return sum.multiply(new BigDecimal("1.08")).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        });
+        double lookupNs = Bench.nsPerOp(1_000_000, i -> Money.fractionDigits((i & 1) == 0 ? "JPY" : "EUR"));
+        Bench.report("cart total with tax, 10k lines, minor units", minorNs);
+        Bench.report("cart total with tax, 10k lines, BigDecimal", decimalNs);
+        Bench.report("Money.fractionDigits", lookupNs);
+        assertTrue(minorNs < decimalNs);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.rest_app.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AtomicTextFileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Waits until everything queued on the disk thread so far has run
+    static void awaitDiskThread() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicTextFile.runOnDiskThread(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void missingFileReadsAsNull() throws Exception {
+        assertNull(new AtomicTextFile(new File(folder.getRoot(), "none.json")).read());
+    }
+
+    @Test
+    public void writeReplacesTheWholeFileAndLeavesNoTempFile() throws Exception {
+        File target = new File(folder.getRoot(), "data.json");
+        AtomicTextFile file = new AtomicTextFile(target);
+        file.write("a much longer first version of the content");
+        file.write("short, ünïcode");
+
+        assertEquals("short, ünïcode", file.read());
+        assertFalse(new File(target.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void queuedWritesKeepOnlyTheLatest() throws Exception {
+        AtomicTextFile file = new AtomicTextFile(new File(folder.getRoot(), "data.json"));
+        CountDownLatch blocked = new CountDownLatch(1);
+        // Hold the disk thread so the writes below queue up behind it
+        AtomicTextFile.runOnDiskThread(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 0; i < 100; i++) {
+            file.writeAsync("version " + i);
+        }
+        blocked.countDown();
+        awaitDiskThread();
+
+        assertEquals("version 99", file.read());
+    }
+
+    @Test
+    public void deleteAfterWriteWins() throws Exception {
+        AtomicTextFile file = new AtomicTextFile(new File(folder.getRoot(), "data.json"));
+        file.write("old");
+        file.writeAsync("new");
+        file.deleteAsync();
+        awaitDiskThread();
+
+        assertFalse(file.getFile().exists());
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.rest_app.utils;
+
+import com.example.rest_app.model.Booking;
+import com.google.firebase.firestore.DocumentChange;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BookingPagerTest {
+    private static final String USER = "user-1";
+
+    // In-memory bookings collection with the same order and cursor semantics as the Firestore query
+    private static class FakeSource implements BookingPager.PageSource {
+        final List<Booking> bookings = new ArrayList<>();
+        int fetches;
+
+        @Override
+        public void fetchPage(String userId, BookingPager.Cursor after, BookingPager.Cursor endAt, int limit,
+                              BookingPager.PageCallback callback) {
+            fetches++;
+            List<Booking> page = new ArrayList<>();
+            for (Booking booking : bookings) {
+                if (page.size() == limit || (endAt != null && compare(booking, endAt) > 0)) {
+                    break;
+                }
+                if (after == null || compare(booking, after) > 0) {
+                    page.add(booking);
+                }
+            }
+            callback.onResult(page);
+        }
+
+        private static int compare(Booking booking, BookingPager.Cursor cursor) {
+            Booking at = new Booking();
+            at.setTimestamp(cursor.timestamp);
+            at.setBookingId(cursor.bookingId);
+            return BookingPager.compare(booking, at);
+        }
+
+        void remove(String bookingId) {
+            bookings.removeIf(booking -> booking.getBookingId().equals(bookingId));
+        }
+    }
+
+    private FakeSource source;
+    private BookingPager pager;
+
+    @Before
+    public void setUp() {
+        source = new FakeSource();
+        pager = new BookingPager(source, USER);
+    }
+
+    private void addHistory(int count) {
+        for (int i = 0; i < count; i++) {
+            Booking booking = new Booking("Guest " + i, "555-0100", 1_800_000_000_000L + i * 60_000L, 2);
+            booking.setBookingId(String.format("b%06d", i));
+            booking.setTimestamp(1_700_000_000_000L + i * 1000L);
+            booking.setStatus("Confirmed");
+            source.bookings.add(booking);
+        }
+        source.bookings.sort(BookingPager::compare);
+    }
+
+    // The live window delivers the newest page as ADDED changes, like BookingFeed's first snapshot
+    private void loadHead() {
+        List<BookingFeed.Change> changes = new ArrayList<>();
+        for (int i = 0; i < BookingPager.PAGE_SIZE && i < source.bookings.size(); i++) {
+            changes.add(new BookingFeed.Change(DocumentChange.Type.ADDED, -1, i, source.bookings.get(i)));
+        }
+        pager.applyLiveChanges(changes);
+    }
+
+    private void scrollTo(int position) {
+        pager.onVisibleRange(Math.max(0, position - 8), position);
+    }
+
+    private void scrollToEnd() {
+        int guard = 0;
+        while (pager.hasMore()) {
+            scrollTo(pager.size() - 1);
+            assertTrue(++guard < 10_000);
+        }
+    }
+
+    // Every loaded row is in source order, with no booking showing up twice
+    private void assertMatchesSource() {
+        assertEquals(source.bookings.size(), pager.size());
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < pager.size(); i++) {
+            Booking booking = pager.get(i);
+            if (booking != null) {
+                assertTrue("Duplicate " + booking.getBookingId() + " at " + i, seen.add(booking.getBookingId()));
+                assertEquals("Position " + i, source.bookings.get(i).getBookingId(), booking.getBookingId());
+            }
+        }
+    }
+
+    @Test
+    public void memoryStaysFlatAsHistoryGrows() {
+        int[] sizes = {500, 5_000, 50_000};
+        int[] maxLoaded = new int[sizes.length];
+        for (int s = 0; s < sizes.length; s++) {
+            setUp();
+            addHistory(sizes[s]);
+            loadHead();
+            scrollToEnd();
+            assertEquals(sizes[s], pager.size());
+            maxLoaded[s] = pager.getMaxLoadedItems();
+            System.out.println(String.format("%,7d bookings: %,4d max in memory, %,5d page fetches",
+                    sizes[s], maxLoaded[s], source.fetches));
+        }
+        // The head, the visible page and KEEP_PAGES_AROUND on each side, whatever the history size
+        assertTrue(maxLoaded[2] <= BookingPager.PAGE_SIZE * 7);
+        assertEquals(maxLoaded[1], maxLoaded[2]);
+    }
+
+    @Test
+    public void scrollingBackRefetchesEvictedPages() {
+        addHistory(400);
+        loadHead();
+        scrollToEnd();
+        assertNull(pager.get(BookingPager.PAGE_SIZE + 1));
+        int fetches = source.fetches;
+
+        scrollTo(BookingPager.PAGE_SIZE + 1);
+        assertTrue(source.fetches > fetches);
+        assertNotNull(pager.get(BookingPager.PAGE_SIZE + 1));
+        assertMatchesSource();
+    }
+
+    @Test
+    public void cancellationsInAnEvictedPageDontDuplicateTheNextPage() {
+        addHistory(400);
+        loadHead();
+        scrollToEnd();
+
+        // Look at the fourth history page: pages 1 to 5 are in memory, page 0 was dropped
+        int pageStart = BookingPager.PAGE_SIZE;
+        scrollTo(pageStart + 3 * BookingPager.PAGE_SIZE + 10);
+        assertNull(pager.get(pageStart));
+        assertNotNull(pager.get(pageStart + BookingPager.PAGE_SIZE));
+
+        // Two bookings of the dropped page are cancelled on another device
+        source.remove(source.bookings.get(pageStart + 3).getBookingId());
+        source.remove(source.bookings.get(pageStart + 7).getBookingId());
+
+        scrollTo(pageStart + 5);
+        assertNotNull(pager.get(pageStart));
+        assertMatchesSource();
+    }
+
+    @Test
+    public void aNewBookingPushesTheWindowTailIntoAnEvictedFirstPage() {
+        addHistory(400);
+        loadHead();
+        scrollToEnd();
+        assertNull(pager.get(BookingPager.PAGE_SIZE));
+
+        // A new booking arrives at the top of the live window and its last row moves to history
+        Booking newest = new Booking("Walk-in", "555-0199", 1_900_000_000_000L, 4);
+        newest.setBookingId("b999999");
+        newest.setTimestamp(1_800_000_000_000L);
+        newest.setStatus("Confirmed");
+        List<BookingFeed.Change> changes = new ArrayList<>();
+        changes.add(new BookingFeed.Change(DocumentChange.Type.REMOVED, BookingPager.PAGE_SIZE - 1, -1,
+                pager.get(BookingPager.PAGE_SIZE - 1)));
+        changes.add(new BookingFeed.Change(DocumentChange.Type.ADDED, -1, 0, newest));
+        source.bookings.add(0, newest);
+        pager.applyLiveChanges(changes);
+
+        scrollTo(BookingPager.PAGE_SIZE + 2);
+        assertMatchesSource();
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.rest_app.utils;
+
+import com.example.rest_app.Bench;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BookingTimesTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        // A zone with daylight saving time, so the day boundaries are tested across the switches
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void parsesTheFormStringsIntoAnInstant() {
+        long instant = BookingTimes.parse("7/3/2026", "19:30");
+        assertEquals(BookingTimes.reservationAt(2026, 3, 7, 19, 30), instant);
+        assertEquals("7/3/2026", BookingTimes.formatDate(instant));
+        assertEquals("19:30", BookingTimes.formatTime(instant));
+        assertEquals("2026-03-07", BookingTimes.dayKey(instant));
+        assertEquals(19 * 60 + 30, BookingTimes.minuteOfDay(instant));
+        assertEquals(instant, BookingTimes.parse(" 7 / 3 / 2026", "19 : 30"));
+    }
+
+    @Test
+    public void rejectsWhatIsNotADateAndTime() {
+        for (String[] input : new String[][]{
+                {null, "19:30"}, {"7/3/2026", null}, {"", ""}, {"7/3", "19:30"}, {"7/3/2026", "19"},
+                {"32/3/2026", "19:30"}, {"7/13/2026", "19:30"}, {"7/3/2026", "24:00"}, {"7/3/2026", "19:60"},
+                {"a/3/2026", "19:30"}, {"7/3/2026", "-1:30"}, {"0/3/2026", "19:30"},
+                {"31/2/2025", "19:30"}, {"29/2/2025", "19:30"}, {"30/2/2024", "19:30"}, {"31/4/2026", "19:30"},
+                {"31/6/2026", "19:30"}, {"31/9/2026", "19:30"}, {"31/11/2026", "19:30"}}) {
+            assertEquals(Arrays.toString(input), -1, BookingTimes.parse(input[0], input[1]));
+        }
+    }
+
+    @Test
+    public void acceptsTheLastDayOfEveryMonth() {
+        int[] lastDays = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+        for (int month = 1; month <= 12; month++) {
+            String date = lastDays[month - 1] + "/" + month + "/2025";
+            long instant = BookingTimes.parse(date, "12:00");
+            assertEquals(date, BookingTimes.formatDate(instant));
+        }
+        assertEquals("29/2/2024", BookingTimes.formatDate(BookingTimes.parse("29/2/2024", "12:00")));
+        assertEquals(29, BookingTimes.daysInMonth(2000, 2));
+        assertEquals(28, BookingTimes.daysInMonth(2100, 2));
+    }
+
+    @Test
+    public void readsThePartySizeOffTheSpinnerText() {
+        assertEquals(4, BookingTimes.parseGuests("4 Guests"));
+        assertEquals(1, BookingTimes.parseGuests("1 Guest"));
+        assertEquals(12, BookingTimes.parseGuests("12 Guests"));
+        assertEquals(0, BookingTimes.parseGuests("Guests"));
+        assertEquals(0, BookingTimes.parseGuests(null));
+    }
+
+    @Test
+    public void dayBoundariesFollowDaylightSavingTime() {
+        // Clocks go forward on 29 March and back on 25 October 2026
+        long spring = BookingTimes.reservationAt(2026, 3, 29, 12, 0);
+        assertEquals(BookingTimes.reservationAt(2026, 3, 29, 0, 0), BookingTimes.startOfDay(spring));
+        assertEquals(23 * HOUR_MS, BookingTimes.startOfNextDay(spring) - BookingTimes.startOfDay(spring));
+
+        long autumn = BookingTimes.reservationAt(2026, 10, 25, 12, 0);
+        assertEquals(25 * HOUR_MS, BookingTimes.startOfNextDay(autumn) - BookingTimes.startOfDay(autumn));
+
+        long ordinary = BookingTimes.reservationAt(2026, 6, 1, 23, 59);
+        assertEquals(BookingTimes.DAY_MS, BookingTimes.startOfNextDay(ordinary) - BookingTimes.startOfDay(ordinary));
+        assertEquals("2026-06-01", BookingTimes.dayKey(ordinary));
+        assertEquals("2026-06-02", BookingTimes.dayKey(BookingTimes.startOfNextDay(ordinary)));
+        assertEquals(BookingTimes.startOfNextDay(ordinary), BookingTimes.startOfDay(BookingTimes.startOfNextDay(ordinary)));
+    }
+
+    /**
+     * Reads and bytes of the host's "bookings for day X" list: fetching every booking with the
+     * old date/time strings and filtering on the client, against the range query on
+     * reservationAt, which only returns the day's documents. Sizes are counted the way
+     * Firestore bills storage and bandwidth for a document.
+     */
+    @Test
+    public void rangeQueryReadsOnlyTheDay() {
+        Random random = new Random(3);
+        long firstDay = BookingTimes.reservationAt(2026, 1, 1, 0, 0);
+        int days = 365;
+        List<Map<String, Object>> legacy = new ArrayList<>();
+        List<Map<String, Object>> typed = new ArrayList<>();
+        for (int day = 0; day < days; day++) {
+            int bookings = 20 + random.nextInt(40);
+            for (int b = 0; b < bookings; b++) {
+                int minute = TableAvailability.OPEN_MINUTES + 15 * random.nextInt(
+                        (TableAvailability.CLOSE_MINUTES - TableAvailability.SEATING_MINUTES - TableAvailability.OPEN_MINUTES) / 15 + 1);
+                long date = BookingTimes.startOfDay(firstDay + day * BookingTimes.DAY_MS + 12 * HOUR_MS);
+                long reservationAt = date + minute * 60 * 1000L;
+                int party = 1 + random.nextInt(8);
+                String id = "B" + day + "_" + b;
+
+                Map<String, Object> common = new LinkedHashMap<>();
+                common.put("bookingId", id);
+                common.put("userId", "user" + random.nextInt(5000));
+                common.put("name", "Guest " + random.nextInt(100000));
+                common.put("phone", "+4915" + (10000000 + random.nextInt(90000000)));
+                common.put("status", "Confirmed");
+                common.put("timestamp", reservationAt - random.nextInt(30) * BookingTimes.DAY_MS);
+
+                Map<String, Object> old = new LinkedHashMap<>(common);
+                old.put("date", BookingTimes.formatDate(reservationAt));
+                old.put("time", BookingTimes.formatTime(reservationAt));
+                old.put("guests", party + (party == 1 ? " Guest" : " Guests"));
+                legacy.add(old);
+
+                Map<String, Object> now = new LinkedHashMap<>(common);
+                now.put("reservationAt", reservationAt);
+                now.put("partySize", party);
+                typed.add(now);
+            }
+        }
+        // The index keeps them in reservationAt order
+        typed.sort((a, b) -> Long.compare((Long) a.get("reservationAt"), (Long) b.get("reservationAt")));
+        long[] index = new long[typed.size()];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = (Long) typed.get(i).get("reservationAt");
+        }
+
+        long wanted = BookingTimes.reservationAt(2026, 7, 18, 15, 0);
+        long from = BookingTimes.startOfDay(wanted);
+        long to = BookingTimes.startOfNextDay(wanted);
+
+        long legacyBytes = 0;
+        List<String> legacyIds = new ArrayList<>();
+        for (Map<String, Object> booking : legacy) {
+            legacyBytes += documentSize(booking);
+            long at = BookingTimes.parse((String) booking.get("date"), (String) booking.get("time"));
+            if (at >= from && at < to) {
+                legacyIds.add((String) booking.get("bookingId"));
+            }
+        }
+
+        int first = lowerBound(index, from);
+        int end = lowerBound(index, to);
+        long rangeBytes = 0;
+        List<String> rangeIds = new ArrayList<>();
+        for (int i = first; i < end; i++) {
+            rangeBytes += documentSize(typed.get(i));
+            rangeIds.add((String) typed.get(i).get("bookingId"));
+        }
+
+        legacyIds.sort(null);
+        rangeIds.sort(null);
+        assertTrue(rangeIds.size() >= 20);
+        assertEquals(legacyIds, rangeIds);
+        // A query is billed at least one read even when it matches nothing
+        int rangeReads = Math.max(1, end - first);
+        assertTrue(rangeReads * 100 < legacy.size());
+
+        double fetchAllNs = Bench.nsPerOp(5, i -> {
+            long matches = 0;
+            for (Map<String, Object> booking : legacy) {
+                long at = BookingTimes.parse((String) booking.get("date"), (String) booking.get("time"));
+                if (at >= from && at < to) {
+                    matches++;
+                }
+            }
+            return matches;
+        });
+        double rangeNs = Bench.nsPerOp(200_000, i -> lowerBound(index, to) - lowerBound(index, from));
+
+        System.out.println(String.format("Bookings for one day out of %d: fetch everything %d reads, %d KB; "
+                        + "range query %d reads, %d KB", legacy.size(), legacy.size(), legacyBytes / 1024,
+                rangeReads, rangeBytes / 1024));
+        Bench.report("client filter over parsed date/time strings", fetchAllNs);
+        Bench.report("range over reservationAt", rangeNs);
+    }
+
+    // First position whose value is at least key
+    private static int lowerBound(long[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Firestore's document size: the name, plus each field name and value, plus 32 bytes
+    private static long documentSize(Map<String, Object> fields) {
+        long size = "bookings/".length() + 1 + ((String) fields.get("bookingId")).getBytes(UTF_8).length + 1 + 16 + 32;
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            size += field.getKey().getBytes(UTF_8).length + 1;
+            Object value = field.getValue();
+            size += value instanceof String ? ((String) value).getBytes(UTF_8).length + 1 : 8;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.rest_app.utils;
+
+import com.example.rest_app.model.FoodItem;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CartDeltaTrackerTest {
+    private static final int CART_LINES = 50;
+    private static final int TAPS = 1_000;
+
+    private Map<String, FoodItem> cart;
+    private CartDeltaTracker tracker;
+
+    @Before
+    public void setUp() {
+        cart = new LinkedHashMap<>();
+        tracker = new CartDeltaTracker();
+        for (int i = 0; i < CART_LINES; i++) {
+            FoodItem item = new FoodItem("Dish " + i, "House special number " + i, 9.5 + i,
+                    "https://example.com/images/dish_" + i + ".jpg", "Main", 400 + i);
+            item.setQuantity(1);
+            cart.put(item.getId(), item);
+        }
+        tracker.buildFullLines(cart);
+    }
+
+    // Firestore's document size rules: strings are length + 1, numbers and sentinels 8 bytes
+    private static long payloadBytes(Object value) {
+        if (value == null) {
+            return 1;
+        }
+        if (value instanceof String) {
+            return ((String) value).length() + 1;
+        }
+        if (value instanceof Map) {
+            long size = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += String.valueOf(entry.getKey()).length() + 1 + payloadBytes(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof List) {
+            long size = 0;
+            for (Object element : (List<?>) value) {
+                size += payloadBytes(element);
+            }
+            return size;
+        }
+        return 8;
+    }
+
+    private void tap(int i) {
+        FoodItem item = cart.get("Dish " + (i % CART_LINES));
+        item.setQuantity(item.getQuantity() + 1);
+        tracker.onQuantityChanged(item.getId(), 1);
+    }
+
+    @Test
+    public void quantityTapSendsOneIncrement() {
+        tap(3);
+        Map<String, Object> delta = tracker.buildDelta(cart);
+        assertEquals(1, delta.size());
+        assertTrue(delta.containsKey("lines.Dish 3.quantity"));
+        assertTrue(tracker.buildDelta(cart).isEmpty());
+    }
+
+    @Test
+    public void addedThenRemovedLineIsDeleted() {
+        FoodItem extra = new FoodItem("Extra", "", 1.0, null, "Side");
+        extra.setQuantity(1);
+        cart.put(extra.getId(), extra);
+        tracker.onLineAdded(extra.getId());
+        tracker.onQuantityChanged(extra.getId(), 1);
+        Map<String, Object> added = tracker.buildDelta(cart);
+        assertTrue(added.get("lines.Extra") instanceof Map);
+
+        cart.remove(extra.getId());
+        tracker.onLineRemoved(extra.getId());
+        assertEquals(1, tracker.buildDelta(cart).size());
+    }
+
+    @Test
+    public void fieldPathCharactersAreEscaped() {
+        assertEquals("Fish _ Chips_ large_", CartDeltaTracker.lineKey("Fish / Chips. large*"));
+    }
+
+    @Test
+    public void clearingRequiresAFullWrite() {
+        tap(1);
+        tracker.requireFullWrite();
+        assertTrue(tracker.needsFullWrite());
+        tracker.buildFullLines(cart);
+        assertFalse(tracker.needsFullWrite());
+    }
+
+    // One write per tap in both modes (worst case, no coalescing); compares what each write carries
+    @Test
+    public void deltaModeSendsFarFewerBytes() {
+        long fullBytes = 0;
+        long deltaBytes = 0;
+        CartDeltaTracker full = new CartDeltaTracker();
+        for (int i = 0; i < TAPS; i++) {
+            tap(i);
+            full.onQuantityChanged("Dish " + (i % CART_LINES), 1);
+            fullBytes += payloadBytes(full.buildFullLines(cart));
+            deltaBytes += payloadBytes(tracker.buildDelta(cart));
+        }
+        System.out.println("Cart of " + CART_LINES + " lines, " + TAPS + " taps: full rewrite "
+                + fullBytes + " bytes, delta " + deltaBytes + " bytes, " + TAPS + " writes each");
+        assertTrue(deltaBytes * 50 < fullBytes);
+    }
+}
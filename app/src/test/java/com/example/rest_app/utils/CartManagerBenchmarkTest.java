@@ -0,0 +1,87 @@
+package com.example.rest_app.utils;
+
+import com.example.rest_app.Bench;
+import com.example.rest_app.model.FoodItem;
+import com.example.rest_app.model.Money;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CartManagerBenchmarkTest {
+    private static final int[] CART_SIZES = {100, 1_000, 10_000};
+
+    private static CartManager cartWithLines(int lines) {
+        CartManager cart = new CartManager(null, new android.os.Handler(), event -> {
+        });
+        for (int i = 0; i < lines; i++) {
+            cart.addToCart(new FoodItem("Item " + i, "", 1 + (i % 50) * 0.25, null, "Main"));
+        }
+        return cart;
+    }
+
+    @Test
+    public void runningTotalsMatchARecount() {
+        CartManager cart = cartWithLines(1_000);
+        FoodItem first = cart.getCartItem("Item 0");
+        assertNotNull(first);
+        cart.updateQuantity(first, 7);
+        cart.removeFromCart(cart.getCartItem("Item 999"));
+        cart.addToCart(cart.getCartItem("Item 3"));
+
+        long totalMinor = 0;
+        int count = 0;
+        for (FoodItem item : cart.getCartItems()) {
+            totalMinor += item.getPriceMinor() * item.getQuantity();
+            count += item.getQuantity();
+        }
+        assertEquals(totalMinor, cart.getTotalMinor());
+        assertEquals(count, cart.getCartItemCount());
+        assertEquals(Money.toMajor(totalMinor), cart.getTotalPrice(), 0);
+    }
+
+    @Test
+    public void quickTapsEachCount() {
+        CartManager cart = cartWithLines(3);
+        // Three taps on + before the list shows the first one
+        for (int tap = 0; tap < 3; tap++) {
+            cart.incrementQuantity("Item 1", 1);
+        }
+        assertEquals(4, cart.getCartItem("Item 1").getQuantity());
+        assertEquals(6, cart.getCartItemCount());
+
+        cart.incrementQuantity("Item 1", -4);
+        assertNull(cart.getCartItem("Item 1"));
+        cart.incrementQuantity("Item 1", 1);
+        assertNull(cart.getCartItem("Item 1"));
+        assertEquals(2, cart.getCartItemCount());
+    }
+
+    @Test
+    public void readsStayFlatAsTheCartGrows() {
+        double[] readNs = new double[CART_SIZES.length];
+        for (int s = 0; s < CART_SIZES.length; s++) {
+            int lines = CART_SIZES[s];
+            CartManager cart = cartWithLines(lines);
+            String[] ids = new String[lines];
+            for (int i = 0; i < lines; i++) {
+                ids[i] = "Item " + i;
+            }
+
+            readNs[s] = Bench.nsPerOp(1_000_000, i ->
+                    cart.getCartItemCount() + cart.getTotalMinor() + cart.getCartItem(ids[i % lines]).getQuantity());
+            double addNs = Bench.nsPerOp(100_000, i -> {
+                cart.addToCart(cart.getCartItem(ids[i % lines]));
+                return cart.getTotalMinor();
+            });
+            Bench.report("count+total+lookup, " + lines + " lines", readNs[s]);
+            Bench.report("add to existing line, " + lines + " lines", addNs);
+        }
+        // A scan per read would be ~100x slower at 10k lines than at 100; allow generous noise
+        assertTrue("Reads grew with cart size: " + readNs[0] + " vs " + readNs[2] + " ns",
+                readNs[2] < readNs[0] * 10 + 100);
+    }
+}
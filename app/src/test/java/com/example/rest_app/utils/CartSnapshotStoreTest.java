@@ -0,0 +1,57 @@
+package com.example.rest_app.utils;
+
+import com.example.rest_app.model.FoodItem;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CartSnapshotStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoresExactMinorUnits() throws Exception {
+        CartSnapshotStore store = new CartSnapshotStore(new File(folder.getRoot(), "cart.json"));
+        FoodItem item = new FoodItem("Wagyu", "", 0, null, "Main");
+        // More minor units than a double holds exactly, so a round trip through "price" would change it
+        item.setPriceMinor((1L << 53) + 1);
+        item.setQuantity(3);
+
+        store.write("alice", 7, 1234, Arrays.asList(item));
+        AtomicTextFileTest.awaitDiskThread();
+
+        CartSnapshotStore.Snapshot snapshot = store.read();
+        assertEquals("alice", snapshot.userId);
+        assertEquals(7, snapshot.version);
+        assertEquals(1234, snapshot.lastModified);
+        assertEquals((1L << 53) + 1, snapshot.items.get(0).getPriceMinor());
+        assertEquals(3, snapshot.items.get(0).getQuantity());
+    }
+
+    @Test
+    public void olderSnapshotsFallBackToPrice() throws Exception {
+        File file = new File(folder.getRoot(), "cart.json");
+        new AtomicTextFile(file).write("{\"userId\":\"bob\",\"version\":1,\"lastModified\":2,"
+                + "\"lines\":[{\"id\":\"Tea\",\"name\":\"Tea\",\"price\":2.35,\"quantity\":2}]}");
+
+        FoodItem tea = new CartSnapshotStore(file).read().items.get(0);
+        assertEquals(235, tea.getPriceMinor());
+        assertEquals(2, tea.getQuantity());
+    }
+
+    @Test
+    public void clearRemovesTheSnapshot() throws Exception {
+        CartSnapshotStore store = new CartSnapshotStore(new File(folder.getRoot(), "cart.json"));
+        store.write("alice", 1, 1, Arrays.asList(new FoodItem("Tea", "", 2, null, "Drinks")));
+        store.clear();
+        AtomicTextFileTest.awaitDiskThread();
+        assertNull(store.read());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.rest_app.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CartWriteBehindTest {
+    private static final long WINDOW_MS = 500;
+
+    private FakeHandler handler;
+    private List<Map<String, Object>> writes;
+    private List<Runnable> inFlight;
+    private int cartVersion;
+    private CartWriteBehind writeBehind;
+
+    @Before
+    public void setUp() {
+        handler = new FakeHandler();
+        writes = new ArrayList<>();
+        inFlight = new ArrayList<>();
+        // Fake writer: records the payload and completes only when the test says so
+        writeBehind = new CartWriteBehind(handler, (userId, cartData, onComplete) -> {
+            writes.add(cartData);
+            inFlight.add(onComplete);
+        }, userId -> {
+            Map<String, Object> data = new HashMap<>();
+            data.put("userId", userId);
+            data.put("version", cartVersion);
+            return data;
+        });
+        writeBehind.setWindowMs(WINDOW_MS);
+    }
+
+    private void mutate(String userId) {
+        cartVersion++;
+        writeBehind.markDirty(userId);
+    }
+
+    private void completeWrites() {
+        List<Runnable> done = new ArrayList<>(inFlight);
+        inFlight.clear();
+        for (Runnable onComplete : done) {
+            onComplete.run();
+        }
+    }
+
+    @Test
+    public void rapidMutationsBecomeOneWrite() {
+        for (int i = 0; i < 10; i++) {
+            mutate("alice");
+            handler.advance(20);
+        }
+        assertTrue(writes.isEmpty());
+
+        handler.advance(WINDOW_MS);
+        assertEquals(1, writes.size());
+        // The payload is built at flush time, so the last state is what gets written
+        assertEquals(10, writes.get(0).get("version"));
+        completeWrites();
+
+        assertEquals(10, writeBehind.getMutationCount());
+        assertEquals(1, writeBehind.getWriteCount());
+        assertEquals(9, writeBehind.getWritesSaved());
+        assertFalse(writeBehind.hasPendingWrites());
+    }
+
+    @Test
+    public void keepsOneWriteInFlightPerUser() {
+        mutate("alice");
+        handler.advance(WINDOW_MS);
+        assertEquals(1, writes.size());
+
+        // Changes made while the first write is out wait for it to finish
+        for (int i = 0; i < 5; i++) {
+            mutate("alice");
+        }
+        handler.advance(WINDOW_MS * 4);
+        assertEquals(1, writes.size());
+
+        completeWrites();
+        handler.advance(WINDOW_MS);
+        assertEquals(2, writes.size());
+        assertEquals(6, writes.get(1).get("version"));
+    }
+
+    @Test
+    public void usersAreCoalescedSeparately() {
+        mutate("alice");
+        mutate("bob");
+        mutate("alice");
+        handler.advance(WINDOW_MS);
+        assertEquals(2, writes.size());
+    }
+
+    @Test
+    public void flushWritesImmediately() {
+        mutate("alice");
+        mutate("alice");
+        writeBehind.flush();
+        assertEquals(1, writes.size());
+        assertEquals(0, handler.pendingCount());
+
+        completeWrites();
+        assertFalse(writeBehind.hasPendingWrites());
+    }
+}
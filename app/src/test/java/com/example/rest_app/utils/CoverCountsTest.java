@@ -0,0 +1,71 @@
+package com.example.rest_app.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CoverCountsTest {
+
+    @Test
+    public void slotsAreQuarterHoursFromOpening() {
+        assertEquals(0, CoverCounts.slotOf(TableAvailability.OPEN_MINUTES));
+        assertEquals(0, CoverCounts.slotOf(TableAvailability.OPEN_MINUTES + 14));
+        assertEquals(1, CoverCounts.slotOf(TableAvailability.OPEN_MINUTES + 15));
+        assertEquals(CoverCounts.SLOTS_PER_DAY - 1, CoverCounts.slotOf(TableAvailability.CLOSE_MINUTES - 1));
+        assertEquals(-1, CoverCounts.slotOf(TableAvailability.OPEN_MINUTES - 1));
+        assertEquals(-1, CoverCounts.slotOf(TableAvailability.CLOSE_MINUTES));
+    }
+
+    @Test
+    public void bookingsAndCancelsKeepTheCountsInStep() {
+        // What a day document holds after two bookings at 19:00 and one at 19:15
+        int[] covers = CoverCounts.fromList(null);
+        int seven = CoverCounts.slotOf(19 * 60);
+        CoverCounts.add(covers, seven, 4);
+        CoverCounts.add(covers, seven, 2);
+        CoverCounts.add(covers, seven + 1, 3);
+        List<Long> stored = CoverCounts.toList(covers);
+        assertEquals(CoverCounts.SLOTS_PER_DAY, stored.size());
+
+        int[] read = CoverCounts.fromList(stored);
+        CoverCounts.add(read, seven, -4);
+        assertEquals(2, read[seven]);
+        assertEquals(3, read[seven + 1]);
+        // Taking a booking off twice doesn't leave the slot below zero
+        CoverCounts.add(read, seven + 1, -3);
+        CoverCounts.add(read, seven + 1, -3);
+        assertEquals(0, read[seven + 1]);
+        // Outside opening hours nothing is counted
+        CoverCounts.add(read, -1, 5);
+        assertEquals(2, Arrays.stream(read).sum());
+    }
+
+    @Test
+    public void toleratesShortOrDamagedCovers() {
+        int[] arrivals = CoverCounts.fromList(Arrays.asList(1L, "x", null, 4.0));
+        assertEquals(CoverCounts.SLOTS_PER_DAY, arrivals.length);
+        assertEquals(1, arrivals[0]);
+        assertEquals(0, arrivals[1]);
+        assertEquals(0, arrivals[2]);
+        assertEquals(4, arrivals[3]);
+        assertArrayEquals(new int[CoverCounts.SLOTS_PER_DAY], CoverCounts.fromList("not a list"));
+    }
+
+    @Test
+    public void seatedCountsGuestsForOneSeatingLength() {
+        int[] arrivals = new int[CoverCounts.SLOTS_PER_DAY];
+        arrivals[0] = 4;
+        arrivals[2] = 2;
+        int[] seated = CoverCounts.seated(arrivals);
+        int window = TableAvailability.SEATING_MINUTES / CoverCounts.SLOT_MINUTES;
+        assertEquals(4, seated[0]);
+        assertEquals(6, seated[2]);
+        assertEquals(6, seated[window - 1]);
+        assertEquals(2, seated[window]);
+        assertEquals(0, seated[window + 2]);
+    }
+}
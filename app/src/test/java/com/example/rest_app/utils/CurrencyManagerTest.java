@@ -0,0 +1,214 @@
+package com.example.rest_app.utils;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import com.example.rest_app.model.Money;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Robolectric for android.util.JsonReader, which is only a stub in plain unit tests
+@RunWith(RobolectricTestRunner.class)
+public class CurrencyManagerTest {
+    private static final List<String> WANTED = Arrays.asList("USD", "EUR", "GBP", "INR", "JPY", "CAD");
+
+    private HttpServer server;
+    private String baseUrl;
+    // Released at the end of each test so stalled handlers finish
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    // An ExchangeRate-API "latest" body with every ISO currency, USD first
+    private static String latestBody() {
+        StringBuilder body = new StringBuilder("{\"result\":\"success\",\"base_code\":\"USD\",\"conversion_rates\":{\"USD\":1");
+        int i = 0;
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            if (!currency.getCurrencyCode().equals("USD")) {
+                body.append(",\"").append(currency.getCurrencyCode()).append("\":").append(0.5 + (i++ % 200) * 0.37);
+            }
+        }
+        return body.append("}}").toString();
+    }
+
+    // Serves body at path; if stallAfter >= 0, sends only that many bytes and then stops sending
+    private void serve(String path, int status, String body, int stallAfter) {
+        server.createContext(path, exchange -> {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, 0); // Chunked
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (stallAfter < 0) {
+                    out.write(bytes);
+                    return;
+                }
+                out.write(bytes, 0, Math.min(stallAfter, bytes.length));
+                out.flush();
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // Client gave up on us
+            }
+        });
+    }
+
+    @Test
+    public void downloadsOnlyTheWantedRates() {
+        serve("/latest", 200, latestBody(), -1);
+        long requestsBefore = NetworkStats.getInstance().getCount("rates");
+
+        Map<String, Double> rates = CurrencyManager.downloadRates(baseUrl + "/latest", WANTED, 2000);
+        assertEquals(WANTED.size(), rates.size());
+        assertEquals(1.0, rates.get("USD"), 0);
+        assertTrue(rates.get("JPY") > 0);
+        assertEquals(requestsBefore + 1, NetworkStats.getInstance().getCount("rates"));
+    }
+
+    @Test
+    public void stopsReadingOnceEveryWantedRateArrived() {
+        String body = "{\"result\":\"success\",\"conversion_rates\":{\"USD\":1,\"EUR\":0.92,\"GBP\":0.79,"
+                + "\"INR\":83.1,\"JPY\":151.4,\"CAD\":1.36,\"CHF\":0.9";
+        // The server keeps the connection open after the rates we need; no need to wait for the rest
+        serve("/slow-tail", 200, body, body.length());
+        long start = System.nanoTime();
+        Map<String, Double> rates = CurrencyManager.downloadRates(baseUrl + "/slow-tail", WANTED, 5000);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(WANTED.size(), rates.size());
+        assertTrue("Took " + elapsedMs + "ms", elapsedMs < 2000);
+    }
+
+    @Test
+    public void aStalledResponseTimesOut() {
+        String body = latestBody();
+        serve("/stalled", 200, body, 60);
+        long start = System.nanoTime();
+        Map<String, Double> rates = CurrencyManager.downloadRates(baseUrl + "/stalled", WANTED, 300);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(rates.isEmpty());
+        assertTrue("Took " + elapsedMs + "ms", elapsedMs < 3000);
+    }
+
+    @Test
+    public void apiErrorsAndServerErrorsGiveNoRates() {
+        serve("/bad-key", 200, "{\"result\":\"error\",\"error-type\":\"invalid-key\"}", -1);
+        serve("/down", 503, "Service Unavailable", -1);
+        serve("/garbage", 200, "<html>captive portal</html>", -1);
+        assertTrue(CurrencyManager.downloadRates(baseUrl + "/bad-key", WANTED, 2000).isEmpty());
+        assertTrue(CurrencyManager.downloadRates(baseUrl + "/down", WANTED, 2000).isEmpty());
+        assertTrue(CurrencyManager.downloadRates(baseUrl + "/garbage", WANTED, 2000).isEmpty());
+    }
+
+    @Test
+    public void unreachableServerGivesNoRates() {
+        server.stop(0);
+        assertTrue(CurrencyManager.downloadRates(baseUrl + "/latest", WANTED, 2000).isEmpty());
+    }
+
+    // Every rate is k times a fixed power of two, so any consistent table converts EUR exactly
+    private static Map<String, Double> ratesScaledBy(double k) {
+        Map<String, Double> rates = new HashMap<>();
+        rates.put("EUR", k);
+        rates.put("GBP", 2 * k);
+        rates.put("INR", 4 * k);
+        rates.put("JPY", 8 * k);
+        rates.put("CAD", 16 * k);
+        return rates;
+    }
+
+    @Test
+    public void readersAlwaysSeeAConsistentRateTable() throws Exception {
+        CurrencyManager manager = new CurrencyManager();
+        manager.onRatesFetched(ratesScaledBy(1));
+        manager.setCurrentCurrencyCode("GBP");
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        AtomicLong reads = new AtomicLong();
+        AtomicLong refreshes = new AtomicLong();
+        Money oneEuro = Money.ofMinor(100, "EUR");
+
+        // Refreshes swap every rate at once; the selected currency changes underneath too
+        Thread writer = new Thread(() -> {
+            for (int i = 0; running.get(); i++) {
+                manager.onRatesFetched(ratesScaledBy(Math.scalb(1.0, i % 20 - 10)));
+                refreshes.incrementAndGet();
+            }
+        });
+        Thread switcher = new Thread(() -> {
+            String[] codes = {"GBP", "INR", "JPY"};
+            for (int i = 0; running.get(); i++) {
+                manager.setCurrentCurrencyCode(codes[i % codes.length]);
+            }
+        });
+        Thread[] readers = new Thread[6];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                long count = 0;
+                while (running.get()) {
+                    // One euro is 2, 4 or 8 of the display currency under any single table;
+                    // a mix of two tables gives some other power of two
+                    double converted = manager.convertPrice(oneEuro);
+                    String formatted = manager.formatPrice(oneEuro);
+                    if (converted != 2 && converted != 4 && converted != 8) {
+                        failure.compareAndSet(null, "Converted 1 EUR to " + converted);
+                    }
+                    if (!formatted.equals("£2.00") && !formatted.equals("₹4.00") && !formatted.equals("¥8")) {
+                        failure.compareAndSet(null, "Formatted 1 EUR as " + formatted);
+                    }
+                    count++;
+                }
+                reads.addAndGet(count);
+            });
+        }
+
+        writer.start();
+        switcher.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        Thread.sleep(1000);
+        running.set(false);
+        writer.join();
+        switcher.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        System.out.println(String.format("%,d conversions by %d threads during %,d rate refreshes",
+                reads.get(), readers.length, refreshes.get()));
+        assertEquals(null, failure.get());
+        assertTrue(reads.get() > 0 && refreshes.get() > 0);
+    }
+}
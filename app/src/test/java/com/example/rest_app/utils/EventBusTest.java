@@ -0,0 +1,172 @@
+package com.example.rest_app.utils;
+
+import android.os.Looper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+// Robolectric for the main looper and Choreographer, which deliver the batches
+@RunWith(RobolectricTestRunner.class)
+public class EventBusTest {
+    private static final long FRAME_MS = 16;
+
+    private final EventBus bus = new EventBus();
+
+    // Records every call it gets
+    private static class Recorder implements EventBus.Subscriber {
+        final List<List<EventBus.Event>> calls = new ArrayList<>();
+
+        @Override
+        public void onEvents(List<EventBus.Event> events) {
+            calls.add(new ArrayList<>(events));
+        }
+    }
+
+    private static void nextFrame() {
+        shadowOf(Looper.getMainLooper()).idleFor(FRAME_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void burstOfPostsIsDeliveredInOneCall() {
+        Recorder recorder = new Recorder();
+        bus.subscribe(recorder, EventBus.CART_EVENTS);
+        for (int i = 0; i < 100; i++) {
+            bus.post(new EventBus.QuantityChanged("item", i + 1));
+        }
+        assertTrue(recorder.calls.isEmpty());
+
+        nextFrame();
+        assertEquals(1, recorder.calls.size());
+        List<EventBus.Event> events = recorder.calls.get(0);
+        assertEquals(100, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, ((EventBus.QuantityChanged) events.get(i)).quantity);
+        }
+        assertEquals(100, bus.getEventsPosted());
+        assertEquals(1, bus.getBatchesDispatched());
+
+        // Nothing posted, nothing delivered
+        nextFrame();
+        assertEquals(1, recorder.calls.size());
+        bus.post(new EventBus.CartReplaced());
+        nextFrame();
+        assertEquals(2, recorder.calls.size());
+        assertEquals(2, bus.getBatchesDispatched());
+    }
+
+    @Test
+    public void postsFromOtherThreadsJoinTheBatch() throws Exception {
+        Recorder recorder = new Recorder();
+        bus.subscribe(recorder, EventBus.CART_EVENTS);
+        bus.post(new EventBus.ItemAdded("a"));
+        Thread worker = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                bus.post(new EventBus.ItemAdded("w" + i));
+            }
+        });
+        worker.start();
+        worker.join();
+
+        nextFrame();
+        assertEquals(1, recorder.calls.size());
+        assertEquals(11, recorder.calls.get(0).size());
+    }
+
+    @Test
+    public void subscribersOnlySeeTheirTypes() {
+        Recorder cart = new Recorder();
+        Recorder rates = new Recorder();
+        bus.subscribe(cart, EventBus.CART_EVENTS);
+        bus.subscribe(rates, EventBus.RatesUpdated.class);
+
+        EventBus.Event added = new EventBus.ItemAdded("a");
+        EventBus.Event changed = new EventBus.QuantityChanged("a", 2);
+        EventBus.Event updated = new EventBus.RatesUpdated("EUR");
+        EventBus.Event removed = new EventBus.ItemRemoved("a");
+        bus.post(added);
+        bus.post(changed);
+        bus.post(updated);
+        bus.post(removed);
+        nextFrame();
+
+        assertEquals(1, cart.calls.size());
+        assertEquals(3, cart.calls.get(0).size());
+        assertSame(added, cart.calls.get(0).get(0));
+        assertSame(changed, cart.calls.get(0).get(1));
+        assertSame(removed, cart.calls.get(0).get(2));
+        assertEquals(1, rates.calls.size());
+        assertEquals(1, rates.calls.get(0).size());
+        assertSame(updated, rates.calls.get(0).get(0));
+
+        // A batch with nothing of a subscriber's types doesn't call it
+        bus.post(new EventBus.RatesUpdated("USD"));
+        nextFrame();
+        assertEquals(1, cart.calls.size());
+        assertEquals(2, rates.calls.size());
+
+        bus.unsubscribe(rates);
+        bus.post(new EventBus.RatesUpdated("GBP"));
+        nextFrame();
+        assertEquals(2, rates.calls.size());
+    }
+
+    @Test
+    public void forgottenSubscribersAreReleased() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        // Captures calls, so it is a new object the bus alone refers to
+        EventBus.Subscriber subscriber = events -> calls.incrementAndGet();
+        WeakReference<EventBus.Subscriber> probe = new WeakReference<>(subscriber);
+        bus.subscribe(subscriber, EventBus.CART_EVENTS);
+        bus.post(new EventBus.ItemAdded("a"));
+        nextFrame();
+        assertEquals(1, calls.get());
+
+        subscriber = null;
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (probe.get() != null) {
+            assertTrue("The bus kept its subscriber alive", System.currentTimeMillis() < deadline);
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(probe.get());
+
+        // The dead subscription is dropped on the next dispatch instead of failing it
+        Recorder recorder = new Recorder();
+        bus.subscribe(recorder, EventBus.CART_EVENTS);
+        bus.post(new EventBus.ItemAdded("b"));
+        nextFrame();
+        assertEquals(1, calls.get());
+        assertEquals(1, recorder.calls.size());
+    }
+
+    @Test
+    public void latencyIsMeasuredFromPostToDelivery() {
+        Recorder recorder = new Recorder();
+        bus.subscribe(recorder, EventBus.CART_EVENTS);
+        assertEquals(0, bus.getAverageDispatchLatencyMs());
+
+        for (int frame = 0; frame < 5; frame++) {
+            bus.post(new EventBus.ItemAdded("a" + frame));
+            nextFrame();
+        }
+        assertEquals(5, recorder.calls.size());
+        // Delivered on the frame after the post, so never later than one frame
+        assertTrue(bus.getMaxDispatchLatencyMs() <= FRAME_MS);
+        assertTrue(bus.getAverageDispatchLatencyMs() <= bus.getMaxDispatchLatencyMs());
+        System.out.println("Dispatch latency: average " + bus.getAverageDispatchLatencyMs()
+                + "ms, max " + bus.getMaxDispatchLatencyMs() + "ms over " + bus.getBatchesDispatched() + " frames");
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.rest_app.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ExchangeRateCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void ratesSurviveARestart() throws Exception {
+        File file = new File(folder.getRoot(), "exchange_rates.json");
+        Map<String, Double> rates = new HashMap<>();
+        rates.put("USD", 1.0);
+        rates.put("EUR", 0.92);
+        rates.put("JPY", 151.4);
+
+        ExchangeRateCache cache = new ExchangeRateCache(file);
+        assertNull(cache.read());
+        cache.write(1_700_000_000_000L, rates);
+        AtomicTextFileTest.awaitDiskThread();
+
+        ExchangeRateCache.Entry entry = new ExchangeRateCache(file).read();
+        assertEquals(1_700_000_000_000L, entry.fetchedAt);
+        assertEquals(rates, entry.rates);
+        assertEquals(false, new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void aCorruptFileReadsAsNoRates() throws Exception {
+        File file = new File(folder.getRoot(), "exchange_rates.json");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("{\"fetchedAt\":17000".getBytes(StandardCharsets.UTF_8));
+        }
+        assertNull(new ExchangeRateCache(file).read());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.rest_app.utils;
+
+import android.os.Handler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Handler driven by a manual clock. Posted runnables run only when the test advances time,
+ * in the order they are due, on the test's thread.
+ */
+class FakeHandler extends Handler {
+    private static class Task {
+        final Runnable runnable;
+        final long dueAt;
+
+        Task(Runnable runnable, long dueAt) {
+            this.runnable = runnable;
+            this.dueAt = dueAt;
+        }
+    }
+
+    private final List<Task> tasks = new ArrayList<>();
+    private long now;
+
+    @Override
+    public synchronized boolean post(Runnable runnable) {
+        return postDelayed(runnable, 0);
+    }
+
+    @Override
+    public synchronized boolean postDelayed(Runnable runnable, long delayMillis) {
+        tasks.add(new Task(runnable, now + delayMillis));
+        return true;
+    }
+
+    @Override
+    public synchronized void removeCallbacks(Runnable runnable) {
+        Iterator<Task> iterator = tasks.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().runnable == runnable) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // Runs everything due within the next millis, including tasks those tasks post
+    void advance(long millis) {
+        long until = now + millis;
+        Task next;
+        while ((next = nextDue(until)) != null) {
+            next.runnable.run();
+        }
+        synchronized (this) {
+            now = until;
+        }
+    }
+
+    // Runs whatever is due now
+    void runPending() {
+        advance(0);
+    }
+
+    synchronized int pendingCount() {
+        return tasks.size();
+    }
+
+    private synchronized Task nextDue(long until) {
+        Task next = null;
+        for (Task task : tasks) {
+            if (task.dueAt <= until && (next == null || task.dueAt < next.dueAt)) {
+                next = task;
+            }
+        }
+        if (next != null) {
+            tasks.remove(next);
+            now = Math.max(now, next.dueAt);
+        }
+        return next;
+    }
+}
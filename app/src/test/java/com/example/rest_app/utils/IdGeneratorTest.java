@@ -0,0 +1,110 @@
+package com.example.rest_app.utils;
+
+import com.example.rest_app.Bench;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IdGeneratorTest {
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 500_000;
+
+    @Test
+    public void idsAreUniqueAcrossThreads() throws Exception {
+        IdGenerator generator = new IdGenerator(12345);
+        long[][] raws = new long[THREADS][IDS_PER_THREAD];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            long[] out = raws[t];
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < out.length; i++) {
+                    out[i] = generator.nextRaw();
+                }
+            });
+            threads[t].start();
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedNs = System.nanoTime() - began;
+
+        long[] all = new long[THREADS * IDS_PER_THREAD];
+        for (int t = 0; t < THREADS; t++) {
+            // Each thread sees its own ids strictly increasing
+            for (int i = 1; i < IDS_PER_THREAD; i++) {
+                assertTrue(raws[t][i] > raws[t][i - 1]);
+            }
+            System.arraycopy(raws[t], 0, all, t * IDS_PER_THREAD, IDS_PER_THREAD);
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertNotEquals("Duplicate id", all[i - 1], all[i]);
+        }
+        System.out.println(String.format("%d unique ids from %d threads, %.1f million ids/s",
+                all.length, THREADS, all.length / (elapsedNs / 1e9) / 1e6));
+    }
+
+    @Test
+    public void idsSortInGenerationOrder() {
+        IdGenerator generator = new IdGenerator(7);
+        String previous = generator.nextId("ORD_");
+        for (int i = 0; i < 100_000; i++) {
+            String next = generator.nextId("ORD_");
+            assertTrue(next.compareTo(previous) > 0);
+            previous = next;
+        }
+    }
+
+    @Test
+    public void nodesSharingTheLowBitsStillGetDifferentIds() {
+        // Same low 10 bits, so the time-ordered part alone could match in the same millisecond
+        long node = 0x2A5L;
+        IdGenerator first = new IdGenerator(node | (1L << 20));
+        IdGenerator second = new IdGenerator(node | (1L << 40));
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(first.nextId("ORD_"));
+            ids.add(second.nextId("ORD_"));
+        }
+        assertEquals(20_000, ids.size());
+    }
+
+    @Test
+    public void decodeReturnsTheRawValue() {
+        IdGenerator generator = new IdGenerator(99);
+        String id = generator.nextId(IdGenerator.BOOKING_PREFIX);
+        long raw = IdGenerator.decode(id, IdGenerator.BOOKING_PREFIX);
+        assertTrue(raw > 0);
+        assertTrue(IdGenerator.decode(generator.nextId(IdGenerator.BOOKING_PREFIX), IdGenerator.BOOKING_PREFIX) > raw);
+        // Ids made before the node suffix still decode
+        assertEquals(raw, IdGenerator.decode(id.substring(0, id.length() - 8), IdGenerator.BOOKING_PREFIX));
+        assertEquals(-1, IdGenerator.decode("ORD_" + id.substring(3), IdGenerator.BOOKING_PREFIX));
+        assertEquals(-1, IdGenerator.decode("BK_legacy-id", IdGenerator.BOOKING_PREFIX));
+    }
+
+    @Test
+    public void perIdCost() {
+        IdGenerator generator = new IdGenerator(3);
+        double rawNs = Bench.nsPerOp(1_000_000, i -> generator.nextRaw());
+        double idNs = Bench.nsPerOp(1_000_000, i -> generator.nextId("ORD_").length());
+        Bench.report("IdGenerator.nextRaw", rawNs);
+        Bench.report("IdGenerator.nextId", idNs);
+    }
+}
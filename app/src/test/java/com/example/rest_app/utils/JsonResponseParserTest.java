@@ -0,0 +1,206 @@
+package com.example.rest_app.utils;
+
+import com.example.rest_app.Bench;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Robolectric for android.util.JsonReader, which is only a stub in plain unit tests
+@RunWith(RobolectricTestRunner.class)
+public class JsonResponseParserTest {
+    private static final List<String> WANTED = Arrays.asList("USD", "EUR", "GBP", "INR", "JPY", "CAD");
+
+    // Same shape as an ExchangeRate-API v6 "latest" response: metadata, then ~160 rates, USD first
+    private static final byte[] RATES_RESPONSE = ratesResponse();
+    private static final byte[] QUOTES_RESPONSE = quotesResponse(50);
+
+    private static byte[] ratesResponse() {
+        StringBuilder body = new StringBuilder("{\n \"result\":\"success\",\n"
+                + " \"documentation\":\"https://www.exchangerate-api.com/docs\",\n"
+                + " \"terms_of_use\":\"https://www.exchangerate-api.com/terms\",\n"
+                + " \"time_last_update_unix\":1729209601,\n"
+                + " \"time_last_update_utc\":\"Fri, 18 Oct 2024 00:00:01 +0000\",\n"
+                + " \"time_next_update_unix\":1729296001,\n"
+                + " \"time_next_update_utc\":\"Sat, 19 Oct 2024 00:00:01 +0000\",\n"
+                + " \"base_code\":\"USD\",\n \"conversion_rates\":{\n  \"USD\":1");
+        int i = 0;
+        for (String code : new TreeSet<>(codes())) {
+            if (!code.equals("USD")) {
+                body.append(",\n  \"").append(code).append("\":").append(0.1 + (i++ * 7.31) % 1500);
+            }
+        }
+        return body.append("\n }\n}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> codes() {
+        List<String> codes = new ArrayList<>();
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            if (codes.size() < 162 && !currency.getCurrencyCode().startsWith("X")) {
+                codes.add(currency.getCurrencyCode());
+            }
+        }
+        codes.addAll(WANTED);
+        return codes;
+    }
+
+    private static byte[] quotesResponse(int count) {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) body.append(',');
+            body.append("{\"q\":\"Quote number ").append(i).append(", about patience and \\\"good food\\\".\",")
+                    .append("\"a\":\"Author ").append(i).append("\",")
+                    .append("\"c\":\"").append(40 + i).append("\",")
+                    .append("\"h\":\"<blockquote>&ldquo;Quote number ").append(i).append("&rdquo;</blockquote>\"}");
+        }
+        return body.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static InputStream rates() {
+        return new ByteArrayInputStream(RATES_RESPONSE);
+    }
+
+    // What FetchRatesTask did: buffer the body, build the whole JSONObject, pick out the wanted rates
+    private static Map<String, Double> oldParseRates(InputStream in) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        StringBuilder response = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            response.append(line);
+        }
+        JSONObject json = new JSONObject(response.toString());
+        JSONObject conversionRates = json.getJSONObject("conversion_rates");
+        Map<String, Double> rates = new HashMap<>();
+        for (String code : WANTED) {
+            rates.put(code, conversionRates.getDouble(code));
+        }
+        return rates;
+    }
+
+    private static String[] oldParseQuote(InputStream in) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        StringBuilder response = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            response.append(line);
+        }
+        JSONObject first = new JSONArray(response.toString()).getJSONObject(0);
+        return new String[]{first.getString("q"), first.getString("a")};
+    }
+
+    @Test
+    public void parsesOnlyTheWantedRates() throws Exception {
+        Map<String, Double> rates = JsonResponseParser.parseRates(rates(), WANTED);
+        assertEquals(oldParseRates(rates()), rates);
+
+        Map<String, Double> all = JsonResponseParser.parseRates(rates(), null);
+        assertEquals(new TreeSet<>(codes()).size(), all.size());
+    }
+
+    @Test
+    public void apiErrorsThrowWithTheErrorType() {
+        String body = "{\"result\":\"error\",\"documentation\":\"https://www.exchangerate-api.com/docs\","
+                + "\"error-type\":\"quota-reached\"}";
+        try {
+            JsonResponseParser.parseRates(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), WANTED);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("quota-reached"));
+        }
+    }
+
+    @Test
+    public void parsesQuotesAndSkipsIncompleteOnes() throws Exception {
+        String body = "[{\"q\":\"Eat well.\",\"a\":\"Chef\",\"h\":\"...\"},{\"q\":null,\"a\":\"Nobody\"},"
+                + "{\"a\":\"Missing\"},{\"q\":\"Cook slowly.\",\"a\":\"Grandma\"}]";
+        List<String[]> quotes = JsonResponseParser.parseQuotes(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), 10);
+        assertEquals(2, quotes.size());
+        assertArrayEquals(new String[]{"Eat well.", "Chef"}, quotes.get(0));
+        assertArrayEquals(new String[]{"Cook slowly.", "Grandma"}, quotes.get(1));
+
+        List<String[]> first = JsonResponseParser.parseQuotes(new ByteArrayInputStream(QUOTES_RESPONSE), 1);
+        assertArrayEquals(oldParseQuote(new ByteArrayInputStream(QUOTES_RESPONSE)), first.get(0));
+    }
+
+    @Test
+    public void streamingAllocatesLessThanBuildingTheWholeDocument() throws Exception {
+        long oldRates = allocatedPerCall(() -> oldParseRates(rates()).size());
+        long newRates = allocatedPerCall(() -> JsonResponseParser.parseRates(rates(), WANTED).size());
+        long oldQuote = allocatedPerCall(() -> oldParseQuote(new ByteArrayInputStream(QUOTES_RESPONSE)).length);
+        long newQuote = allocatedPerCall(() ->
+                JsonResponseParser.parseQuotes(new ByteArrayInputStream(QUOTES_RESPONSE), 1).size());
+        report("rates (" + RATES_RESPONSE.length + " byte body), JSONObject", oldRates);
+        report("rates, JsonReader", newRates);
+        report("first quote (" + QUOTES_RESPONSE.length + " byte body), JSONArray", oldQuote);
+        report("first quote, JsonReader", newQuote);
+
+        Bench.report("rates, JSONObject", Bench.nsPerOp(2_000, i -> {
+            try {
+                return oldParseRates(rates()).size();
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        }));
+        Bench.report("rates, JsonReader", Bench.nsPerOp(2_000, i -> {
+            try {
+                return JsonResponseParser.parseRates(rates(), WANTED).size();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }));
+
+        if (oldRates > 0) {
+            assertTrue(newRates < oldRates);
+            assertTrue(newQuote < oldQuote);
+        }
+    }
+
+    private interface Parse {
+        long run() throws Exception;
+    }
+
+    // Bytes allocated by the calling thread per call, or -1 where the JVM can't tell
+    private static long allocatedPerCall(Parse parse) throws Exception {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < 200; i++) {
+            Bench.sink = parse.run();
+        }
+        long before = sun.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 200; i++) {
+            Bench.sink = parse.run();
+        }
+        return (sun.getThreadAllocatedBytes(thread) - before) / 200;
+    }
+
+    private static void report(String name, long bytes) {
+        System.out.println(String.format("%-50s %10d bytes/parse", name, bytes));
+    }
+}
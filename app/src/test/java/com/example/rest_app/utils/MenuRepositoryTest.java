@@ -0,0 +1,171 @@
+package com.example.rest_app.utils;
+
+import com.example.rest_app.model.FoodItem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MenuRepositoryTest {
+    private static final int CATALOG_SIZE = 1_000;
+    private static final long VERSION_BYTES = 32;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // In-memory "menu" collection with Firestore's ordering and cursor semantics
+    private static class FakeRemote implements MenuRepository.RemoteSource {
+        final List<FoodItem> catalog = new ArrayList<>();
+        long version = 1;
+        int versionReads;
+        int pageReads;
+        long documentReads;
+
+        @Override
+        public void fetchVersion(MenuRepository.RemoteCallback<Long> callback) {
+            versionReads++;
+            callback.onResult(version, VERSION_BYTES);
+        }
+
+        @Override
+        public void fetchPage(FoodItem after, int limit, MenuRepository.RemoteCallback<List<FoodItem>> callback) {
+            pageReads++;
+            List<FoodItem> page = new ArrayList<>();
+            long bytes = 0;
+            for (FoodItem item : catalog) {
+                if (page.size() == limit) {
+                    break;
+                }
+                if (after == null || ORDER.compare(item, after) > 0) {
+                    page.add(new FoodItem(item));
+                    bytes += item.getName().length() + item.getDescription().length() + item.getId().length() + 16;
+                }
+            }
+            documentReads += page.size();
+            callback.onResult(page, bytes);
+        }
+    }
+
+    private static final Comparator<FoodItem> ORDER = (a, b) -> {
+        int byName = a.getName().compareTo(b.getName());
+        return byName != 0 ? byName : a.getId().compareTo(b.getId());
+    };
+
+    private FakeRemote remote;
+    private File cacheDir;
+
+    @Before
+    public void setUp() {
+        remote = new FakeRemote();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            // Every tenth name is shared by ten dishes, so some runs cross a page boundary
+            String name = i % 100 < 10 ? "Daily Special " + (i / 100) : String.format("Dish %04d", i);
+            FoodItem item = new FoodItem(name, "Description of dish " + i, 5 + i % 20, null, "Main");
+            item.setId(String.format("sku-%04d", i));
+            remote.catalog.add(item);
+        }
+        remote.catalog.sort(ORDER);
+        cacheDir = new File(folder.getRoot(), "menu_cache");
+    }
+
+    // Loads every page, driving the disk thread and handler until each one has arrived
+    private static List<FoodItem> loadAll(MenuRepository repository, FakeHandler handler) throws Exception {
+        List<FoodItem> items = new ArrayList<>();
+        MenuRepository.MenuCallback callback = (page, pageIndex, hasMore) -> {
+            if (pageIndex == 0) {
+                items.clear();
+            }
+            items.addAll(page);
+        };
+        repository.loadFirstPage(callback);
+        settle(handler);
+        while (repository.hasMore()) {
+            repository.loadNextPage(callback);
+            settle(handler);
+        }
+        return items;
+    }
+
+    private static void settle(FakeHandler handler) throws Exception {
+        for (int i = 0; i < 3; i++) {
+            AtomicTextFileTest.awaitDiskThread();
+            handler.runPending();
+        }
+    }
+
+    @Test
+    public void pagingDoesNotSkipItemsThatShareAName() throws Exception {
+        FakeHandler handler = new FakeHandler();
+        MenuRepository repository = new MenuRepository(cacheDir, remote, handler);
+        List<FoodItem> items = loadAll(repository, handler);
+
+        Set<String> ids = new HashSet<>();
+        for (FoodItem item : items) {
+            ids.add(item.getId());
+        }
+        assertEquals(CATALOG_SIZE, items.size());
+        assertEquals(CATALOG_SIZE, ids.size());
+        assertEquals(CATALOG_SIZE, remote.documentReads);
+    }
+
+    @Test
+    public void coldStartServesTheFirstPageFromDisk() throws Exception {
+        FakeHandler firstHandler = new FakeHandler();
+        MenuRepository first = new MenuRepository(cacheDir, remote, firstHandler);
+        long start = System.nanoTime();
+        loadAll(first, firstHandler);
+        long firstRunMs = (System.nanoTime() - start) / 1_000_000;
+        long firstBytes = first.getBytesFetched();
+
+        // Next process start: same cache dir, catalog unchanged
+        FakeHandler handler = new FakeHandler();
+        MenuRepository restarted = new MenuRepository(cacheDir, remote, handler);
+        int pageReadsBefore = remote.pageReads;
+        List<FoodItem> firstPage = new ArrayList<>();
+        start = System.nanoTime();
+        restarted.loadFirstPage((page, pageIndex, hasMore) -> firstPage.addAll(page));
+        AtomicTextFileTest.awaitDiskThread();
+        handler.runPending();
+        long timeToFirstItemUs = (System.nanoTime() - start) / 1000;
+
+        assertEquals(MenuRepository.PAGE_SIZE, firstPage.size());
+        assertEquals(remote.catalog.get(0).getId(), firstPage.get(0).getId());
+        List<FoodItem> all = loadAll(restarted, handler);
+        assertEquals(CATALOG_SIZE, all.size());
+        // Only the version document was fetched; every page came from disk
+        assertEquals(pageReadsBefore, remote.pageReads);
+        assertEquals(VERSION_BYTES, restarted.getBytesFetched());
+        System.out.println("Menu of " + CATALOG_SIZE + " items: cold load " + firstRunMs + "ms, "
+                + firstBytes + " bytes; warm start first page after " + timeToFirstItemUs + "us, "
+                + restarted.getBytesFetched() + " bytes");
+    }
+
+    @Test
+    public void catalogVersionChangeRefetches() throws Exception {
+        FakeHandler handler = new FakeHandler();
+        loadAll(new MenuRepository(cacheDir, remote, handler), handler);
+
+        remote.version = 2;
+        FoodItem renamed = remote.catalog.get(0);
+        renamed.setName("AAA New Dish");
+        int pageReadsBefore = remote.pageReads;
+
+        MenuRepository restarted = new MenuRepository(cacheDir, remote, handler);
+        List<FoodItem> items = loadAll(restarted, handler);
+        assertTrue(remote.pageReads > pageReadsBefore);
+        assertEquals("AAA New Dish", items.get(0).getName());
+        assertFalse(restarted.hasMore());
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.rest_app.utils;
+
+import com.example.rest_app.Bench;
+import com.example.rest_app.model.FoodItem;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MenuSearchIndexBenchmarkTest {
+    private static final int CATALOG_SIZE = 50_000;
+    private static final String[] QUERIES = {"burger", "chick", "spicy chicken", "urger", "pas", "zz", "ur", "grilled salmon", "kalomi", "fresh ven"};
+
+    private static final String[] ADJECTIVES = {"Spicy", "Classic", "Grilled", "Creamy", "Crispy", "Smoked", "Fresh", "Golden"};
+    private static final String[] DISHES = {"Chicken Burger", "Beef Burger", "Pizza", "Alfredo Pasta", "Salmon Steak",
+            "Sushi Roll", "Lava Cake", "Berry Smoothie", "Chicken Wings", "Beef Tacos", "Salad Bowl"};
+    private static final String[] CATEGORIES = {"Burgers", "Pizza", "Pasta", "Asian", "Seafood", "Desserts", "Drinks"};
+
+    private static List<FoodItem> catalog;
+    private static MenuSearchIndex index;
+
+    @BeforeClass
+    public static void buildCatalog() {
+        catalog = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            // A real 50k catalog has far more distinct dishes than the bundled menu; one item in
+            // 20 is a common dish, the rest get made-up names
+            String dish = i % 20 == 0 ? DISHES[(i / 20) % DISHES.length] : madeUpWord(i) + " " + madeUpWord(i / 7 + 1);
+            String name = ADJECTIVES[i % ADJECTIVES.length] + " " + dish;
+            String description = "House " + madeUpWord(i * 31 + 5) + " with seasonal " + madeUpWord(i % 97) + " sides";
+            FoodItem item = new FoodItem(name, description, 5 + i % 20, null, CATEGORIES[i % CATEGORIES.length] + " " + (i % 9));
+            item.setId("sku-" + i);
+            catalog.add(item);
+        }
+        index = new MenuSearchIndex();
+        long start = System.nanoTime();
+        index.addAll(catalog);
+        System.out.println("Indexed " + CATALOG_SIZE + " items in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    // Three syllables out of 24, so about 14k different words
+    private static String madeUpWord(int seed) {
+        String[] syllables = {"ka", "lo", "mi", "ter", "sa", "ru", "ven", "do", "pi", "nar", "bo", "li",
+                "que", "ta", "gor", "mel", "fi", "zan", "ro", "tu", "pel", "ci", "ma", "dre"};
+        int x = seed * 0x9E3779B1;
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            word.append(syllables[Math.floorMod(x >> (i * 8), syllables.length)]);
+        }
+        word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+        return word.toString();
+    }
+
+    // What MenuFragment.filterFoodItems used to do on every keystroke
+    private static List<FoodItem> linearScan(String query) {
+        String[] terms = query.toLowerCase(Locale.ROOT).split(" ");
+        List<FoodItem> results = new ArrayList<>();
+        for (FoodItem item : catalog) {
+            String text = item.getName().toLowerCase(Locale.ROOT) + " " + item.getCategory().toLowerCase(Locale.ROOT)
+                    + " " + item.getDescription().toLowerCase(Locale.ROOT);
+            boolean all = true;
+            for (String term : terms) {
+                all &= text.contains(term);
+            }
+            if (all) {
+                results.add(item);
+            }
+        }
+        return results;
+    }
+
+    private static Set<String> ids(List<FoodItem> items) {
+        Set<String> ids = new HashSet<>();
+        for (FoodItem item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void findsWhatALinearScanFinds() {
+        for (String query : QUERIES) {
+            assertEquals(query, ids(linearScan(query)), ids(index.search(query)));
+        }
+    }
+
+    @Test
+    public void shortTermsMatchInsideWords() {
+        MenuSearchIndex small = new MenuSearchIndex();
+        FoodItem burger = new FoodItem("Beef Burger", "Grilled patty", 9, null, "Burgers");
+        burger.setId("burger");
+        FoodItem sushi = new FoodItem("Sushi Roll", "Salmon and rice", 12, null, "Asian");
+        sushi.setId("sushi");
+        small.add(burger);
+        small.add(sushi);
+
+        assertEquals(Collections.singleton("burger"), ids(small.search("ur")));
+        assertEquals(new HashSet<>(Arrays.asList("burger", "sushi")), ids(small.search("u")));
+        // A word that starts with the term still ranks above one that only contains it
+        assertEquals("sushi", small.search("s").get(0).getId());
+        assertEquals("burger", small.search("ur g").get(0).getId());
+        for (String query : new String[]{"ur", "ka", "e", "lo mi"}) {
+            assertEquals(query, ids(linearScan(query)), ids(index.search(query)));
+        }
+    }
+
+    @Test
+    public void namesRankAboveDescriptions() {
+        List<FoodItem> results = index.search("pizza");
+        int nameMatches = 0;
+        while (nameMatches < results.size() && results.get(nameMatches).getName().contains("Pizza")) {
+            nameMatches++;
+        }
+        for (int i = nameMatches; i < results.size(); i++) {
+            assertTrue(results.get(i).getName(), !results.get(i).getName().contains("Pizza"));
+        }
+        assertTrue(nameMatches > 0 && nameMatches < results.size());
+    }
+
+    @Test
+    public void updatesIncrementally() {
+        MenuSearchIndex small = new MenuSearchIndex();
+        small.addAll(catalog.subList(0, 100));
+        FoodItem item = new FoodItem(catalog.get(0));
+        item.setName("Truffle Risotto");
+        small.add(item);
+        assertEquals(100, small.size());
+        assertEquals(1, small.search("truffle").size());
+        assertTrue(!ids(small.search("spicy")).contains(item.getId()));
+
+        small.remove(item.getId());
+        assertEquals(0, small.search("risotto").size());
+        assertEquals(99, small.size());
+    }
+
+    @Test
+    public void queriesStayUnderAMillisecondAt50kItems() {
+        for (String query : QUERIES) {
+            double indexNs = Bench.nsPerOp(200, i -> index.search(query).size());
+            double scanNs = Bench.nsPerOp(3, i -> linearScan(query).size());
+            Bench.report("index \"" + query + "\", " + CATALOG_SIZE + " items", indexNs);
+            Bench.report("linear scan \"" + query + "\", " + CATALOG_SIZE + " items", scanNs);
+            System.out.println(String.format("%-50s %10d bytes/query", "index \"" + query + "\" allocates",
+                    allocatedPerQuery(query)));
+            assertTrue(query + " took " + indexNs / 1e6 + "ms", indexNs < scanNs);
+        }
+        // The common case is a short, selective query typed into the search box
+        double typical = Bench.nsPerOp(1_000, i -> index.search(QUERIES[i % QUERIES.length]).size());
+        Bench.report("index, mixed queries", typical);
+        assertTrue("Mean query took " + typical / 1e6 + "ms", typical < 1_000_000);
+    }
+
+    // Bytes allocated by one search, mostly the result list; no lowercased copies of the catalog
+    private static long allocatedPerQuery(String query) {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+        long before = sun.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 100; i++) {
+            Bench.sink = index.search(query).size();
+        }
+        return (sun.getThreadAllocatedBytes(thread) - before) / 100;
+    }
+}
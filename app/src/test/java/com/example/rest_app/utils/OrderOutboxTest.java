@@ -0,0 +1,181 @@
+package com.example.rest_app.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OrderOutboxTest {
+    private static final int ORDERS = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Stand-in for orders/{orderId}: set() keeps the last data per id and counts every applied write
+    private final Map<String, Map<String, Object>> server = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> appliedWrites = new ConcurrentHashMap<>();
+
+    private void apply(String orderId, Map<String, Object> orderData) {
+        server.put(orderId, orderData);
+        appliedWrites.computeIfAbsent(orderId, id -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static Map<String, Object> order(int i) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("orderId", "ORD_" + i);
+        data.put("totalMinor", 1000L + i);
+        data.put("items", Collections.singletonList(Collections.singletonMap("name", "Dish " + i)));
+        return data;
+    }
+
+    // Keeps skipping the backoff until the condition holds
+    private static void drainUntil(OrderOutbox outbox, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out draining the outbox", System.currentTimeMillis() < deadline);
+            outbox.drain();
+            Thread.sleep(2);
+        }
+    }
+
+    private static void append(File file, String text) throws Exception {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(text.getBytes(Charset.forName("UTF-8")));
+        }
+    }
+
+    @Test
+    public void flakyWriterDeliversEveryOrderExactlyOnce() throws Exception {
+        Random random = new Random(42);
+        OrderOutbox outbox = new OrderOutbox(folder.newFile("journal"), (orderId, orderData, callback) -> {
+            if (random.nextInt(10) < 4) {
+                callback.onFailure(new Exception("Network unavailable"));
+            } else {
+                apply(orderId, orderData);
+                callback.onSuccess();
+            }
+        });
+
+        for (int i = 0; i < ORDERS; i++) {
+            assertTrue(outbox.enqueue("ORD_" + i, order(i)));
+        }
+        drainUntil(outbox, () -> outbox.getDeliveredCount() == ORDERS);
+
+        assertEquals(ORDERS, server.size());
+        for (AtomicInteger writes : appliedWrites.values()) {
+            assertEquals(1, writes.get());
+        }
+        assertEquals(0, outbox.getPendingCount());
+        assertTrue(outbox.getFailedAttempts() > 0);
+    }
+
+    @Test
+    public void lostAcknowledgementsOnlyRepeatTheSameWrite() throws Exception {
+        Random random = new Random(7);
+        // The write lands but the reply is lost, so the outbox retries an order the server already has
+        OrderOutbox outbox = new OrderOutbox(folder.newFile("journal"), (orderId, orderData, callback) -> {
+            apply(orderId, orderData);
+            if (random.nextInt(10) < 4) {
+                callback.onFailure(new Exception("Connection reset"));
+            } else {
+                callback.onSuccess();
+            }
+        });
+
+        for (int i = 0; i < ORDERS; i++) {
+            outbox.enqueue("ORD_" + i, order(i));
+        }
+        drainUntil(outbox, () -> outbox.getDeliveredCount() == ORDERS);
+
+        assertEquals(ORDERS, server.size());
+        for (int i = 0; i < ORDERS; i++) {
+            assertEquals(1000L + i, ((Number) server.get("ORD_" + i).get("totalMinor")).longValue());
+        }
+    }
+
+    @Test
+    public void unacknowledgedUploadTimesOutAndRetries() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        OrderOutbox outbox = new OrderOutbox(folder.newFile("journal"), (orderId, orderData, callback) -> {
+            // The first attempt hangs like a Firestore write made offline
+            if (attempts.incrementAndGet() > 1) {
+                apply(orderId, orderData);
+                callback.onSuccess();
+            }
+        }, 50);
+
+        outbox.enqueue("ORD_1", order(1));
+        drainUntil(outbox, () -> outbox.getDeliveredCount() == 1);
+        assertEquals(1, outbox.getFailedAttempts());
+    }
+
+    @Test
+    public void pendingOrdersSurviveARestart() throws Exception {
+        File journal = folder.newFile("journal");
+        OrderOutbox offline = new OrderOutbox(journal, (orderId, orderData, callback) ->
+                callback.onFailure(new Exception("Offline")));
+        for (int i = 0; i < 3; i++) {
+            offline.enqueue("ORD_" + i, order(i));
+        }
+
+        OrderOutbox restarted = new OrderOutbox(journal, (orderId, orderData, callback) -> {
+            apply(orderId, orderData);
+            callback.onSuccess();
+        });
+        drainUntil(restarted, () -> restarted.getDeliveredCount() == 3);
+        assertEquals(3, server.size());
+    }
+
+    @Test
+    public void damagedLinesDoNotHideLaterOrders() throws Exception {
+        File journal = folder.newFile("journal");
+        append(journal, "P\tORD_1\t{\"totalMinor\":1}\n"
+                + "P\tORD_2\t{\"totalMi\n"
+                + "P\tORD_3\t{\"totalMinor\":3}\n"
+                // Torn by a crash mid-append, no newline
+                + "P\tORD_4\t{\"tot");
+
+        // Appended after the torn line while offline, so it is only in the journal
+        OrderOutbox offline = new OrderOutbox(journal, (orderId, orderData, callback) ->
+                callback.onFailure(new Exception("Offline")));
+        assertTrue(offline.enqueue("ORD_5", order(5)));
+
+        OrderOutbox restarted = new OrderOutbox(journal, (orderId, orderData, callback) -> {
+            apply(orderId, orderData);
+            callback.onSuccess();
+        });
+        drainUntil(restarted, () -> restarted.getDeliveredCount() == 3);
+        assertEquals(new HashSet<>(Arrays.asList("ORD_1", "ORD_3", "ORD_5")), server.keySet());
+        assertEquals(0, restarted.getPendingCount());
+        // Everything readable was delivered, but the journal is kept because of the damaged lines
+        Thread.sleep(50);
+        assertTrue(journal.exists());
+    }
+
+    @Test
+    public void journalIsCompactedOnceEverythingIsDelivered() throws Exception {
+        File journal = folder.newFile("journal");
+        OrderOutbox outbox = new OrderOutbox(journal, (orderId, orderData, callback) -> {
+            apply(orderId, orderData);
+            callback.onSuccess();
+        });
+        outbox.enqueue("ORD_1", order(1));
+        drainUntil(outbox, () -> outbox.getDeliveredCount() == 1);
+        drainUntil(outbox, () -> !journal.exists());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.rest_app.utils;
+
+import com.example.rest_app.Bench;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class PriceFormatterTest {
+    private final CurrencyRegistry registry = CurrencyRegistry.builtIn();
+    private final PriceFormatter formatter = new PriceFormatter(registry);
+
+    // What formatPrice did before PriceFormatter
+    private String oldFormat(int currency, double amount) {
+        return registry.symbol(currency)
+                + String.format(Locale.US, "%." + registry.fractionDigits(currency) + "f", amount);
+    }
+
+    @Test
+    public void halfwayAmountsRoundUpLikeStringFormat() {
+        int usd = registry.indexOf("USD");
+        // Each of these is stored slightly below the half, so scaling and Math.round rounds down
+        double[] amounts = {1.005, 2.675, 1.115, 8.345, 10.075, 0.285, 1234.565, -1.005, -2.675};
+        for (double amount : amounts) {
+            assertEquals(oldFormat(usd, amount), formatter.format(usd, amount));
+        }
+        assertEquals("$1.01", formatter.format(usd, 1.005));
+        assertEquals("$2.68", formatter.format(usd, 2.675));
+        assertEquals("¥3", formatter.format(registry.indexOf("JPY"), 2.5));
+    }
+
+    @Test
+    public void matchesStringFormatForRandomPrices() {
+        Random random = new Random(42);
+        for (int i = 0; i < 500_000; i++) {
+            int currency = random.nextInt(registry.size());
+            double amount;
+            switch (i % 4) {
+                case 0:
+                    amount = random.nextInt(1_000_000) / 1000.0; // Three decimals, many exact halves
+                    break;
+                case 1:
+                    amount = random.nextInt(100_000) / 100.0 * 1.0825; // Converted and taxed
+                    break;
+                case 2:
+                    amount = (random.nextDouble() - 0.5) * 1e6;
+                    break;
+                default:
+                    amount = random.nextInt(20_000) / 8.0;
+                    break;
+            }
+            assertEquals(oldFormat(currency, amount), formatter.format(currency, amount));
+        }
+    }
+
+    @Test
+    public void matchesStringFormatAtTheEdges() {
+        for (int currency = 0; currency < registry.size(); currency++) {
+            double[] amounts = {0, -0.0, 0.004, -0.004, 0.5, 99.995, 999999.995, 1e12 + 0.5, 4.5e15,
+                    1e300, Double.NaN, Double.POSITIVE_INFINITY, Double.MIN_VALUE};
+            for (double amount : amounts) {
+                assertEquals(amount + " in " + registry.code(currency),
+                        oldFormat(currency, amount), formatter.format(currency, amount));
+            }
+        }
+    }
+
+    // Timings and allocations are reported, not asserted, so a loaded machine can't fail the build
+    @Test
+    public void benchmarkAgainstStringFormat() {
+        int usd = registry.indexOf("USD");
+        double[] prices = new double[256];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = 4.99 + i * 0.25;
+        }
+        Random random = new Random(7);
+        double[] uncached = new double[1 << 16];
+        for (int i = 0; i < uncached.length; i++) {
+            uncached[i] = random.nextInt(10_000_000) / 1000.0;
+        }
+        for (double price : prices) {
+            assertEquals(oldFormat(usd, price), formatter.format(usd, price));
+        }
+        for (double price : uncached) {
+            assertEquals(oldFormat(usd, price), formatter.format(usd, price));
+        }
+
+        Bench.Op old = i -> oldFormat(usd, prices[i & 255]).length();
+        Bench.Op cached = i -> formatter.format(usd, prices[i & 255]).length();
+        Bench.Op miss = i -> formatter.format(usd, uncached[i & 0xFFFF]).length();
+        Bench.report("String.format", Bench.nsPerOp(200_000, old), Bench.bytesPerOp(200_000, old));
+        Bench.report("PriceFormatter, menu prices (cached)",
+                Bench.nsPerOp(2_000_000, cached), Bench.bytesPerOp(200_000, cached));
+        Bench.report("PriceFormatter, random prices (mostly misses)",
+                Bench.nsPerOp(200_000, miss), Bench.bytesPerOp(200_000, miss));
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.rest_app.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchPipelineTest {
+    private static final long DEBOUNCE_MS = SearchPipeline.DEFAULT_DEBOUNCE_MS;
+
+    private FakeHandler handler;
+    // One thread and a queue of one, so a single slow task saturates it
+    private ThreadPoolExecutor executor;
+    private TaskScheduler scheduler;
+    // Queries the matcher actually ran, and results the listener received
+    private final List<String> matched = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> delivered = new ArrayList<>();
+    private volatile CountDownLatch matchGate;
+
+    @Before
+    public void setUp() {
+        handler = new FakeHandler();
+        executor = TaskScheduler.createPool("test-cpu", 1, 1, 0);
+        scheduler = new TaskScheduler(handler, executor, executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private SearchPipeline<String> newPipeline() {
+        return new SearchPipeline<>(handler, scheduler, TaskScheduler.Pool.CPU, DEBOUNCE_MS, query -> {
+            CountDownLatch gate = matchGate;
+            if (gate != null) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            matched.add(query);
+            return Collections.singletonList(query.toUpperCase());
+        }, (query, results) -> delivered.add(results.get(0)));
+    }
+
+    // Lets the pool finish what it has, then runs the deliveries it posted
+    private void settle() throws Exception {
+        awaitIdle();
+        handler.runPending();
+    }
+
+    // The pool has one thread, so once a marker task has run everything queued before it has too
+    private void awaitIdle() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                executor.submit(() -> {
+                }).get(5, TimeUnit.SECONDS);
+                return;
+            } catch (RejectedExecutionException e) {
+                assertTrue("Pool never had room", System.nanoTime() < deadline);
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    private void type(SearchPipeline<String> pipeline, String text, long msBetweenKeys) {
+        for (int i = 1; i <= text.length(); i++) {
+            pipeline.onQueryChanged(text.substring(0, i));
+            handler.advance(msBetweenKeys);
+        }
+    }
+
+    @Test
+    public void aBurstOfKeystrokesRunsOnlyTheLastQuery() throws Exception {
+        SearchPipeline<String> pipeline = newPipeline();
+        type(pipeline, "spicy burger", 40);
+        assertTrue(matched.isEmpty());
+
+        handler.advance(DEBOUNCE_MS);
+        settle();
+        assertEquals(Collections.singletonList("spicy burger"), matched);
+        assertEquals(Collections.singletonList("SPICY BURGER"), delivered);
+        assertEquals(1, pipeline.getQueriesIssued());
+        assertEquals(0, pipeline.getQueriesCancelled());
+    }
+
+    @Test
+    public void pausesLongerThanTheDebounceRunIntermediateQueries() throws Exception {
+        SearchPipeline<String> pipeline = newPipeline();
+        type(pipeline, "piz", 40);
+        handler.advance(DEBOUNCE_MS);
+        settle();
+        type(pipeline, "pizza", 40);
+        handler.advance(DEBOUNCE_MS);
+        settle();
+        assertEquals(2, pipeline.getQueriesIssued());
+        assertEquals(2, delivered.size());
+        assertEquals("PIZZA", delivered.get(1));
+    }
+
+    @Test
+    public void aNewerKeystrokeCancelsAQueryStillMatching() throws Exception {
+        SearchPipeline<String> pipeline = newPipeline();
+        matchGate = new CountDownLatch(1);
+        pipeline.onQueryChanged("sa");
+        handler.advance(DEBOUNCE_MS);
+
+        // "sa" is now blocked in the matcher; the user keeps typing
+        type(pipeline, "salmon", 30);
+        handler.advance(DEBOUNCE_MS);
+        matchGate.countDown();
+        settle();
+
+        assertEquals(Collections.singletonList("SALMON"), delivered);
+        assertEquals(2, pipeline.getQueriesIssued());
+        assertEquals(1, pipeline.getQueriesCancelled());
+    }
+
+    @Test
+    public void aResultWaitingForTheMainThreadIsDroppedWhenStale() throws Exception {
+        SearchPipeline<String> pipeline = newPipeline();
+        pipeline.onQueryChanged("tac");
+        handler.advance(DEBOUNCE_MS);
+        // Matched, and its delivery is posted but the main thread hasn't run it yet
+        awaitIdle();
+        assertEquals(1, handler.pendingCount());
+
+        pipeline.onQueryChanged("taco");
+        handler.advance(DEBOUNCE_MS);
+        settle();
+        assertEquals(Collections.singletonList("TACO"), delivered);
+        assertEquals(1, pipeline.getQueriesCancelled());
+    }
+
+    @Test
+    public void submitSkipsTheDebounceAndCancelDeliversNothing() throws Exception {
+        SearchPipeline<String> pipeline = newPipeline();
+        type(pipeline, "sushi", 20);
+        pipeline.submitNow("sushi roll");
+        settle();
+        handler.advance(DEBOUNCE_MS);
+        settle();
+        assertEquals(Collections.singletonList("SUSHI ROLL"), delivered);
+
+        pipeline.onQueryChanged("cake");
+        pipeline.cancel();
+        handler.advance(DEBOUNCE_MS);
+        settle();
+        assertEquals(1, delivered.size());
+        assertEquals(0, handler.pendingCount());
+    }
+
+    @Test
+    public void aQueryRejectedByASaturatedPoolRunsOnceThereIsRoom() throws Exception {
+        SearchPipeline<String> pipeline = newPipeline();
+        // Something else holds the only thread and fills the queue
+        CountDownLatch busy = new CountDownLatch(1);
+        scheduler.submit(TaskScheduler.Pool.CPU, "busy", () -> busy.await(5, TimeUnit.SECONDS), null);
+        scheduler.submit(TaskScheduler.Pool.CPU, "queued", () -> null, null);
+
+        type(pipeline, "wings", 30);
+        handler.advance(DEBOUNCE_MS);
+        handler.runPending(); // The rejection
+        assertEquals(1, pipeline.getQueriesRejected());
+        assertEquals(1, scheduler.getRejectedCount(TaskScheduler.Pool.CPU));
+        assertTrue(delivered.isEmpty());
+
+        busy.countDown();
+        awaitIdle();
+        handler.advance(DEBOUNCE_MS);
+        settle();
+        assertEquals(Collections.singletonList("WINGS"), delivered);
+        assertEquals(0, pipeline.getQueriesCancelled());
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.rest_app.utils;
+
+import com.example.rest_app.Bench;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TableAvailabilityTest {
+    private final TableAvailability tables = TableAvailability.defaultFloorPlan();
+
+    @Test
+    public void seatingsCoverTwoHoursWithinOpeningHours() {
+        TableAvailability.Seating lunch = TableAvailability.seatingAt(12 * 60);
+        assertEquals(2, lunch.startSlot);
+        assertEquals(4, lunch.slotCount);
+        // Off the half hour it also takes the slot it ends in
+        assertEquals(5, TableAvailability.seatingAt(12 * 60 + 10).slotCount);
+        assertNull(TableAvailability.seatingAt(10 * 60 + 59));
+        assertNull(TableAvailability.seatingAt(21 * 60 + 1));
+        assertNotNull(TableAvailability.seatingAt(21 * 60));
+    }
+
+    @Test
+    public void picksTheSmallestFreeTableThatFits() {
+        TableAvailability.Day day = new TableAvailability.Day();
+        TableAvailability.Seating seating = TableAvailability.seatingAt(19 * 60);
+        int table = tables.reserve(day, seating, 3);
+        assertEquals(4, tables.seatsAt(table));
+        assertEquals(4, table);
+        assertEquals(5, tables.reserve(day, seating, 4));
+
+        // An overlapping seating can't get the same table, a later one can
+        assertEquals(6, tables.findTable(day, TableAvailability.seatingAt(20 * 60), 4));
+        assertEquals(4, tables.findTable(day, TableAvailability.seatingAt(21 * 60), 4));
+
+        tables.release(day, 4, seating.startSlot, seating.slotCount);
+        assertEquals(4, tables.findTable(day, seating, 3));
+        assertEquals(-1, tables.findTable(day, seating, 11));
+    }
+
+    @Test
+    public void aFullSlotHasNoTableForAnyParty() {
+        TableAvailability.Day day = new TableAvailability.Day();
+        TableAvailability.Seating seating = TableAvailability.seatingAt(19 * 60);
+        for (int i = 0; i < tables.tableCount(); i++) {
+            assertTrue(tables.reserve(day, seating, 1) >= 0);
+        }
+        assertEquals(0, tables.freeTables(day, seating));
+        assertEquals(-1, tables.reserve(day, seating, 1));
+        assertEquals(TableAvailability.SLOTS_PER_DAY, TableAvailability.Day.fromList(day.toList()).busy.length);
+    }
+
+    /**
+     * Local stand-in for the availability/{day} document under Firestore transactions: each
+     * attempt reads the current version, and the commit only succeeds if nobody committed in
+     * between. Like runTransaction, an attempt is retried up to five times.
+     */
+    private static class DayDocument {
+        private static final int MAX_ATTEMPTS = 5;
+        final AtomicReference<List<Long>> busy = new AtomicReference<>(null);
+        final AtomicInteger conflicts = new AtomicInteger();
+        final AtomicInteger aborted = new AtomicInteger();
+
+        interface Update {
+            // Changes the day and returns a result, or returns without changing it to write nothing
+            int apply(TableAvailability.Day day);
+        }
+
+        // The update's result, or Integer.MIN_VALUE if every attempt conflicted
+        int runTransaction(Update update) {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                List<Long> read = busy.get();
+                TableAvailability.Day day = TableAvailability.Day.fromList(read);
+                int result = update.apply(day);
+                // The read and the commit are a round trip apart; let other guests in between
+                Thread.yield();
+                if (busy.compareAndSet(read, Collections.unmodifiableList(day.toList()))) {
+                    return result;
+                }
+                conflicts.incrementAndGet();
+            }
+            aborted.incrementAndGet();
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    private static final class Booked {
+        final int table;
+        final int party;
+        final TableAvailability.Seating seating;
+
+        Booked(int table, int party, TableAvailability.Seating seating) {
+            this.table = table;
+            this.party = party;
+            this.seating = seating;
+        }
+    }
+
+    @Test
+    public void concurrentBookingsNeverShareATable() throws Exception {
+        DayDocument document = new DayDocument();
+        // Every start time of the evening, so seatings overlap some but not all of each other
+        List<Integer> evening = new ArrayList<>();
+        for (int minute = 17 * 60; minute <= 21 * 60; minute += 15) {
+            evening.add(minute);
+        }
+        ConcurrentLinkedQueue<Booked> booked = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Booked> cancelled = new ConcurrentLinkedQueue<>();
+        AtomicInteger turnedAway = new AtomicInteger();
+
+        Thread[] guests = new Thread[8];
+        CountDownLatch start = new CountDownLatch(1);
+        for (int g = 0; g < guests.length; g++) {
+            final Random random = new Random(g);
+            guests[g] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 200; i++) {
+                    TableAvailability.Seating seating =
+                            TableAvailability.seatingAt(evening.get(random.nextInt(evening.size())));
+                    int party = 1 + random.nextInt(8);
+                    int table = document.runTransaction(day -> tables.reserve(day, seating, party));
+                    if (table >= 0) {
+                        Booked booking = new Booked(table, party, seating);
+                        booked.add(booking);
+                        // Some guests cancel again, freeing the table for someone else
+                        if (random.nextInt(4) == 0 && booked.remove(booking)) {
+                            int result = document.runTransaction(day -> {
+                                tables.release(day, booking.table, booking.seating.startSlot, booking.seating.slotCount);
+                                return 0;
+                            });
+                            if (result == 0) {
+                                cancelled.add(booking);
+                            } else {
+                                booked.add(booking); // Cancel lost every retry; the table stays taken
+                            }
+                        }
+                    } else if (table == -1) {
+                        turnedAway.incrementAndGet();
+                    }
+                }
+            });
+            guests[g].start();
+        }
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Thread guest : guests) {
+            guest.join();
+        }
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        // No table is held twice in any slot, and the document holds exactly the surviving bookings
+        long[] expected = new long[TableAvailability.SLOTS_PER_DAY];
+        for (Booked booking : booked) {
+            assertTrue(booking.party <= tables.seatsAt(booking.table));
+            for (int slot = booking.seating.startSlot; slot < booking.seating.startSlot + booking.seating.slotCount; slot++) {
+                long bit = 1L << booking.table;
+                assertEquals("Table " + booking.table + " double booked in slot " + slot, 0, expected[slot] & bit);
+                expected[slot] |= bit;
+            }
+        }
+        List<Long> actual = document.busy.get();
+        for (int slot = 0; slot < TableAvailability.SLOTS_PER_DAY; slot++) {
+            assertEquals("Slot " + slot, expected[slot], actual.get(slot).longValue());
+        }
+        assertTrue(turnedAway.get() > 0);
+        assertTrue(document.conflicts.get() > 0);
+
+        System.out.println(String.format("%d guests, %d attempts in %dms: %d booked, %d cancelled, %d turned away, "
+                        + "%d transaction retries, %d aborted after %d attempts",
+                guests.length, guests.length * 200, elapsedMs, booked.size(), cancelled.size(), turnedAway.get(),
+                document.conflicts.get(), document.aborted.get(), DayDocument.MAX_ATTEMPTS));
+    }
+
+    @Test
+    public void findingATableIsCheap() {
+        TableAvailability.Day day = new TableAvailability.Day();
+        List<TableAvailability.Seating> seatings = new ArrayList<>();
+        for (int minute = TableAvailability.OPEN_MINUTES; minute + TableAvailability.SEATING_MINUTES
+                <= TableAvailability.CLOSE_MINUTES; minute += 15) {
+            seatings.add(TableAvailability.seatingAt(minute));
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < 40; i++) {
+            tables.reserve(day, seatings.get(random.nextInt(seatings.size())), 1 + random.nextInt(6));
+        }
+        int count = seatings.size();
+        double ns = Bench.nsPerOp(2_000_000, i -> tables.findTable(day, seatings.get(i % count), 1 + (i & 7)));
+        Bench.report("findTable, " + tables.tableCount() + " tables", ns);
+        assertTrue(ns < 10_000);
+    }
+}